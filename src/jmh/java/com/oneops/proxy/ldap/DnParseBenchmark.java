@@ -0,0 +1,63 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.ldaptive.DnParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sun.security.x509.X500Name;
+
+/**
+ * Compares the cost of extracting the CN from the role search result DNs using {@link LdapDn},
+ * the old {@link X500Name} and the ldaptive {@link DnParser}. Run it with <b>-prof gc</b> to see
+ * the allocation rate.
+ *
+ * @author Suresh G
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DnParseBenchmark {
+
+  @Param({
+    "CN=John Doe - jdoe,OU=Users,DC=example,DC=com",
+    "CN=App - Secrets Admins,OU=Security Groups,OU=Groups,DC=ad,DC=example,DC=com",
+    "CN=Doe\\, John - jdoe,OU=Service Accounts,OU=Users,DC=ad,DC=example,DC=com"
+  })
+  public String dn;
+
+  @Benchmark
+  public void x500Name(Blackhole bh) throws IOException {
+    bh.consume(new X500Name(dn).getCommonName());
+  }
+
+  @Benchmark
+  public void ldaptive(Blackhole bh) {
+    bh.consume(DnParser.getValue(dn, "CN"));
+  }
+
+  @Benchmark
+  public void ldapDn(Blackhole bh) {
+    bh.consume(LdapDn.commonName(dn));
+  }
+}
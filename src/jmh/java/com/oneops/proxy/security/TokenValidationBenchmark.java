@@ -0,0 +1,84 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.security;
+
+import com.oneops.proxy.auth.user.OneOpsUser;
+import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.config.OneOpsConfig;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Compares the cold (HS512 verification and claim parsing) and hot (verified token cache) JWT
+ * validation in {@link JwtTokenService#createUser(String)}.
+ *
+ * @author Suresh G
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+  private JwtTokenService coldService;
+
+  private JwtTokenService hotService;
+
+  private String token;
+
+  @Setup
+  public void setup() {
+    coldService = new JwtTokenService(config(0));
+    hotService = new JwtTokenService(config(1000));
+
+    OneOpsUser user =
+        new OneOpsUser(
+            "oneops",
+            "",
+            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")),
+            "OneOps User",
+            AuthDomain.PROD);
+    token = coldService.generateToken(user);
+    hotService.createUser(token);
+  }
+
+  private static OneOpsConfig config(long tokenCacheSize) {
+    OneOpsConfig.Auth auth = new OneOpsConfig.Auth();
+    auth.setSigningKey(Base64.getEncoder().encodeToString(new byte[64]).toCharArray());
+    auth.setExpiresInSec(7200);
+    auth.setTokenCacheSize(tokenCacheSize);
+    OneOpsConfig config = new OneOpsConfig();
+    config.setAuth(auth);
+    return config;
+  }
+
+  @Benchmark
+  public OneOpsUser cold() {
+    return coldService.createUser(token);
+  }
+
+  @Benchmark
+  public OneOpsUser hot() {
+    return hotService.createUser(token);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.service;
+
+import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.model.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the secret listing normalization ({@link SecretService#normalize(Collection)}) and
+ * keywhiz group name derivation, with and without the {@link AppNameCodec} interning.
+ *
+ * @author Suresh G
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecretNormalizeBenchmark {
+
+  /** Number of secrets in the listing. */
+  @Param({"10", "100", "1000"})
+  public int secrets;
+
+  private SecretService secretService;
+
+  private List<String> uniqNames;
+
+  @Setup
+  public void setup() {
+    OneOpsConfig.Keywhiz keywhiz = new OneOpsConfig.Keywhiz();
+    keywhiz.setSecretMaxSize(350 * 1024);
+    OneOpsConfig config = new OneOpsConfig();
+    config.setKeywhiz(keywhiz);
+    secretService = new SecretService(config);
+
+    AppGroup group = new AppGroup(AuthDomain.PROD, "oneops_my-app_prod");
+    uniqNames = new ArrayList<>(secrets);
+    for (int i = 0; i < secrets; i++) {
+      uniqNames.add(new AppSecret("db-password-" + i + ".txt", group).getUniqSecretName());
+    }
+    AppNameCodec.clear();
+  }
+
+  /** Parses every unique name, same as the listing normalization before interning. */
+  @Benchmark
+  public List<String> parse() {
+    return uniqNames
+        .stream()
+        .map(uniqName -> new AppSecret(uniqName).getSecretName())
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> normalize() {
+    return secretService.normalize(uniqNames);
+  }
+
+  @Benchmark
+  public void keywhizGroup(Blackhole bh) {
+    bh.consume(AppGroup.from(AuthDomain.PROD, "oneops_my-app_prod").getKeywhizGroup());
+  }
+
+  @Benchmark
+  public void keywhizGroupUncached(Blackhole bh) {
+    bh.consume(new AppGroup(AuthDomain.PROD, "oneops_my-app_prod").getKeywhizGroup());
+  }
+}
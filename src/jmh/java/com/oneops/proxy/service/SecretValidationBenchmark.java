@@ -0,0 +1,81 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the per request cost of the secret validation engine ({@link SecretValidator}) with the
+ * old regex and decode based validation. Run it with <b>-prof gc</b> to see the allocation rate.
+ *
+ * @author Suresh G
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecretValidationBenchmark {
+
+  /** Secret size in bytes. */
+  @Param({"1024", "350000"})
+  public int size;
+
+  private String content;
+
+  private Map<String, String> metadata;
+
+  @Setup
+  public void setup() {
+    byte[] secret = new byte[size];
+    new Random(42).nextBytes(secret);
+    content = Base64.getEncoder().encodeToString(secret);
+    metadata = new HashMap<>();
+    metadata.put("owner", "root");
+    metadata.put("mode", "0400");
+    metadata.put("_userId", "oneops");
+    metadata.put("_desc", "Uploaded by OneOps");
+  }
+
+  @Benchmark
+  public void legacy(Blackhole bh) {
+    bh.consume(Base64.getDecoder().decode(content).length);
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      String key = entry.getKey();
+      if (!key.matches("(owner|group|mode|filename)")) {
+        bh.consume(key.startsWith("_"));
+        bh.consume(key.matches("^[a-zA-Z_0-9\\-.:]+$"));
+      }
+      if (key.equals("mode")) {
+        bh.consume(entry.getValue().matches("0[0-7]+"));
+      }
+    }
+  }
+
+  @Benchmark
+  public void validator(Blackhole bh) {
+    bh.consume(SecretValidator.decodedLength(content, true));
+    List<String> errors = new ArrayList<>(2);
+    SecretValidator.validateMetadata(metadata, errors);
+    bh.consume(errors);
+  }
+}
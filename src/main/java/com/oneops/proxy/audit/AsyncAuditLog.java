@@ -0,0 +1,283 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.config.OneOpsConfig.Audit.Backpressure;
+import com.oneops.proxy.config.OneOpsConfig.Audit.Format;
+import com.oneops.proxy.config.OneOpsConfig.Audit.FsyncPolicy;
+import com.oneops.proxy.jfr.AuditWriteEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.*;
+import org.slf4j.*;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * An {@link AuditLog} which hands the events to a bounded ring buffer, drained by a single writer
+ * thread. The writer writes the events in batches to the {@link AuditSink} and syncs them as per
+ * the {@link FsyncPolicy}, so the request threads never wait for the disk.
+ *
+ * <p>Metrics: <b>meter.oneops.audit.(dropped|blocked|err)</b>, <b>gauge.oneops.audit.queued</b>,
+ * <b>histogram.oneops.audit.batchSize</b> and <b>timer.oneops.audit.(write|fsync)</b>.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnProperty(value = "oneops.audit.async-enabled", havingValue = "true")
+public class AsyncAuditLog implements AuditLog {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncAuditLog.class);
+
+  /**
+   * Max writer park time when there are no events. The next event wakes it up earlier, so this only
+   * bounds the delay of an interval fsync.
+   */
+  private static final long IDLE_PARK_NANOS = MILLISECONDS.toNanos(100);
+
+  /** Min time between the dropped event logs. */
+  private static final long DROP_LOG_INTERVAL_MS = 10_000;
+
+  /** Producer park time when the ring buffer is full. */
+  private static final long BLOCKED_PARK_NANOS = 50_000;
+
+  private final OneOpsConfig.Audit config;
+
+  private final DropwizardMetricServices metricService;
+
+  private final Timer writeTimer;
+
+  private final Timer fsyncTimer;
+
+  private final Histogram batchSize;
+
+  private final Meter errors;
+
+  private final Meter dropped;
+
+  private final Meter blocked;
+
+  private final AuditRingBuffer<Event> ring;
+
+  private final AuditIndex index;
+
+  private final AuditRollup rollup;
+
+  private final AtomicLong droppedSinceLog = new AtomicLong();
+
+  private final AtomicLong lastDropLog = new AtomicLong();
+
+  private AuditSink sink;
+
+  private Thread writer;
+
+  private volatile boolean running;
+
+  public AsyncAuditLog(
+      OneOpsConfig config,
+      DropwizardMetricServices metricService,
+      MetricsUtilService metricsUtil,
+      Optional<AuditIndex> index) {
+    this.config = config.getAudit();
+    this.metricService = metricService;
+    this.writeTimer = metricsUtil.timer("oneops.audit.write");
+    this.fsyncTimer = metricsUtil.timer("oneops.audit.fsync");
+    this.batchSize = metricsUtil.histogram("oneops.audit.batchSize");
+    this.errors = metricsUtil.meter("oneops.audit.err");
+    this.dropped = metricsUtil.meter("oneops.audit.dropped");
+    this.blocked = metricsUtil.meter("oneops.audit.blocked");
+    this.ring = new AuditRingBuffer<>(this.config.getRingSize());
+    this.index = index.orElse(null);
+    this.rollup = new AuditRollup(this.config, this::enqueue, metricsUtil);
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    long maxFileSize = config.getMaxFileSizeMb() * 1024L * 1024L;
+    if (config.getFormat() == Format.BINARY) {
+      Path dir = Paths.get(config.getSegmentDir());
+      sink = new SegmentAuditSink(dir, (int) maxFileSize, config.getMaxFiles());
+    } else {
+      sink = new TextAuditSink(Paths.get(config.getFile()), maxFileSize, config.getMaxFiles());
+    }
+    running = true;
+    writer = new Thread(this::writeLoop, "audit-writer");
+    writer.setDaemon(true);
+    writer.start();
+    rollup.start();
+    log.info("Started async audit log, ring size: " + ring.capacity() + ", " + config);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    rollup.stop();
+    running = false;
+    if (writer != null) {
+      LockSupport.unpark(writer);
+      writer.join(5_000);
+    }
+  }
+
+  @Override
+  public void log(Event e) {
+    long start = nanoTime();
+    try {
+      if (!rollup.offer(e)) {
+        enqueue(e);
+      }
+    } finally {
+      RequestTiming.record(Stage.AUDIT, start);
+    }
+  }
+
+  /** Hands over the event to the writer thread, as per the backpressure config. */
+  private void enqueue(Event e) {
+    if (offer(e)) {
+      return;
+    }
+    if (config.getBackpressure() == Backpressure.BLOCK && config.getBlockTimeoutMs() > 0) {
+      blocked.mark();
+      long deadline = nanoTime() + MILLISECONDS.toNanos(config.getBlockTimeoutMs());
+      while (nanoTime() < deadline) {
+        LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        if (offer(e)) {
+          return;
+        }
+      }
+    }
+    dropped.mark();
+    logDropped(e);
+  }
+
+  /**
+   * Logs the first dropped event, then the number of dropped events at most once in {@link
+   * #DROP_LOG_INTERVAL_MS}, so a full buffer doesn't flood the log from the request threads.
+   */
+  private void logDropped(Event e) {
+    droppedSinceLog.incrementAndGet();
+    long now = currentTimeMillis();
+    long last = lastDropLog.get();
+    if (now - last >= DROP_LOG_INTERVAL_MS && lastDropLog.compareAndSet(last, now)) {
+      long count = droppedSinceLog.getAndSet(0);
+      log.warn("Audit buffer is full, dropped " + count + " event(s), last: " + e);
+    }
+  }
+
+  /** Offers the event to the ring buffer, indexing it only if it's accepted. */
+  private boolean offer(Event e) {
+    if (!ring.offer(e)) {
+      return false;
+    }
+    if (index != null) {
+      index.add(e);
+    }
+    return true;
+  }
+
+  /** Writer thread loop. Drains the remaining events and closes the sink once stopped. */
+  private void writeLoop() {
+    List<Event> batch = new ArrayList<>(config.getBatchSize());
+    long lastSync = currentTimeMillis();
+    boolean dirty = false;
+    while (true) {
+      boolean stopping = !running;
+      batch.clear();
+      int count = ring.drain(batch, config.getBatchSize());
+      if (count > 0) {
+        dirty |= write(batch);
+      }
+
+      long now = currentTimeMillis();
+      boolean syncDue =
+          config.getFsync() == FsyncPolicy.BATCH
+              || (config.getFsync() == FsyncPolicy.INTERVAL
+                  && now - lastSync >= config.getFsyncIntervalMs());
+      if (dirty && (syncDue || stopping)) {
+        sync();
+        dirty = false;
+        lastSync = now;
+      }
+
+      if (count == 0) {
+        if (stopping) {
+          break;
+        }
+        ring.await(IDLE_PARK_NANOS);
+      }
+    }
+    try {
+      sink.close();
+    } catch (IOException ex) {
+      log.error("Error closing the audit log.", ex);
+    }
+    log.info("Stopped async audit log.");
+  }
+
+  /** Writes the batch, returns <code>true</code> if it's written. */
+  private boolean write(List<Event> batch) {
+    long start = nanoTime();
+    AuditWriteEvent event = ProxyEvents.auditWrite();
+    try {
+      sink.write(batch);
+      return true;
+    } catch (IOException | RuntimeException ex) {
+      errors.mark();
+      log.error("Error writing " + batch.size() + " audit events.", ex);
+      return false;
+    } finally {
+      MetricsUtilService.stop(writeTimer, start);
+      if (event != null) {
+        event.complete(batch.size(), true, false);
+      }
+      batchSize.update(batch.size());
+      metricService.submit("gauge.oneops.audit.queued", ring.size());
+    }
+  }
+
+  private void sync() {
+    long start = nanoTime();
+    AuditWriteEvent event = ProxyEvents.auditWrite();
+    try {
+      sink.sync();
+    } catch (IOException | RuntimeException ex) {
+      errors.mark();
+      log.error("Error syncing the audit log.", ex);
+    } finally {
+      MetricsUtilService.stop(fsyncTimer, start);
+      if (event != null) {
+        event.complete(0, true, true);
+      }
+    }
+  }
+}
@@ -0,0 +1,300 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.*;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.*;
+import javax.annotation.*;
+import org.slf4j.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * A local on-disk index of the audit events, to answer queries like <i>who read secret X of group
+ * Y last week</i> without grepping the audit logs. The {@link AuditLog} hands over the events,
+ * which are indexed in the background by a single indexer thread.
+ *
+ * <p>The index is partitioned by day (see {@link AuditPartition}), each with the events and the
+ * inverted postings of the user, group, object and event type. A query intersects the postings of
+ * the partitions in its time range, newest first, and reads only the matched events. The sealed
+ * partitions are loaded on demand and cached.
+ *
+ * <p>Enable it using <b>oneops.audit.index-enabled</b>. Metrics: <b>meter.oneops.audit.index.
+ * (dropped|err)</b> and <b>timer.oneops.audit.query</b>.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnProperty("oneops.audit.index-enabled")
+public class AuditIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditIndex.class);
+
+  /** Max indexer park time when there are no events, the next event wakes it up earlier. */
+  private static final long IDLE_PARK_NANOS = MILLISECONDS.toNanos(100);
+
+  private static final int BATCH_SIZE = 512;
+
+  private final OneOpsConfig.Audit config;
+
+  private final Timer queryTimer;
+
+  private final Meter dropped;
+
+  private final Meter errors;
+
+  private final Path dir;
+
+  private final AuditRingBuffer<Event> ring;
+
+  /** Sealed partitions, loaded on demand. */
+  private final Cache<LocalDate, AuditPartition> sealed;
+
+  /** Open partition of the current day. Written only by the indexer thread. */
+  private volatile AuditPartition current;
+
+  private Thread indexer;
+
+  private volatile boolean running;
+
+  public AuditIndex(OneOpsConfig config, MetricsUtilService metricsUtil) {
+    this.config = config.getAudit();
+    this.queryTimer = metricsUtil.timer("oneops.audit.query");
+    this.dropped = metricsUtil.meter("oneops.audit.index.dropped");
+    this.errors = metricsUtil.meter("oneops.audit.index.err");
+    this.dir = Paths.get(this.config.getIndexDir()).toAbsolutePath();
+    this.ring = new AuditRingBuffer<>(this.config.getIndexQueueSize());
+    this.sealed = Caffeine.newBuilder().maximumSize(this.config.getIndexCachePartitions()).build();
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    Files.createDirectories(dir);
+    current = AuditPartition.open(dir, today());
+    purge();
+    running = true;
+    indexer = new Thread(this::indexLoop, "audit-indexer");
+    indexer.setDaemon(true);
+    indexer.start();
+    log.info("Started audit index at " + dir + ", today's events: " + current.count());
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    if (indexer != null) {
+      LockSupport.unpark(indexer);
+      indexer.join(5_000);
+    }
+  }
+
+  /**
+   * Queues the event for indexing. Never blocks, the event is dropped if the queue is full.
+   *
+   * @param e audit event.
+   */
+  public void add(Event e) {
+    if (!ring.offer(e)) {
+      dropped.mark();
+    }
+  }
+
+  /**
+   * Runs the query, streaming the matched events to the consumer.
+   *
+   * @param query audit query.
+   * @param out event consumer.
+   * @return cursor for the next page, <code>null</code> if there are no more events.
+   * @throws IOException if the index can't be read.
+   */
+  public String query(AuditQuery query, Consumer<Event> out) throws IOException {
+    long start = nanoTime();
+    try {
+      List<String> terms = query.terms();
+      int remaining = Math.min(query.getLimit(), config.getQueryMaxLimit());
+      long[] last = new long[1];
+      for (LocalDate date : partitions(query.fromDate(), query.toDate())) {
+        AuditPartition partition = partition(date);
+        int count =
+            partition.search(
+                terms,
+                query.before(date),
+                query::matches,
+                remaining,
+                (e, offset) -> {
+                  out.accept(e);
+                  last[0] = offset;
+                });
+        remaining -= count;
+        if (remaining == 0) {
+          return AuditQuery.cursor(date, last[0]);
+        }
+      }
+      return null;
+    } finally {
+      MetricsUtilService.stop(queryTimer, start);
+    }
+  }
+
+  /** Index stats. */
+  public Map<String, Object> stats() throws IOException {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    List<LocalDate> dates = partitions(LocalDate.MIN, LocalDate.MAX);
+    stats.put("dir", dir.toString());
+    stats.put("partitions", dates.size());
+    stats.put("oldest", dates.isEmpty() ? null : dates.get(dates.size() - 1).toString());
+    stats.put("todayEvents", current.count());
+    stats.put("queued", ring.size());
+    stats.put("cachedPartitions", sealed.estimatedSize());
+    return stats;
+  }
+
+  /** Indexer thread loop. Indexes the remaining events and closes the partition once stopped. */
+  private void indexLoop() {
+    List<Event> batch = new ArrayList<>(BATCH_SIZE);
+    while (true) {
+      boolean stopping = !running;
+      batch.clear();
+      int count = ring.drain(batch, BATCH_SIZE);
+      if (count > 0) {
+        index(batch);
+      } else if (stopping) {
+        break;
+      } else {
+        ring.await(IDLE_PARK_NANOS);
+      }
+    }
+    try {
+      current.close();
+    } catch (IOException ex) {
+      log.error("Error closing the audit index.", ex);
+    }
+    log.info("Stopped audit index.");
+  }
+
+  /**
+   * Appends the batch to the current partition, rolling it over at midnight. The late events of
+   * the previous day go to the current partition.
+   */
+  private void index(List<Event> batch) {
+    try {
+      int from = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        LocalDate date = date(batch.get(i).getTimestamp());
+        if (date.isAfter(current.getDate())) {
+          if (i > from) {
+            current.append(batch.subList(from, i));
+          }
+          roll(date);
+          from = i;
+        }
+      }
+      current.append(batch.subList(from, batch.size()));
+    } catch (IOException | RuntimeException ex) {
+      errors.mark();
+      log.error("Error indexing " + batch.size() + " audit events.", ex);
+    }
+  }
+
+  /** Seals the current partition and opens a new one. */
+  private void roll(LocalDate date) throws IOException {
+    AuditPartition old = current;
+    old.seal();
+    sealed.put(old.getDate(), old);
+    current = AuditPartition.open(dir, date);
+    log.info("Rolled the audit index to " + date);
+    purge();
+  }
+
+  /** Deletes the partitions older than the retention days. */
+  private void purge() throws IOException {
+    LocalDate oldest = today().minusDays(config.getIndexRetentionDays());
+    for (LocalDate date : partitions(LocalDate.MIN, oldest.minusDays(1))) {
+      sealed.invalidate(date);
+      Path partition = dir.resolve(AuditPartition.DIR_FORMAT.format(date));
+      try (Stream<Path> files = Files.list(partition)) {
+        for (Path p : files.collect(Collectors.toList())) {
+          Files.deleteIfExists(p);
+        }
+      }
+      Files.deleteIfExists(partition);
+      log.info("Deleted the audit index partition " + partition);
+    }
+  }
+
+  /** Returns the partition, loading it if it's sealed. */
+  private AuditPartition partition(LocalDate date) throws IOException {
+    AuditPartition partition = current;
+    if (partition.getDate().equals(date)) {
+      return partition;
+    }
+    try {
+      return sealed.get(
+          date,
+          d -> {
+            try {
+              return AuditPartition.load(dir.resolve(AuditPartition.DIR_FORMAT.format(d)));
+            } catch (IOException ex) {
+              throw new UncheckedIOException(ex);
+            }
+          });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /** Existing partition dates in the range (inclusive), newest first. */
+  private List<LocalDate> partitions(LocalDate from, LocalDate to) throws IOException {
+    try (Stream<Path> dirs = Files.list(dir)) {
+      return dirs.map(p -> parseDate(p.getFileName().toString()))
+          .filter(d -> d != null && !d.isBefore(from) && !d.isAfter(to))
+          .sorted(Comparator.reverseOrder())
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static LocalDate parseDate(String name) {
+    try {
+      return LocalDate.parse(name, AuditPartition.DIR_FORMAT);
+    } catch (DateTimeParseException ex) {
+      return null;
+    }
+  }
+
+  private static LocalDate date(long millis) {
+    return Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC).toLocalDate();
+  }
+
+  private static LocalDate today() {
+    return LocalDate.now(ZoneOffset.UTC);
+  }
+}
@@ -18,7 +18,8 @@
 package com.oneops.proxy.audit;
 
 /**
- * Audit logger interface for recording events.
+ * Audit logger interface for recording events. Implementations roll up the high volume events as
+ * per the audit policy of their type, see {@link AuditRollup}.
  *
  * @author Suresh G
  */
@@ -17,21 +17,76 @@
  */
 package com.oneops.proxy.audit;
 
+import static java.lang.System.nanoTime;
+
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.jfr.AuditWriteEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import java.util.Optional;
+import javax.annotation.*;
 import org.slf4j.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
- * Audit logger for logging events.
+ * Audit logger for logging events, synchronously on the request thread. See {@link AsyncAuditLog}
+ * for the async version.
  *
  * @author Suresh
  */
 @Component
+@ConditionalOnProperty(
+  value = "oneops.audit.async-enabled",
+  havingValue = "false",
+  matchIfMissing = true
+)
 public class AuditLogger implements AuditLog {
 
   private final Logger log = LoggerFactory.getLogger(AuditLog.class);
 
+  private final AuditIndex index;
+
+  private final AuditRollup rollup;
+
+  public AuditLogger(
+      OneOpsConfig config, MetricsUtilService metricsUtil, Optional<AuditIndex> index) {
+    this.index = index.orElse(null);
+    this.rollup = new AuditRollup(config.getAudit(), this::write, metricsUtil);
+  }
+
+  @PostConstruct
+  public void start() {
+    rollup.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    rollup.stop();
+  }
+
   @Override
   public void log(Event e) {
+    long start = nanoTime();
+    try {
+      if (!rollup.offer(e)) {
+        write(e);
+      }
+    } finally {
+      RequestTiming.record(Stage.AUDIT, start);
+    }
+  }
+
+  private void write(Event e) {
+    AuditWriteEvent event = ProxyEvents.auditWrite();
     log.info(e.toString());
+    if (index != null) {
+      index.add(e);
+    }
+    if (event != null) {
+      event.complete(1, false, false);
+    }
   }
 }
@@ -0,0 +1,470 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static com.oneops.proxy.audit.AuditSegments.*;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.*;
+import java.util.zip.*;
+
+/**
+ * One day (UTC) of the {@link AuditIndex}, stored in a <b>yyyyMMdd</b> directory.
+ *
+ * <ul>
+ *   <li><b>events.seg</b> - The audit event records, in the {@link AuditSegments} format. The
+ *       record offset is the event id.
+ *   <li><b>postings.idx</b> - Inverted index of the partition, mapping each term (user, group,
+ *       object and event type) to the sorted offsets of its events. Written when the partition is
+ *       sealed at the end of the day.
+ * </ul>
+ *
+ * The postings of the open partition are kept in memory and rebuilt from the events on restart.
+ * Appends are done by the single indexer thread, while the queries run concurrently on a snapshot
+ * of the postings.
+ *
+ * @author Suresh G
+ */
+class AuditPartition {
+
+  static final DateTimeFormatter DIR_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+  static final String EVENTS_FILE = "events.seg";
+
+  static final String POSTINGS_FILE = "postings.idx";
+
+  /** Term matching all the events. */
+  static final String ALL = "*";
+
+  /** Postings file magic, <b>OAX1</b>. */
+  private static final int POSTINGS_MAGIC = 0x4F415831;
+
+  private final LocalDate date;
+
+  private final Path dir;
+
+  /** Postings of each term. Guarded by <b>this</b> while the partition is open. */
+  private final Map<String, Postings> postings;
+
+  /** Events file channel, <code>null</code> once the partition is sealed. */
+  private FileChannel channel;
+
+  /** Events file size. Only accessed by the indexer thread. */
+  private long size;
+
+  private ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+
+  private int[] positions = new int[512];
+
+  private AuditPartition(
+      LocalDate date, Path dir, Map<String, Postings> postings, FileChannel channel, long size) {
+    this.date = date;
+    this.dir = dir;
+    this.postings = postings;
+    this.channel = channel;
+    this.size = size;
+  }
+
+  /** Index term of the user. */
+  static String user(String user) {
+    return "u:" + user;
+  }
+
+  /** Index term of the application group. */
+  static String group(String appGroup) {
+    return "g:" + appGroup;
+  }
+
+  /** Index term of the object (secret) name. */
+  static String object(String objectName) {
+    return "o:" + objectName;
+  }
+
+  /** Index term of the event type. */
+  static String type(EventTag type) {
+    return "t:" + type.name();
+  }
+
+  /**
+   * Opens the partition for append. The postings are rebuilt from the existing events, if any.
+   *
+   * @param root index directory.
+   * @param date partition date.
+   * @return open partition.
+   * @throws IOException if the events file can't be opened.
+   */
+  static AuditPartition open(Path root, LocalDate date) throws IOException {
+    Path dir = root.resolve(DIR_FORMAT.format(date));
+    Files.createDirectories(dir);
+    FileChannel ch = FileChannel.open(dir.resolve(EVENTS_FILE), CREATE, READ, WRITE);
+    Map<String, Postings> postings = new HashMap<>();
+    long end;
+    if (ch.size() == 0) {
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+      header.flip();
+      ch.write(header);
+      end = SEGMENT_HEADER_SIZE;
+    } else {
+      end = scan(ch, dir, postings);
+      // Drops the torn record, if any.
+      ch.truncate(end);
+    }
+    ch.position(end);
+    return new AuditPartition(date, dir, postings, ch, end);
+  }
+
+  /**
+   * Loads a sealed partition. The postings file is rebuilt if it's missing or corrupt (Eg: the
+   * proxy was stopped before sealing it).
+   *
+   * @param dir partition directory.
+   * @return sealed partition.
+   * @throws IOException if the partition can't be read.
+   */
+  static AuditPartition load(Path dir) throws IOException {
+    LocalDate date = LocalDate.parse(dir.getFileName().toString(), DIR_FORMAT);
+    Path file = dir.resolve(POSTINGS_FILE);
+    Map<String, Postings> postings = readPostings(file);
+    if (postings == null) {
+      postings = new HashMap<>();
+      try (FileChannel ch = FileChannel.open(dir.resolve(EVENTS_FILE), READ)) {
+        scan(ch, dir, postings);
+      }
+      writePostings(file, postings);
+    }
+    return new AuditPartition(date, dir, postings, null, -1);
+  }
+
+  LocalDate getDate() {
+    return date;
+  }
+
+  /** Number of events in the partition. */
+  int count() {
+    return postings(ALL).size;
+  }
+
+  /**
+   * Appends the events and adds them to the postings. Must be called only from the indexer thread.
+   *
+   * @param events audit events.
+   * @throws IOException if the write fails.
+   */
+  void append(List<Event> events) throws IOException {
+    if (positions.length < events.size()) {
+      positions = new int[events.size()];
+    }
+    buf.clear();
+    for (int i = 0; i < events.size(); i++) {
+      positions[i] = buf.position();
+      buf = appendRecord(events.get(i), buf);
+    }
+    buf.flip();
+    int len = buf.remaining();
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+
+    // The postings are updated after the write, so that the queries see only the written events.
+    synchronized (this) {
+      for (int i = 0; i < events.size(); i++) {
+        add(postings, events.get(i), size + positions[i]);
+      }
+    }
+    size += len;
+  }
+
+  /**
+   * Writes the postings file and closes the events file. The partition is read only after this.
+   *
+   * @throws IOException if the postings can't be written.
+   */
+  synchronized void seal() throws IOException {
+    close();
+    writePostings(dir.resolve(POSTINGS_FILE), postings);
+  }
+
+  /**
+   * Syncs and closes the events file, without sealing the partition.
+   *
+   * @throws IOException if the sync fails.
+   */
+  synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.force(false);
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /** Returns a snapshot of the term postings. */
+  synchronized Postings postings(String term) {
+    Postings p = postings.get(term);
+    return p == null ? Postings.EMPTY : p.snapshot();
+  }
+
+  /**
+   * Finds the events matching all the terms, newest first.
+   *
+   * @param terms index terms. Matches all the events if it's empty.
+   * @param before only the events before this offset are searched.
+   * @param filter event filter, applied after the terms.
+   * @param limit max number of events.
+   * @param out consumer of the matched events and their offsets.
+   * @return number of events matched.
+   * @throws IOException if the events can't be read.
+   */
+  int search(
+      Collection<String> terms,
+      long before,
+      Predicate<Event> filter,
+      int limit,
+      ObjLongConsumer<Event> out)
+      throws IOException {
+    List<Postings> lists = new ArrayList<>();
+    if (terms.isEmpty()) {
+      lists.add(postings(ALL));
+    }
+    for (String term : terms) {
+      lists.add(postings(term));
+    }
+    // Iterates the shortest list and checks the others.
+    lists.sort(Comparator.comparingInt(p -> p.size));
+    Postings first = lists.get(0);
+    if (first.size == 0 || limit <= 0) {
+      return 0;
+    }
+
+    int count = 0;
+    try (FileChannel ch = FileChannel.open(dir.resolve(EVENTS_FILE), READ)) {
+      for (int i = first.floor(before); i >= 0 && count < limit; i--) {
+        long offset = first.values[i];
+        if (!containsAll(lists, offset)) {
+          continue;
+        }
+        Event e = read(ch, offset);
+        if (e != null && filter.test(e)) {
+          out.accept(e, offset);
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static boolean containsAll(List<Postings> lists, long offset) {
+    for (int i = 1; i < lists.size(); i++) {
+      if (!lists.get(i).contains(offset)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Adds the event terms to the postings. */
+  private static void add(Map<String, Postings> postings, Event e, long offset) {
+    postings.computeIfAbsent(ALL, k -> new Postings()).add(offset);
+    postings.computeIfAbsent(type(e.getType()), k -> new Postings()).add(offset);
+    if (e.getUser() != null) {
+      postings.computeIfAbsent(user(e.getUser()), k -> new Postings()).add(offset);
+    }
+    if (e.getAppGroup() != null) {
+      postings.computeIfAbsent(group(e.getAppGroup()), k -> new Postings()).add(offset);
+    }
+    if (e.getObjectName() != null && !e.getObjectName().isEmpty()) {
+      postings.computeIfAbsent(object(e.getObjectName()), k -> new Postings()).add(offset);
+    }
+  }
+
+  /** Indexes all the valid events and returns the end offset of the valid records. */
+  private static long scan(FileChannel ch, Path dir, Map<String, Postings> postings)
+      throws IOException {
+    MappedByteBuffer mbuf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+    checkHeader(mbuf, dir.resolve(EVENTS_FILE));
+    while (AuditSegments.scan(mbuf, e -> add(postings, e, mbuf.position()))) {
+      // Indexed in the consumer.
+    }
+    return mbuf.position();
+  }
+
+  /** Reads the event record at the offset, returns <code>null</code> if it's not valid. */
+  private static Event read(FileChannel ch, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    if (!readFully(ch, header, offset)) {
+      return null;
+    }
+    int len = header.getInt(0);
+    if (len <= 0 || len > ch.size() - offset) {
+      return null;
+    }
+    ByteBuffer payload = ByteBuffer.allocate(len);
+    if (!readFully(ch, payload, offset + RECORD_HEADER_SIZE)
+        || crc32(payload) != header.getInt(4)) {
+      return null;
+    }
+    try {
+      return decode(payload);
+    } catch (RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /** Reads the buffer fully from the position and flips it. */
+  private static boolean readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+    while (buf.hasRemaining()) {
+      if (ch.read(buf, pos + buf.position()) < 0) {
+        return false;
+      }
+    }
+    buf.flip();
+    return true;
+  }
+
+  /**
+   * Postings file: magic, term count, the terms with their delta encoded offsets and a trailing
+   * CRC32. Written to a temp file and moved, so it's either complete or missing.
+   */
+  private static void writePostings(Path file, Map<String, Postings> postings)
+      throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    CRC32 crc = new CRC32();
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024), crc))) {
+      out.writeInt(POSTINGS_MAGIC);
+      out.writeInt(postings.size());
+      for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+        Postings p = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeInt(p.size);
+        long prev = 0;
+        for (int i = 0; i < p.size; i++) {
+          writeVarLong(out, p.values[i] - prev);
+          prev = p.values[i];
+        }
+      }
+      out.flush();
+      // Not part of the checksum.
+      out.writeInt((int) crc.getValue());
+    }
+    try (FileChannel ch = FileChannel.open(tmp, WRITE)) {
+      ch.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Reads the postings file, returns <code>null</code> if it's missing or corrupt. */
+  private static Map<String, Postings> readPostings(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    if (bytes.length < 12) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length - 4);
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    if (buf.getInt(0) != POSTINGS_MAGIC || buf.getInt(bytes.length - 4) != (int) crc.getValue()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes, 4, bytes.length - 8))) {
+      int terms = in.readInt();
+      Map<String, Postings> postings = new HashMap<>(terms * 2);
+      for (int t = 0; t < terms; t++) {
+        String term = in.readUTF();
+        long[] values = new long[in.readInt()];
+        long prev = 0;
+        for (int i = 0; i < values.length; i++) {
+          prev += readVarLong(in);
+          values[i] = prev;
+        }
+        postings.put(term, new Postings(values, values.length));
+      }
+      return postings;
+    }
+  }
+
+  private static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  /** Sorted event offsets of a term. Only appended, so a snapshot is just the current size. */
+  static final class Postings {
+
+    static final Postings EMPTY = new Postings(new long[0], 0);
+
+    long[] values;
+
+    int size;
+
+    Postings() {
+      this(new long[8], 0);
+    }
+
+    Postings(long[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    Postings snapshot() {
+      return new Postings(values, size);
+    }
+
+    boolean contains(long value) {
+      return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /** Index of the largest value less than the given value, or <b>-1</b>. */
+    int floor(long before) {
+      int idx = Arrays.binarySearch(values, 0, size, before);
+      return idx >= 0 ? idx - 1 : -idx - 2;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static com.oneops.proxy.audit.AuditPartition.DIR_FORMAT;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Audit index query. All the given filters should match. The results are returned newest first, a
+ * page at a time, along with the cursor of the next page.
+ *
+ * @author Suresh G
+ */
+public class AuditQuery {
+
+  private final String user;
+
+  private final String appGroup;
+
+  private final String objectName;
+
+  private final EventTag type;
+
+  /** Start time (inclusive) in epoch millis. */
+  private final long from;
+
+  /** End time (exclusive) in epoch millis. */
+  private final long to;
+
+  private final int limit;
+
+  /** Partition and offset of the last event of the previous page. */
+  private final LocalDate cursorDate;
+
+  private final long cursorOffset;
+
+  /**
+   * Creates the query.
+   *
+   * @param user user filter, can be <code>null</code>.
+   * @param appGroup application group filter, can be <code>null</code>.
+   * @param objectName object (secret) name filter, can be <code>null</code>.
+   * @param type event type filter, can be <code>null</code>.
+   * @param from start time (inclusive) in epoch millis.
+   * @param to end time (exclusive) in epoch millis.
+   * @param limit page size.
+   * @param cursor cursor returned with the previous page, <code>null</code> for the first page.
+   * @throws IllegalArgumentException if the time range, limit or cursor is not valid.
+   */
+  public AuditQuery(
+      String user,
+      String appGroup,
+      String objectName,
+      EventTag type,
+      long from,
+      long to,
+      int limit,
+      String cursor) {
+    if (from >= to) {
+      throw new IllegalArgumentException("Invalid time range, from: " + from + ", to: " + to);
+    }
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid limit: " + limit);
+    }
+    this.user = user;
+    this.appGroup = appGroup;
+    this.objectName = objectName;
+    this.type = type;
+    this.from = from;
+    this.to = to;
+    this.limit = limit;
+    if (cursor == null || cursor.isEmpty()) {
+      cursorDate = null;
+      cursorOffset = Long.MAX_VALUE;
+    } else {
+      int idx = cursor.indexOf(':');
+      try {
+        cursorDate = LocalDate.parse(cursor.substring(0, Math.max(idx, 0)), DIR_FORMAT);
+        cursorOffset = Long.parseLong(cursor.substring(idx + 1));
+      } catch (RuntimeException ex) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+    }
+  }
+
+  /** Cursor for the page after the given event. */
+  static String cursor(LocalDate date, long offset) {
+    return DIR_FORMAT.format(date) + ':' + offset;
+  }
+
+  /** Index terms of the query. */
+  List<String> terms() {
+    List<String> terms = new ArrayList<>(4);
+    if (user != null) {
+      terms.add(AuditPartition.user(user));
+    }
+    if (appGroup != null) {
+      terms.add(AuditPartition.group(appGroup));
+    }
+    if (objectName != null) {
+      terms.add(AuditPartition.object(objectName));
+    }
+    if (type != null) {
+      terms.add(AuditPartition.type(type));
+    }
+    return terms;
+  }
+
+  /** Checks the event time. The other filters are matched by the index terms. */
+  boolean matches(Event e) {
+    return e.getTimestamp() >= from && e.getTimestamp() < to;
+  }
+
+  /** First (UTC) partition date of the query. */
+  LocalDate fromDate() {
+    return Instant.ofEpochMilli(from).atOffset(ZoneOffset.UTC).toLocalDate();
+  }
+
+  /**
+   * Last (UTC) partition date of the query, taking the cursor into account. An event is indexed in
+   * the partition of the day it's received, which can be after the event day at midnight, so one
+   * more day is searched.
+   */
+  LocalDate toDate() {
+    LocalDate date = Instant.ofEpochMilli(to - 1).atOffset(ZoneOffset.UTC).toLocalDate();
+    date = date.plusDays(1);
+    return cursorDate != null && cursorDate.isBefore(date) ? cursorDate : date;
+  }
+
+  /** Offset to search before in the given partition. */
+  long before(LocalDate date) {
+    return date.equals(cursorDate) ? cursorOffset : Long.MAX_VALUE;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public String getAppGroup() {
+    return appGroup;
+  }
+
+  public String getObjectName() {
+    return objectName;
+  }
+
+  public EventTag getType() {
+    return type;
+  }
+
+  public long getFrom() {
+    return from;
+  }
+
+  public long getTo() {
+    return to;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public String getCursor() {
+    return cursorDate == null ? null : cursor(cursorDate, cursorOffset);
+  }
+
+  @Override
+  public String toString() {
+    return "AuditQuery{"
+        + "user='"
+        + user
+        + '\''
+        + ", appGroup='"
+        + appGroup
+        + '\''
+        + ", objectName='"
+        + objectName
+        + '\''
+        + ", type="
+        + type
+        + ", from="
+        + from
+        + ", to="
+        + to
+        + ", limit="
+        + limit
+        + ", cursor="
+        + getCursor()
+        + '}';
+  }
+}
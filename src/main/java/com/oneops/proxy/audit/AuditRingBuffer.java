@@ -0,0 +1,147 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer ring buffer. Each slot has a sequence number
+ * telling whether it's free for the producer of a given position or ready for the consumer, so the
+ * producers only contend on the tail counter. An idle consumer parks in {@link #await(long)} and is
+ * woken up by the next offer.
+ *
+ * @param <E> element type.
+ * @author Suresh G
+ */
+class AuditRingBuffer<E> {
+
+  private final Object[] buffer;
+
+  private final AtomicLongArray sequences;
+
+  private final int mask;
+
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Written only by the consumer thread. */
+  private volatile long head;
+
+  /** Consumer thread parked in {@link #await(long)}, if any. */
+  private volatile Thread waiter;
+
+  /**
+   * Creates the ring buffer.
+   *
+   * @param size buffer size, rounded up to the next power of two.
+   */
+  AuditRingBuffer(int size) {
+    int capacity = size <= 2 ? 2 : Integer.highestOneBit(size - 1) << 1;
+    buffer = new Object[capacity];
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    mask = capacity - 1;
+  }
+
+  /**
+   * Adds the element, if there is free space. Safe to call from multiple threads.
+   *
+   * @param e element.
+   * @return <code>false</code> if the buffer is full.
+   */
+  boolean offer(E e) {
+    long pos = tail.get();
+    while (true) {
+      int idx = (int) (pos & mask);
+      long diff = sequences.get(idx) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          buffer[idx] = e;
+          // Publishes the element to the consumer.
+          sequences.lazySet(idx, pos + 1);
+          Thread w = waiter;
+          if (w != null) {
+            LockSupport.unpark(w);
+          }
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Moves up to <b>max</b> elements to the given list. Must be called only from the consumer
+   * thread.
+   *
+   * @param out list to add the elements.
+   * @param max max number of elements to drain.
+   * @return number of elements drained.
+   */
+  @SuppressWarnings("unchecked")
+  int drain(List<E> out, int max) {
+    long pos = head;
+    int count = 0;
+    while (count < max) {
+      int idx = (int) (pos & mask);
+      if (sequences.get(idx) != pos + 1) {
+        break;
+      }
+      out.add((E) buffer[idx]);
+      buffer[idx] = null;
+      // Frees the slot for the producer of the next round.
+      sequences.lazySet(idx, pos + buffer.length);
+      pos++;
+      count++;
+    }
+    head = pos;
+    return count;
+  }
+
+  /**
+   * Parks the consumer thread until an element is offered, the thread is unparked or the timeout
+   * elapses. Must be called only from the consumer thread.
+   *
+   * @param timeoutNanos max time to wait.
+   */
+  void await(long timeoutNanos) {
+    waiter = Thread.currentThread();
+    // Re-checks after publishing the waiter, so an offer in between is not missed.
+    if (size() == 0) {
+      LockSupport.parkNanos(this, timeoutNanos);
+    }
+    waiter = null;
+  }
+
+  /** Approximate number of elements in the buffer. */
+  int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  /** Buffer capacity. */
+  int capacity() {
+    return buffer.length;
+  }
+}
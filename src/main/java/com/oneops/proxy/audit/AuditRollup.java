@@ -0,0 +1,259 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import com.codahale.metrics.Meter;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.config.OneOpsConfig.Audit.Policy;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import org.slf4j.*;
+
+/**
+ * Rolls up the high volume events (Eg: {@link EventTag#SECRET_READCONTENT} during the deployments)
+ * as per the {@link Policy} of their type. The events are counted in memory per (type, user,
+ * group, object, minute) and written as a single rollup event once the minute is over. The rollup
+ * event has the time of the first event and the <b>count</b>, <b>first</b> and <b>last</b> times
+ * in its extra info, so that every read is still accounted for.
+ *
+ * <p>Metrics: <b>meter.oneops.audit.rollup.(events|records|overflow)</b>.
+ *
+ * @author Suresh G
+ */
+class AuditRollup {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditRollup.class);
+
+  private static final long MINUTE_MILLIS = MINUTES.toMillis(1);
+
+  private final OneOpsConfig.Audit config;
+
+  private final Consumer<Event> out;
+
+  private final Meter events;
+
+  private final Meter records;
+
+  private final Meter overflow;
+
+  private final boolean enabled;
+
+  private final ConcurrentMap<Key, Counter> counters = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService flusher;
+
+  private ScheduledFuture<?> flushTask;
+
+  /**
+   * Creates the rollup.
+   *
+   * @param config audit config.
+   * @param out audit writer for the rollup events.
+   * @param metricsUtil metrics util service.
+   * @throws IllegalArgumentException if a write event type is configured for rollup.
+   */
+  AuditRollup(OneOpsConfig.Audit config, Consumer<Event> out, MetricsUtilService metricsUtil) {
+    this.config = config;
+    this.out = out;
+    this.events = metricsUtil.meter("oneops.audit.rollup.events");
+    this.records = metricsUtil.meter("oneops.audit.rollup.records");
+    this.overflow = metricsUtil.meter("oneops.audit.rollup.overflow");
+    boolean rollup = false;
+    for (EventTag type : EventTag.values()) {
+      if (config.getPolicy(type) == Policy.ROLLUP) {
+        if (type.isWrite()) {
+          throw new IllegalArgumentException("Write events can't be rolled up: " + type);
+        }
+        rollup = true;
+      }
+    }
+    this.enabled = rollup;
+  }
+
+  /** Starts the background flusher, if any event type is rolled up. */
+  void start() {
+    if (!enabled) {
+      return;
+    }
+    flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "audit-rollup");
+              t.setDaemon(true);
+              return t;
+            });
+    flushTask = flusher.scheduleWithFixedDelay(() -> flush(false), 1, 1, SECONDS);
+    log.info("Started audit rollup for " + config.getPolicy());
+  }
+
+  /** Stops the flusher and writes all the pending rollups. */
+  void stop() throws InterruptedException {
+    if (flusher != null) {
+      // Lets a running flush finish, the pending rollups are flushed below.
+      flushTask.cancel(false);
+      flusher.shutdown();
+      flusher.awaitTermination(5, SECONDS);
+      flush(true);
+    }
+  }
+
+  /**
+   * Counts the event if it's rolled up.
+   *
+   * @param e audit event.
+   * @return <code>true</code> if the event is rolled up, else it should be written in full.
+   */
+  boolean offer(Event e) {
+    if (!enabled || config.getPolicy(e.getType()) != Policy.ROLLUP) {
+      return false;
+    }
+    Key key = new Key(e);
+    while (true) {
+      Counter counter = counters.get(key);
+      if (counter == null) {
+        if (counters.size() >= config.getRollupMaxKeys()) {
+          overflow.mark();
+          return false;
+        }
+        counter = counters.computeIfAbsent(key, k -> new Counter());
+      }
+      // Retries with a new counter if this one is just flushed.
+      if (counter.add(e.getTimestamp())) {
+        events.mark();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Writes the rollup events of the minutes which are over, plus the grace period.
+   *
+   * @param all writes all the rollups, irrespective of the time.
+   */
+  void flush(boolean all) {
+    long now = System.currentTimeMillis();
+    long graceMillis = SECONDS.toMillis(config.getRollupGraceSec());
+    try {
+      for (Iterator<Map.Entry<Key, Counter>> it = counters.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<Key, Counter> entry = it.next();
+        Key key = entry.getKey();
+        if (!all && (key.minute + 1) * MINUTE_MILLIS + graceMillis > now) {
+          continue;
+        }
+        it.remove();
+        Event e = entry.getValue().close(key);
+        if (e != null) {
+          out.accept(e);
+          records.mark();
+        }
+      }
+    } catch (RuntimeException ex) {
+      log.error("Error writing the audit rollups.", ex);
+    }
+  }
+
+  /** Number of pending rollup counters. */
+  int size() {
+    return counters.size();
+  }
+
+  /** Rollup key, the event minute and all the event fields except the extra info. */
+  private static final class Key {
+
+    final EventTag type;
+
+    final String user;
+
+    final String appGroup;
+
+    final String objectName;
+
+    final long minute;
+
+    Key(Event e) {
+      this.type = e.getType();
+      this.user = e.getUser();
+      this.appGroup = e.getAppGroup();
+      this.objectName = e.getObjectName();
+      this.minute = e.getTimestamp() / MINUTE_MILLIS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return minute == key.minute
+          && type == key.type
+          && Objects.equals(user, key.user)
+          && Objects.equals(appGroup, key.appGroup)
+          && Objects.equals(objectName, key.objectName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, user, appGroup, objectName, minute);
+    }
+  }
+
+  /** Event count and time range of a rollup key. */
+  private static final class Counter {
+
+    private long count;
+
+    private long first = Long.MAX_VALUE;
+
+    private long last = Long.MIN_VALUE;
+
+    private boolean closed;
+
+    /** Adds the event, returns <code>false</code> if the counter is already closed. */
+    synchronized boolean add(long timestamp) {
+      if (closed) {
+        return false;
+      }
+      count++;
+      first = Math.min(first, timestamp);
+      last = Math.max(last, timestamp);
+      return true;
+    }
+
+    /** Closes the counter and returns its rollup event, <code>null</code> if it's empty. */
+    synchronized Event close(Key key) {
+      closed = true;
+      if (count == 0) {
+        return null;
+      }
+      Map<String, String> extraInfo = new LinkedHashMap<>();
+      extraInfo.put("rollup", "true");
+      extraInfo.put("count", String.valueOf(count));
+      extraInfo.put("first", Instant.ofEpochMilli(first).toString());
+      extraInfo.put("last", Instant.ofEpochMilli(last).toString());
+      return new Event(key.type, key.user, key.appGroup, key.objectName, extraInfo, first);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Converts the binary audit segments to the text audit log format (<b>timestamp - event</b>).
+ *
+ * <pre>
+ * $ java -cp keywhiz-proxy.jar \
+ *        -Dloader.main=com.oneops.proxy.audit.AuditSegmentTool \
+ *        org.springframework.boot.loader.PropertiesLauncher log/audit/segments > audit.log
+ * </pre>
+ *
+ * @author Suresh G
+ */
+public class AuditSegmentTool {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: AuditSegmentTool <segment file or dir>...");
+      System.exit(1);
+    }
+
+    List<Path> segments = new ArrayList<>();
+    for (String arg : args) {
+      Path path = Paths.get(arg);
+      if (Files.isDirectory(path)) {
+        segments.addAll(AuditSegments.list(path));
+      } else {
+        segments.add(path);
+      }
+    }
+
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8), 64 * 1024);
+    StringBuilder buf = new StringBuilder(256);
+    for (Path segment : segments) {
+      AuditSegments.read(
+          segment,
+          e -> {
+            buf.setLength(0);
+            try {
+              out.append(TextAuditSink.appendLine(e, buf));
+            } catch (IOException ex) {
+              throw new UncheckedIOException(ex);
+            }
+          });
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,267 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary audit segment format, shared by the {@link SegmentAuditSink} and the {@link
+ * AuditSegmentTool}.
+ *
+ * <pre>
+ * segment := magic(int) version(int) record* [zero padding]
+ * record  := length(int) crc32(int) payload(length bytes)
+ * payload := timestamp(long) type(str) user(str) group(str) object(str)
+ *            extraInfoCount(int) [key(str) value(str)]*
+ * str     := length(int, -1 for null) utf8 bytes
+ * </pre>
+ *
+ * Segments are pre-allocated and zero filled, so a zero record length marks the end of the
+ * segment. Reading stops at the first record with a bad length or CRC, which is what a torn write
+ * looks like after a crash.
+ *
+ * @author Suresh G
+ */
+public final class AuditSegments {
+
+  /** Segment magic, <b>OAS1</b>. */
+  static final int MAGIC = 0x4F415331;
+
+  static final int VERSION = 1;
+
+  static final int SEGMENT_HEADER_SIZE = 8;
+
+  static final int RECORD_HEADER_SIZE = 8;
+
+  static final String PREFIX = "audit-";
+
+  static final String SUFFIX = ".seg";
+
+  private AuditSegments() {}
+
+  /** Returns the segment file path for the given sequence number. */
+  static Path segment(Path dir, long seq) {
+    String num = Long.toString(seq);
+    StringBuilder buf = new StringBuilder(PREFIX);
+    for (int i = num.length(); i < 16; i++) {
+      buf.append('0');
+    }
+    return dir.resolve(buf.append(num).append(SUFFIX).toString());
+  }
+
+  /** Returns the segment sequence number or <code>-1</code> if it's not a segment file. */
+  static long sequence(Path segment) {
+    String name = segment.getFileName().toString();
+    if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Lists the segment files in the directory, oldest first.
+   *
+   * @param dir segment directory.
+   * @return segment files.
+   * @throws IOException if the directory can't be read.
+   */
+  public static List<Path> list(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      return files
+          .filter(p -> sequence(p) >= 0)
+          .sorted(Comparator.comparingLong(AuditSegments::sequence))
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Reads all the valid events of a segment file.
+   *
+   * @param segment segment file.
+   * @param consumer event consumer.
+   * @return number of events read.
+   * @throws IOException if the file can't be read or is not an audit segment.
+   */
+  public static long read(Path segment, Consumer<Event> consumer) throws IOException {
+    try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+      ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+      checkHeader(buf, segment);
+      long count = 0;
+      while (scan(buf, consumer)) {
+        count++;
+      }
+      return count;
+    }
+  }
+
+  /** Checks the segment header and positions the buffer after it. */
+  static void checkHeader(ByteBuffer buf, Path segment) throws IOException {
+    if (buf.remaining() < SEGMENT_HEADER_SIZE
+        || buf.getInt(0) != MAGIC
+        || buf.getInt(4) != VERSION) {
+      throw new IOException("Not an audit segment: " + segment);
+    }
+    buf.position(SEGMENT_HEADER_SIZE);
+  }
+
+  /**
+   * Reads the next record from the segment buffer. On success, the buffer is positioned after the
+   * record, else it's left at the end of the valid records.
+   *
+   * @param buf segment buffer.
+   * @param consumer event consumer, can be <code>null</code> to skip the decoding.
+   * @return <code>true</code> if a valid record is read.
+   */
+  static boolean scan(ByteBuffer buf, Consumer<Event> consumer) {
+    int start = buf.position();
+    if (buf.remaining() < RECORD_HEADER_SIZE) {
+      return false;
+    }
+    int len = buf.getInt(start);
+    int crc = buf.getInt(start + 4);
+    if (len <= 0 || len > buf.remaining() - RECORD_HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer payload = buf.duplicate();
+    payload.position(start + RECORD_HEADER_SIZE).limit(start + RECORD_HEADER_SIZE + len);
+    if (crc32(payload.slice()) != crc) {
+      return false;
+    }
+    if (consumer != null) {
+      Event e;
+      try {
+        e = decode(payload.slice());
+      } catch (RuntimeException ex) {
+        return false;
+      }
+      consumer.accept(e);
+    }
+    buf.position(start + RECORD_HEADER_SIZE + len);
+    return true;
+  }
+
+  /**
+   * Encodes the event payload to the buffer.
+   *
+   * @throws BufferOverflowException if the buffer is too small.
+   */
+  static void encode(Event e, ByteBuffer buf) {
+    buf.putLong(e.getTimestamp());
+    putString(buf, e.getType().name());
+    putString(buf, e.getUser());
+    putString(buf, e.getAppGroup());
+    putString(buf, e.getObjectName());
+    Map<String, String> extraInfo = e.getExtraInfo();
+    if (extraInfo == null) {
+      buf.putInt(-1);
+    } else {
+      buf.putInt(extraInfo.size());
+      for (Map.Entry<String, String> entry : extraInfo.entrySet()) {
+        putString(buf, entry.getKey());
+        putString(buf, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Appends the event record (length, CRC and payload) to the buffer, growing it as needed.
+   *
+   * @param e audit event.
+   * @param buf buffer in write mode.
+   * @return the buffer, a new one if it's grown.
+   */
+  static ByteBuffer appendRecord(Event e, ByteBuffer buf) {
+    while (true) {
+      int start = buf.position();
+      try {
+        buf.position(start + RECORD_HEADER_SIZE);
+        encode(e, buf);
+        ByteBuffer payload = buf.duplicate();
+        payload.limit(buf.position()).position(start + RECORD_HEADER_SIZE);
+        buf.putInt(start, payload.remaining()).putInt(start + 4, crc32(payload));
+        return buf;
+      } catch (BufferOverflowException | IllegalArgumentException ex) {
+        ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+        buf.position(start);
+        buf.flip();
+        buf = bigger.put(buf);
+      }
+    }
+  }
+
+  /** Decodes the event payload. */
+  static Event decode(ByteBuffer buf) {
+    long timestamp = buf.getLong();
+    EventTag type = EventTag.valueOf(getString(buf));
+    String user = getString(buf);
+    String appGroup = getString(buf);
+    String objectName = getString(buf);
+    int size = buf.getInt();
+    Map<String, String> extraInfo = null;
+    if (size >= 0) {
+      extraInfo = new LinkedHashMap<>();
+      for (int i = 0; i < size; i++) {
+        extraInfo.put(getString(buf), getString(buf));
+      }
+    }
+    return new Event(type, user, appGroup, objectName, extraInfo, timestamp);
+  }
+
+  /** CRC32 of the remaining bytes, without changing the buffer position. */
+  static int crc32(ByteBuffer buf) {
+    CRC32 crc = new CRC32();
+    crc.update(buf.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private static void putString(ByteBuffer buf, String str) {
+    if (str == null) {
+      buf.putInt(-1);
+    } else {
+      byte[] bytes = str.getBytes(UTF_8);
+      buf.putInt(bytes.length);
+      buf.put(bytes);
+    }
+  }
+
+  private static String getString(ByteBuffer buf) {
+    int len = buf.getInt();
+    if (len < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[len];
+    buf.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
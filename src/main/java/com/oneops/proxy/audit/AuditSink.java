@@ -0,0 +1,45 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Storage for the audit events, written by the single async audit writer thread. Implementations
+ * need not be thread safe.
+ *
+ * @author Suresh G
+ */
+public interface AuditSink extends Closeable {
+
+  /**
+   * Writes a batch of events. The events may be buffered till the next {@link #sync()}.
+   *
+   * @param events audit events.
+   * @throws IOException if the write fails.
+   */
+  void write(List<Event> events) throws IOException;
+
+  /**
+   * Makes the written events durable (fsync).
+   *
+   * @throws IOException if the sync fails.
+   */
+  void sync() throws IOException;
+}
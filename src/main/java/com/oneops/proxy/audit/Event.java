@@ -41,17 +41,32 @@ public class Event {
   /** Any extra information */
   private final Map<String, String> extraInfo;
 
+  /** Event time in epoch millis. */
+  private final long timestamp;
+
   public Event(
       EventTag type,
       String user,
       String appGroup,
       String objectName,
       Map<String, String> extraInfo) {
+    this(type, user, appGroup, objectName, extraInfo, System.currentTimeMillis());
+  }
+
+  /** Creates an event with the given time. Used when reading back the stored events. */
+  Event(
+      EventTag type,
+      String user,
+      String appGroup,
+      String objectName,
+      Map<String, String> extraInfo,
+      long timestamp) {
     this.type = type;
     this.user = user;
     this.appGroup = appGroup;
     this.objectName = objectName;
     this.extraInfo = extraInfo;
+    this.timestamp = timestamp;
   }
 
   public Event(EventTag type, String user, String appGroup) {
@@ -82,11 +97,40 @@ public class Event {
     return extraInfo;
   }
 
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Appends the event text to the buffer. Same as {@link #toString()}, without the intermediate
+   * strings.
+   *
+   * @param buf string buffer.
+   * @return the buffer.
+   */
+  public StringBuilder appendTo(StringBuilder buf) {
+    pad(buf, type, 25).append(" | User: ");
+    pad(buf, user, 15).append(" | Group: ");
+    pad(buf, appGroup, 45).append(" | Object: ");
+    pad(buf, objectName, 30).append(" | ExtraInfo: ");
+    if (extraInfo != null) {
+      buf.append(extraInfo);
+    }
+    return buf.append(' ');
+  }
+
+  /** Left justified padding, same as <b>%-Ns</b> format. */
+  private static StringBuilder pad(StringBuilder buf, Object value, int width) {
+    int start = buf.length();
+    buf.append(value);
+    for (int i = buf.length() - start; i < width; i++) {
+      buf.append(' ');
+    }
+    return buf;
+  }
+
   @Override
   public String toString() {
-    String extInfo = extraInfo == null ? "" : extraInfo.toString();
-    return String.format(
-        "%-25s | User: %-15s | Group: %-45s | Object: %-30s | ExtraInfo: %s ",
-        type, user, appGroup, objectName, extInfo);
+    return appendTo(new StringBuilder(160)).toString();
   }
 }
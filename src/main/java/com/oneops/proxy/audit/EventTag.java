@@ -6,23 +6,39 @@ package com.oneops.proxy.audit;
  * @author Suresh G
  */
 public enum EventTag {
-  SECRET_CREATE,
-  SECRET_CREATEORUPDATE,
-  SECRET_UPDATE,
-  SECRET_CHANGEVERSION,
-  SECRET_DELETE,
-  SECRET_BACKFILLEXPIRY,
-  SECRET_READCONTENT,
+  SECRET_CREATE(true),
+  SECRET_CREATEORUPDATE(true),
+  SECRET_UPDATE(true),
+  SECRET_CHANGEVERSION(true),
+  SECRET_DELETE(true),
+  SECRET_BACKFILLEXPIRY(true),
+  SECRET_READCONTENT(false),
 
-  GROUP_CREATE,
-  GROUP_DELETE,
-  GROUP_BACKUP,
+  GROUP_CREATE(true),
+  GROUP_DELETE(true),
+  GROUP_BACKUP(false),
 
-  CLIENT_CREATE,
-  CLIENT_DELETE,
+  CLIENT_CREATE(true),
+  CLIENT_DELETE(true),
 
-  CHANGEACL_GROUP_SECRET,
-  CHANGEACL_GROUP_CLIENT,
+  CHANGEACL_GROUP_SECRET(true),
+  CHANGEACL_GROUP_CLIENT(true),
 
-  GENERATE_TOKEN
+  GENERATE_TOKEN(false),
+  REFRESH_TOKEN(false),
+  REVOKE_TOKEN(true);
+
+  private final boolean write;
+
+  EventTag(boolean write) {
+    this.write = write;
+  }
+
+  /**
+   * Returns <code>true</code> if it's a write (create, update, delete or acl change) event. Write
+   * events are always audited in full and can't be rolled up.
+   */
+  public boolean isWrite() {
+    return write;
+  }
 }
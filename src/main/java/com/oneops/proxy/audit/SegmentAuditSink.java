@@ -0,0 +1,187 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static com.oneops.proxy.audit.AuditSegments.*;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import org.slf4j.*;
+
+/**
+ * Binary audit log, appending length prefixed and CRC checked records to memory mapped segment
+ * files (see {@link AuditSegments} for the format). Writing a batch is just a memory copy, so
+ * there is no syscall per event. {@link #sync()} msyncs the current segment, which is the single
+ * group commit for all the events written since the last sync.
+ *
+ * <p>Segments are pre-allocated to the segment size. A new segment is started when the current one
+ * is full, keeping the given number of segments. On startup, the last segment is scanned and the
+ * writes continue after its last valid record.
+ *
+ * @author Suresh G
+ */
+public class SegmentAuditSink implements AuditSink {
+
+  private static final Logger log = LoggerFactory.getLogger(SegmentAuditSink.class);
+
+  private final Path dir;
+
+  private final int segmentSize;
+
+  private final int maxSegments;
+
+  /** Reusable buffer for encoding the event payload. */
+  private ByteBuffer scratch = ByteBuffer.allocate(4 * 1024);
+
+  private long seq;
+
+  private FileChannel channel;
+
+  private MappedByteBuffer segment;
+
+  /**
+   * Opens the segment directory for append.
+   *
+   * @param dir segment directory.
+   * @param segmentSize segment file size, in bytes.
+   * @param maxSegments max number of segments to keep.
+   * @throws IOException if the segment can't be opened.
+   */
+  public SegmentAuditSink(Path dir, int segmentSize, int maxSegments) throws IOException {
+    if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("Invalid audit segment size: " + segmentSize);
+    }
+    this.dir = dir.toAbsolutePath();
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+    Files.createDirectories(this.dir);
+
+    List<Path> segments = AuditSegments.list(this.dir);
+    if (segments.isEmpty() || !recover(segments.get(segments.size() - 1))) {
+      seq = segments.isEmpty() ? 0 : sequence(segments.get(segments.size() - 1)) + 1;
+      create();
+    }
+    log.info("Writing audit events to " + segment(this.dir, seq) + " at " + segment.position());
+  }
+
+  @Override
+  public void write(List<Event> events) throws IOException {
+    for (Event e : events) {
+      ByteBuffer payload = encode(e);
+      int len = payload.remaining();
+      if (segment.remaining() < RECORD_HEADER_SIZE + len) {
+        roll();
+      }
+      // The length is written last, so that the readers never see a partial record.
+      int pos = segment.position();
+      segment.putInt(pos + 4, crc32(payload));
+      segment.position(pos + RECORD_HEADER_SIZE);
+      segment.put(payload);
+      segment.putInt(pos, len);
+    }
+  }
+
+  @Override
+  public void sync() {
+    segment.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    segment.force();
+    channel.close();
+  }
+
+  /** Encodes the event to the scratch buffer, growing it as needed. */
+  private ByteBuffer encode(Event e) throws IOException {
+    int max = segmentSize - SEGMENT_HEADER_SIZE - RECORD_HEADER_SIZE;
+    while (true) {
+      scratch.clear();
+      try {
+        AuditSegments.encode(e, scratch);
+        scratch.flip();
+        if (scratch.remaining() > max) {
+          throw new IOException("Audit event is larger than the segment size: " + e);
+        }
+        return scratch;
+      } catch (BufferOverflowException ex) {
+        if (scratch.capacity() >= max) {
+          throw new IOException("Audit event is larger than the segment size: " + e);
+        }
+        scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, max));
+      }
+    }
+  }
+
+  /**
+   * Opens the last segment and positions it after the last valid record. Returns <code>false
+   * </code> if it's not a valid segment.
+   */
+  private boolean recover(Path last) throws IOException {
+    FileChannel ch = FileChannel.open(last, READ, WRITE);
+    MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+    try {
+      checkHeader(buf, last);
+    } catch (IOException ex) {
+      log.warn(ex.getMessage() + ", starting a new segment.");
+      ch.close();
+      return false;
+    }
+
+    long count = 0;
+    while (scan(buf, null)) {
+      count++;
+    }
+    // Clears the torn records, if any, so that they won't be read after the new records.
+    for (int i = buf.position(); i < buf.limit(); i++) {
+      if (buf.get(i) != 0) {
+        buf.put(i, (byte) 0);
+      }
+    }
+    channel = ch;
+    segment = buf;
+    seq = sequence(last);
+    log.info("Recovered " + count + " audit events from " + last);
+    return true;
+  }
+
+  /** Creates and maps the segment for the current sequence. */
+  private void create() throws IOException {
+    channel = FileChannel.open(segment(dir, seq), CREATE_NEW, READ, WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segment.putInt(MAGIC).putInt(VERSION);
+  }
+
+  /** Closes the current segment, starts the next one and deletes the oldest segments. */
+  private void roll() throws IOException {
+    segment.force();
+    channel.close();
+    seq++;
+    create();
+    log.info("Rolled the audit log to " + segment(dir, seq));
+
+    List<Path> segments = AuditSegments.list(dir);
+    for (Path p : segments.subList(0, Math.max(0, segments.size() - maxSegments))) {
+      Files.deleteIfExists(p);
+    }
+  }
+}
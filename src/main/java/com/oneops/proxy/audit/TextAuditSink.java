@@ -0,0 +1,168 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.*;
+import org.slf4j.*;
+
+/**
+ * Text audit log file, in the same format as the logback audit log (<b>timestamp - event</b>). The
+ * file is rotated by size, keeping the given number of old files.
+ *
+ * @author Suresh G
+ */
+public class TextAuditSink implements AuditSink {
+
+  private static final Logger log = LoggerFactory.getLogger(TextAuditSink.class);
+
+  private static final DateTimeFormatter TIME_FORMAT =
+      DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss.SSS", Locale.US)
+          .withZone(ZoneId.systemDefault());
+
+  private static final DateTimeFormatter ROTATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+
+  private final Path file;
+
+  private final long maxFileSize;
+
+  private final int maxFiles;
+
+  private final StringBuilder buf = new StringBuilder(64 * 1024);
+
+  private final CharsetEncoder encoder =
+      UTF_8
+          .newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+
+  private FileChannel channel;
+
+  /**
+   * Opens the audit log file for append.
+   *
+   * @param file audit log file.
+   * @param maxFileSize file is rotated once it reaches this size, in bytes.
+   * @param maxFiles max number of rotated files to keep.
+   * @throws IOException if the file can't be opened.
+   */
+  public TextAuditSink(Path file, long maxFileSize, int maxFiles) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.maxFileSize = maxFileSize;
+    this.maxFiles = maxFiles;
+    Files.createDirectories(this.file.getParent());
+    channel = open();
+    log.info("Writing audit events to " + this.file);
+  }
+
+  @Override
+  public void write(List<Event> events) throws IOException {
+    buf.setLength(0);
+    for (Event e : events) {
+      appendLine(e, buf);
+    }
+    ByteBuffer out = encode(buf);
+    while (out.hasRemaining()) {
+      channel.write(out);
+    }
+    if (channel.size() >= maxFileSize) {
+      rotate();
+    }
+  }
+
+  @Override
+  public void sync() throws IOException {
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.force(false);
+    channel.close();
+  }
+
+  /**
+   * Appends the event as an audit log line (<b>timestamp - event</b>).
+   *
+   * @param e audit event.
+   * @param buf string buffer.
+   * @return the buffer.
+   */
+  static StringBuilder appendLine(Event e, StringBuilder buf) {
+    TIME_FORMAT.formatTo(Instant.ofEpochMilli(e.getTimestamp()), buf);
+    buf.append(" - ");
+    return e.appendTo(buf).append('\n');
+  }
+
+  private FileChannel open() throws IOException {
+    return FileChannel.open(file, CREATE, WRITE, APPEND);
+  }
+
+  /** Encodes the chars to the reusable byte buffer. */
+  private ByteBuffer encode(CharSequence chars) throws CharacterCodingException {
+    int max = (int) (chars.length() * encoder.maxBytesPerChar());
+    if (bytes.capacity() < max) {
+      bytes = ByteBuffer.allocate(max);
+    }
+    bytes.clear();
+    encoder.reset();
+    CoderResult res = encoder.encode(CharBuffer.wrap(chars), bytes, true);
+    if (!res.isUnderflow()) {
+      res.throwException();
+    }
+    encoder.flush(bytes);
+    bytes.flip();
+    return bytes;
+  }
+
+  /** Renames the current file with a timestamp suffix and deletes the oldest files. */
+  private void rotate() throws IOException {
+    channel.force(false);
+    channel.close();
+    String name = file.getFileName().toString();
+    Path rotated = file.resolveSibling(name + "." + ROTATE_FORMAT.format(Instant.now()));
+    Files.move(file, rotated);
+    channel = open();
+    log.info("Rotated the audit log to " + rotated);
+
+    try (Stream<Path> files = Files.list(file.getParent())) {
+      List<Path> old =
+          files
+              .filter(p -> p.getFileName().toString().startsWith(name + "."))
+              .sorted(Comparator.comparing(Path::toString).reversed())
+              .collect(Collectors.toList());
+      for (Path p : old.subList(Math.min(maxFiles, old.size()), old.size())) {
+        Files.deleteIfExists(p);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.auth.login;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.*;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.RequestTiming;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import javax.annotation.*;
+import org.slf4j.*;
+import org.springframework.stereotype.Component;
+
+/**
+ * A bounded thread pool for processing the logins, isolated from the servlet container threads. The
+ * login concurrency and queue depth are reported as <b>gauge.oneops.login.(active|queued)</b>
+ * metrics.
+ *
+ * @author Suresh G
+ */
+@Component
+public class LoginExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(LoginExecutor.class);
+
+  private final OneOpsConfig.Auth config;
+
+  private final Timer queueWait;
+
+  private final Meter rejected;
+
+  private final Meter timeouts;
+
+  /** Login thread pool, <code>null</code> till it's started or if it's disabled. */
+  private volatile ThreadPoolExecutor executor;
+
+  public LoginExecutor(OneOpsConfig config, MetricsUtilService metricsUtil) {
+    this.config = config.getAuth();
+    this.queueWait = metricsUtil.timer("oneops.login.queueWait");
+    this.rejected = metricsUtil.meter("oneops.login.rejected");
+    this.timeouts = metricsUtil.meter("oneops.login.timeout");
+    metricsUtil.gauge("oneops.login.active", () -> poolStat(ThreadPoolExecutor::getActiveCount));
+    metricsUtil.gauge("oneops.login.queued", () -> poolStat(e -> e.getQueue().size()));
+  }
+
+  @PostConstruct
+  public void start() {
+    int threads = config.getLoginThreads();
+    if (threads <= 0) {
+      log.info("Login executor is disabled, logins are processed on the request threads.");
+      return;
+    }
+    AtomicInteger count = new AtomicInteger();
+    BlockingQueue<Runnable> queue =
+        config.getLoginQueueSize() > 0
+            ? new ArrayBlockingQueue<>(config.getLoginQueueSize())
+            : new SynchronousQueue<>();
+    executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            SECONDS,
+            queue,
+            r -> {
+              Thread t = new Thread(r, "login-" + count.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    log.info("Started login executor with " + threads + " threads.");
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Returns <code>true</code> if the logins are processed on the login thread pool. */
+  public boolean isEnabled() {
+    return executor != null;
+  }
+
+  /** Max time to process a login, including the wait for a login thread, in millis. */
+  public long getTimeoutMs() {
+    return SECONDS.toMillis(config.getLoginTimeoutSec());
+  }
+
+  /** <b>Retry-After</b> header value for the rejected logins, in secs. */
+  public int getRetryAfterSec() {
+    return config.getLoginRetryAfterSec();
+  }
+
+  /**
+   * Submits the login task.
+   *
+   * @param task login task.
+   * @throws RejectedExecutionException if all the login threads are busy and the queue is full.
+   */
+  public void execute(Runnable task) {
+    long queuedAt = nanoTime();
+    // The login stages (LDAP, DB) are added to the request timing.
+    Runnable timedTask = RequestTiming.bind(task);
+    try {
+      executor.execute(
+          () -> {
+            MetricsUtilService.stop(queueWait, queuedAt);
+            timedTask.run();
+          });
+    } catch (RejectedExecutionException ex) {
+      rejected.mark();
+      throw ex;
+    }
+  }
+
+  /** Records the rejected login due to the timeout. */
+  void timedOut() {
+    timeouts.mark();
+  }
+
+  /** Returns the login pool stat for the gauges, 0 if the pool is not running. */
+  private int poolStat(ToIntFunction<ThreadPoolExecutor> stat) {
+    ThreadPoolExecutor pool = executor;
+    return pool != null ? stat.applyAsInt(pool) : 0;
+  }
+}
@@ -20,18 +20,26 @@ package com.oneops.proxy.auth.login;
 import static org.springframework.http.HttpMethod.POST;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.METHOD_NOT_ALLOWED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.util.StringUtils.isEmpty;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oneops.proxy.model.LoginRequest;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -45,6 +53,11 @@ import org.springframework.security.web.authentication.AuthenticationSuccessHand
  * LoginRequest} payload is done here. Upon successful validation, the authentication logic is
  * delegated to {@link LoginAuthProvider}.
  *
+ * <p>If the {@link LoginExecutor} is enabled, the login is processed asynchronously on the login
+ * thread pool and the request thread is released. Logins are rejected with <b>503</b> and a
+ * <b>Retry-After</b> header when the login queue is full or the login doesn't complete within the
+ * login timeout. A timed out login is not cancelled, but its response is discarded.
+ *
  * @author Suresh
  */
 public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilter {
@@ -53,22 +66,121 @@ public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilte
   private final AuthenticationSuccessHandler successHandler;
   private final AuthenticationFailureHandler failureHandler;
   private final ObjectMapper mapper;
+  private final LoginExecutor loginExecutor;
+
+  /**
+   * Async login state of the current login thread. It's not kept in the request, as the container
+   * recycles the request once a timed out login is completed.
+   */
+  private static final ThreadLocal<AsyncLogin> ASYNC_LOGIN = new ThreadLocal<>();
 
   public LoginProcessingFilter(
       String loginUrl,
       AuthenticationSuccessHandler successHandler,
       AuthenticationFailureHandler failureHandler,
-      ObjectMapper mapper) {
+      ObjectMapper mapper,
+      LoginExecutor loginExecutor) {
     super(loginUrl);
     log.info("Initializing Login processing filter for " + loginUrl);
     this.successHandler = successHandler;
     this.failureHandler = failureHandler;
     this.mapper = mapper;
+    this.loginExecutor = loginExecutor;
+  }
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest req = (HttpServletRequest) request;
+    HttpServletResponse res = (HttpServletResponse) response;
+    if (!loginExecutor.isEnabled()
+        || !req.isAsyncSupported()
+        || !requiresAuthentication(req, res)) {
+      super.doFilter(req, res, chain);
+      return;
+    }
+
+    AsyncContext ctx = req.startAsync(req, res);
+    ctx.setTimeout(loginExecutor.getTimeoutMs());
+    AsyncLogin login = new AsyncLogin();
+    ctx.addListener(
+        new AsyncListener() {
+          @Override
+          public void onTimeout(AsyncEvent event) throws IOException {
+            // Takes over the response, a running login discards its result.
+            if (login.timeout()) {
+              loginExecutor.timedOut();
+              reject(res, "Login request timed out.");
+            }
+            complete(ctx);
+          }
+
+          @Override
+          public void onComplete(AsyncEvent event) {}
+
+          @Override
+          public void onError(AsyncEvent event) {}
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {}
+        });
+
+    try {
+      loginExecutor.execute(
+          () -> {
+            if (!login.start()) {
+              return;
+            }
+            ASYNC_LOGIN.set(login);
+            try {
+              super.doFilter(req, res, chain);
+            } catch (Exception ex) {
+              log.error("Login processing failed.", ex);
+            } finally {
+              ASYNC_LOGIN.remove();
+              complete(ctx);
+            }
+          });
+    } catch (RejectedExecutionException ex) {
+      if (login.reject()) {
+        reject(res, "Too many login requests.");
+        ctx.complete();
+      }
+    }
+  }
+
+  /**
+   * Writes the login response. For the async logins, the response is discarded if the login has
+   * already timed out.
+   */
+  private void respond(Response response) throws IOException, ServletException {
+    AsyncLogin login = ASYNC_LOGIN.get();
+    if (login == null) {
+      response.write();
+    } else if (!login.respond(response)) {
+      log.warn("Login request timed out, discarding the login response.");
+    }
+  }
+
+  /** Completes the async login, if it's not already completed by the container (timeout). */
+  private void complete(AsyncContext ctx) {
+    try {
+      ctx.complete();
+    } catch (IllegalStateException ex) {
+      log.debug("Login request is already completed.", ex);
+    }
+  }
+
+  /** Rejects the login with <b>503 Service Unavailable</b> and <b>Retry-After</b> header. */
+  private void reject(HttpServletResponse res, String msg) throws IOException {
+    log.warn(msg + " Rejecting the login.");
+    res.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(loginExecutor.getRetryAfterSec()));
+    res.sendError(SERVICE_UNAVAILABLE.value(), msg);
   }
 
   @Override
   public Authentication attemptAuthentication(HttpServletRequest req, HttpServletResponse res)
-      throws AuthenticationException, IOException {
+      throws AuthenticationException, IOException, ServletException {
     log.debug("Attempting login authentication.");
     LoginRequest loginReq = getLoginRequest(req, res);
 
@@ -85,14 +197,15 @@ public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilte
    * @param res http response
    * @return {@link LoginRequest}
    * @throws IOException
+   * @throws ServletException
    */
   private LoginRequest getLoginRequest(HttpServletRequest req, HttpServletResponse res)
-      throws IOException {
+      throws IOException, ServletException {
     String httpMethod = req.getMethod();
     if (!POST.name().equalsIgnoreCase(httpMethod)) {
       String resMsg =
           String.format("Authentication method not supported. Request method: %s", httpMethod);
-      res.sendError(METHOD_NOT_ALLOWED.value(), resMsg);
+      respond(() -> res.sendError(METHOD_NOT_ALLOWED.value(), resMsg));
       throw new AuthenticationServiceException(resMsg);
     }
 
@@ -101,13 +214,13 @@ public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilte
       loginReq = mapper.readValue(req.getReader(), LoginRequest.class);
     } catch (Exception ioe) {
       String errMsg = "Bad token request.";
-      res.sendError(BAD_REQUEST.value(), errMsg);
+      respond(() -> res.sendError(BAD_REQUEST.value(), errMsg));
       throw new AuthenticationServiceException(errMsg, ioe);
     }
 
     if (isEmpty(loginReq.getUsername()) || isEmpty(loginReq.getPassword())) {
       String errMsg = "Username or Password not provided.";
-      res.sendError(BAD_REQUEST.value(), errMsg);
+      respond(() -> res.sendError(BAD_REQUEST.value(), errMsg));
       throw new AuthenticationServiceException(errMsg);
     }
     return loginReq;
@@ -117,7 +230,7 @@ public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilte
   protected void successfulAuthentication(
       HttpServletRequest req, HttpServletResponse res, FilterChain chain, Authentication authResult)
       throws IOException, ServletException {
-    successHandler.onAuthenticationSuccess(req, res, authResult);
+    respond(() -> successHandler.onAuthenticationSuccess(req, res, authResult));
   }
 
   @Override
@@ -126,6 +239,63 @@ public class LoginProcessingFilter extends AbstractAuthenticationProcessingFilte
       throws IOException, ServletException {
     log.debug("Login Authentication failed. Clearing the security holder context", failed);
     SecurityContextHolder.clearContext();
-    failureHandler.onAuthenticationFailure(req, res, failed);
+    respond(() -> failureHandler.onAuthenticationFailure(req, res, failed));
+  }
+
+  /** Writes the login response. */
+  @FunctionalInterface
+  private interface Response {
+    void write() throws IOException, ServletException;
+  }
+
+  /**
+   * Async login state. The login thread and the container timeout race to write the response, the
+   * state decides the owner. The response is written holding the lock, so that a timeout can't
+   * complete the request half way through it.
+   */
+  private static final class AsyncLogin {
+    private static final int QUEUED = 0, RUNNING = 1, RESPONDED = 2, TIMED_OUT = 3;
+
+    private int state = QUEUED;
+
+    /** Starts the login, returns <code>false</code> if it's already timed out. */
+    synchronized boolean start() {
+      if (state != QUEUED) {
+        return false;
+      }
+      state = RUNNING;
+      return true;
+    }
+
+    /** Rejects the queued login, returns <code>false</code> if it's already timed out. */
+    synchronized boolean reject() {
+      if (state != QUEUED) {
+        return false;
+      }
+      state = RESPONDED;
+      return true;
+    }
+
+    /**
+     * Times out the login, returns <code>true</code> if the caller has to write the timeout
+     * response. Waits for the login response being written, if any.
+     */
+    synchronized boolean timeout() {
+      if (state == QUEUED || state == RUNNING) {
+        state = TIMED_OUT;
+        return true;
+      }
+      return false;
+    }
+
+    /** Writes the login response, returns <code>false</code> if the login has timed out. */
+    synchronized boolean respond(Response response) throws IOException, ServletException {
+      if (state == TIMED_OUT) {
+        return false;
+      }
+      state = RESPONDED;
+      response.write();
+      return true;
+    }
   }
 }
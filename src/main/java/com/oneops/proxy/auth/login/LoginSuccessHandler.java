@@ -25,8 +25,12 @@ import com.oneops.proxy.audit.AuditLog;
 import com.oneops.proxy.audit.Event;
 import com.oneops.proxy.auth.user.OneOpsUser;
 import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.authz.Authz;
+import com.oneops.proxy.authz.AuthzClaim;
 import com.oneops.proxy.model.LoginResponse;
 import com.oneops.proxy.security.JwtTokenService;
+import com.oneops.proxy.security.RefreshTokenService;
+import com.oneops.proxy.security.RefreshTokenService.RefreshToken;
 import java.io.IOException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -56,11 +60,20 @@ public class LoginSuccessHandler implements AuthenticationSuccessHandler {
   private final ObjectMapper mapper;
   private final JwtTokenService tokenService;
   private final AuditLog auditLog;
+  private final Authz authz;
+  private final RefreshTokenService refreshTokenService;
 
-  public LoginSuccessHandler(ObjectMapper mapper, JwtTokenService tokenService, AuditLog auditLog) {
+  public LoginSuccessHandler(
+      ObjectMapper mapper,
+      JwtTokenService tokenService,
+      AuditLog auditLog,
+      Authz authz,
+      RefreshTokenService refreshTokenService) {
     this.mapper = mapper;
     this.tokenService = tokenService;
     this.auditLog = auditLog;
+    this.authz = authz;
+    this.refreshTokenService = refreshTokenService;
   }
 
   /**
@@ -85,11 +98,21 @@ public class LoginSuccessHandler implements AuthenticationSuccessHandler {
       user = getOneOpsUser(principal);
     }
 
+    AuthzClaim authzClaim = authz.createClaim(user);
+    if (authzClaim != null) {
+      user = user.withAuthzClaim(authzClaim);
+    }
+
     String token = tokenService.generateToken(user);
     auditLog.log(new Event(GENERATE_TOKEN, user.getUsername(), user.getDomain().getType(), "N/A"));
 
     LoginResponse loginResponse =
         new LoginResponse(token, tokenService.getTokenType(), tokenService.getExpiresInSec());
+    RefreshToken refreshToken = refreshTokenService.create(user);
+    if (refreshToken != null) {
+      loginResponse.setRefreshToken(refreshToken.getToken());
+      loginResponse.setRefreshExpiresInSec(refreshToken.getExpiresInSec());
+    }
     res.setStatus(HttpStatus.CREATED.value());
     res.setContentType(APPLICATION_JSON_VALUE);
     mapper.writeValue(res.getWriter(), loginResponse);
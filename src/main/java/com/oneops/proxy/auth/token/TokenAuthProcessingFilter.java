@@ -17,6 +17,10 @@
  */
 package com.oneops.proxy.auth.token;
 
+import static java.lang.System.nanoTime;
+
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
 import com.oneops.proxy.security.JwtTokenService;
 import java.io.IOException;
 import javax.servlet.*;
@@ -56,11 +60,16 @@ public class TokenAuthProcessingFilter extends AbstractAuthenticationProcessingF
   public Authentication attemptAuthentication(HttpServletRequest req, HttpServletResponse res)
       throws AuthenticationException {
     log.debug("Attempting token authentication.");
-    JwtAuthToken jwtAuthToken = jwtTokenService.getAccessToken(req);
-    if (jwtAuthToken == null) {
-      throw new AuthenticationCredentialsNotFoundException("Authorization header is missing.");
+    long start = nanoTime();
+    try {
+      JwtAuthToken jwtAuthToken = jwtTokenService.getAccessToken(req);
+      if (jwtAuthToken == null) {
+        throw new AuthenticationCredentialsNotFoundException("Authorization header is missing.");
+      }
+      return getAuthenticationManager().authenticate(jwtAuthToken);
+    } finally {
+      RequestTiming.record(Stage.AUTH, start);
     }
-    return getAuthenticationManager().authenticate(jwtAuthToken);
   }
 
   @Override
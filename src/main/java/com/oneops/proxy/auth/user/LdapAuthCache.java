@@ -0,0 +1,268 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.auth.user;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.Meter;
+import com.github.benmanes.caffeine.cache.*;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.ThrowingSupplier;
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.*;
+import javax.annotation.Nullable;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import org.ldaptive.LdapException;
+import org.slf4j.*;
+
+/**
+ * A short lived cache of successful LDAP authentications, used to absorb the login bursts of the
+ * same (service) account. The passwords are never stored, only a salted PBKDF2 hash of it. Any
+ * failed attempt for a user invalidates the cached entry, so that the next login always goes to
+ * the LDAP server. Concurrent logins with the same credentials are coalesced into a single LDAP
+ * bind.
+ *
+ * @author Suresh G
+ */
+class LdapAuthCache {
+
+  private static final Logger log = LoggerFactory.getLogger(LdapAuthCache.class);
+
+  private static final String HASH_ALGO = "PBKDF2WithHmacSHA256";
+
+  private static final int SALT_LEN = 16;
+
+  private static final int HASH_LEN = 256;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final int iterations;
+
+  private final long awaitTimeoutMs;
+
+  private final Meter hits;
+
+  private final Meter misses;
+
+  private final Meter coalesced;
+
+  private final Meter invalidated;
+
+  private final Cache<String, Credential> cache;
+
+  /** Authentications in progress, keyed by user name. */
+  private final ConcurrentMap<String, Flight> inflight = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the login cache.
+   *
+   * @param ttlSec time to keep the successful authentications, in secs.
+   * @param maxSize max number of users to cache.
+   * @param iterations PBKDF2 iterations used to hash the password.
+   * @param awaitTimeoutMs max time a coalesced login waits for the in-flight LDAP bind, in millis.
+   * @param metricsUtil metrics util service.
+   */
+  LdapAuthCache(
+      int ttlSec,
+      long maxSize,
+      int iterations,
+      long awaitTimeoutMs,
+      MetricsUtilService metricsUtil) {
+    this.iterations = iterations;
+    this.awaitTimeoutMs = awaitTimeoutMs;
+    this.hits = metricsUtil.meter("oneops.ldap.auth.cache.hit");
+    this.misses = metricsUtil.meter("oneops.ldap.auth.cache.miss");
+    this.coalesced = metricsUtil.meter("oneops.ldap.auth.cache.coalesce");
+    this.invalidated = metricsUtil.meter("oneops.ldap.auth.cache.invalidate");
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSec, SECONDS)
+            .recordStats()
+            .build();
+    metricsUtil.gauge("oneops.ldap.auth.cache.hitRate", () -> cache.stats().hitRate());
+  }
+
+  /**
+   * Authenticates the user, either from the cache or by doing the LDAP bind.
+   *
+   * @param userName user name
+   * @param password user password
+   * @param bind does the LDAP bind and returns the user common name, <code>null</code> if the
+   *     authentication failed.
+   * @return user common name or <code>null</code> if the authentication failed.
+   * @throws LdapException throws if any error authenticating/connecting to ldap server.
+   */
+  @Nullable
+  String authenticate(
+      String userName, char[] password, ThrowingSupplier<String, LdapException> bind)
+      throws LdapException {
+    Credential cred = cache.getIfPresent(userName);
+    if (cred != null) {
+      if (cred.matches(password)) {
+        hits.mark();
+        return cred.commonName;
+      }
+      // A failed attempt, the next login has to go to the LDAP server.
+      invalidate(userName, cred);
+    }
+    misses.mark();
+
+    Flight leader = inflight.get(userName);
+    if (leader != null && leader.matches(password)) {
+      coalesced.mark();
+      return leader.await();
+    }
+
+    Flight flight = new Flight(password);
+    boolean isLeader = leader == null && inflight.putIfAbsent(userName, flight) == null;
+    try {
+      String cn = bind.get();
+      if (cn != null) {
+        cache.put(userName, flight.toCredential(cn));
+      } else {
+        invalidate(userName, null);
+      }
+      flight.result.complete(cn);
+      return cn;
+    } catch (LdapException | RuntimeException ex) {
+      invalidate(userName, null);
+      flight.result.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      if (isLeader) {
+        inflight.remove(userName, flight);
+      }
+    }
+  }
+
+  /** Removes the given user from the cache. */
+  void invalidate(String userName) {
+    invalidate(userName, null);
+  }
+
+  /** Current number of cached users. */
+  long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * Removes the user from cache.
+   *
+   * @param userName user name
+   * @param cred cached credential to remove, <code>null</code> to remove any.
+   */
+  private void invalidate(String userName, @Nullable Credential cred) {
+    ConcurrentMap<String, Credential> map = cache.asMap();
+    boolean removed = cred != null ? map.remove(userName, cred) : map.remove(userName) != null;
+    if (removed) {
+      log.debug("Invalidated the cached authentication of " + userName);
+      invalidated.mark();
+    }
+  }
+
+  /** Returns the salted PBKDF2 hash of the password. */
+  private byte[] hash(char[] password, byte[] salt) {
+    PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_LEN);
+    try {
+      return SecretKeyFactory.getInstance(HASH_ALGO).generateSecret(spec).getEncoded();
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      throw new IllegalStateException("Can't hash the password using " + HASH_ALGO, e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  /** Salted hash of a password. */
+  private class SaltedHash {
+    final byte[] salt;
+    final byte[] hash;
+
+    SaltedHash(char[] password) {
+      this.salt = newSalt();
+      this.hash = hash(password, salt);
+    }
+
+    boolean matches(char[] password) {
+      return MessageDigest.isEqual(hash, hash(password, salt));
+    }
+  }
+
+  private byte[] newSalt() {
+    byte[] salt = new byte[SALT_LEN];
+    random.nextBytes(salt);
+    return salt;
+  }
+
+  /** A cached successful authentication. */
+  private static final class Credential {
+    final SaltedHash secret;
+    final String commonName;
+
+    Credential(SaltedHash secret, String commonName) {
+      this.secret = secret;
+      this.commonName = commonName;
+    }
+
+    boolean matches(char[] password) {
+      return secret.matches(password);
+    }
+  }
+
+  /** An authentication in progress, other logins with the same password wait for its result. */
+  private class Flight {
+    final SaltedHash secret;
+    final CompletableFuture<String> result = new CompletableFuture<>();
+
+    Flight(char[] password) {
+      this.secret = new SaltedHash(password);
+    }
+
+    boolean matches(char[] password) {
+      return secret.matches(password);
+    }
+
+    Credential toCredential(String commonName) {
+      return new Credential(secret, commonName);
+    }
+
+    @Nullable
+    String await() throws LdapException {
+      try {
+        return result.get(awaitTimeoutMs, MILLISECONDS);
+      } catch (TimeoutException e) {
+        throw new LdapException("Timed out waiting for the in-flight LDAP authentication.", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new LdapException("Interrupted waiting for the LDAP authentication.", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof LdapException) {
+          throw (LdapException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException("LDAP authentication failed.", cause);
+      }
+    }
+  }
+}
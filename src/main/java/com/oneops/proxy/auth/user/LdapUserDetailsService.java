@@ -22,7 +22,7 @@ import static java.util.Collections.singletonList;
 
 import com.oneops.proxy.authz.AuthDomain;
 import com.oneops.proxy.ldap.LdapClient;
-import java.io.IOException;
+import com.oneops.proxy.ldap.LdapDn;
 import java.util.List;
 import org.ldaptive.LdapException;
 import org.slf4j.Logger;
@@ -32,7 +32,6 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import sun.security.x509.X500Name;
 
 /**
  * For loading OneOps user-specific data from database or LDAP. This is used by the default {@link
@@ -57,16 +56,16 @@ public class LdapUserDetailsService implements UserDetailsService {
   @Override
   public OneOpsUser loadUserByUsername(String username) throws UsernameNotFoundException {
     try {
-      List<X500Name> x500Names = ldapClient.searchUser(username);
-      if (x500Names.size() == 0) {
+      List<LdapDn> dns = ldapClient.searchUser(username);
+      if (dns.size() == 0) {
         throw new UsernameNotFoundException("Can't load the user details for " + username);
       }
-      X500Name x500Name = x500Names.get(0);
+      LdapDn dn = dns.get(0);
       List<SimpleGrantedAuthority> authorities =
           singletonList(new SimpleGrantedAuthority(USER.authority()));
-      return new OneOpsUser(username, null, authorities, x500Name.getCommonName(), AuthDomain.PROD);
+      return new OneOpsUser(username, null, authorities, dn.getCommonName(), AuthDomain.PROD);
 
-    } catch (IOException | LdapException e) {
+    } catch (LdapException e) {
       throw new UsernameNotFoundException("Can't load the user details for " + username, e);
     }
   }
@@ -18,18 +18,20 @@
 package com.oneops.proxy.auth.user;
 
 import static com.oneops.proxy.auth.user.OneOpsUser.Role.USER;
+import static com.oneops.proxy.metrics.MetricsUtilService.time;
 import static java.util.Collections.singletonList;
 
+import com.codahale.metrics.*;
 import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.config.OneOpsConfig;
 import com.oneops.proxy.ldap.LdapClient;
+import com.oneops.proxy.ldap.LdapDn;
 import com.oneops.proxy.metrics.MetricsUtilService;
-import java.io.IOException;
 import javax.annotation.Nullable;
 import org.ldaptive.LdapEntry;
 import org.ldaptive.LdapException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
-import sun.security.x509.X500Name;
 
 /**
  * A service to authenticate users using the {@link LdapClient}
@@ -41,11 +43,29 @@ public class LdapUserService {
 
   private LdapClient ldapClient;
 
-  private MetricsUtilService metricService;
+  private final Timer authTimer;
 
-  public LdapUserService(LdapClient ldapClient, MetricsUtilService metricService) {
+  private final Meter authErrors;
+
+  /** Successful authentications cache, <code>null</code> if it's disabled. */
+  private @Nullable LdapAuthCache authCache;
+
+  public LdapUserService(
+      LdapClient ldapClient, OneOpsConfig config, MetricsUtilService metricsUtil) {
     this.ldapClient = ldapClient;
-    this.metricService = metricService;
+    this.authTimer = metricsUtil.timer("oneops.ldap.auth");
+    this.authErrors = metricsUtil.meter("oneops.ldap.auth.err");
+    OneOpsConfig.LDAP ldap = config.getLdap();
+    if (ldap.getAuthCacheTtlSec() > 0) {
+      authCache =
+          new LdapAuthCache(
+              ldap.getAuthCacheTtlSec(),
+              ldap.getAuthCacheSize(),
+              ldap.getAuthCacheHashIterations(),
+              // The leader does a user search and bind, each bounded by the response timeout.
+              ldap.getConnectTimeoutMs() + 2L * ldap.getResponseTimeoutMs(),
+              metricsUtil);
+    }
   }
 
   /**
@@ -53,6 +73,9 @@ public class LdapUserService {
    * authenticated will have <b>USER</b> role. We might change this in future depending on the
    * attribute info available in the LDAP entries.
    *
+   * <p>If the login cache is enabled, successful authentications are served from the cache till
+   * it expires and concurrent logins with the same credentials do a single LDAP bind.
+   *
    * @param userName ldap username
    * @param password ldap password
    * @param domain Auth domain.
@@ -62,11 +85,12 @@ public class LdapUserService {
    */
   public @Nullable OneOpsUser authenticate(String userName, char[] password, AuthDomain domain)
       throws LdapException {
-    LdapEntry ldapUser =
-        metricService.time("oneops.ldap.auth", () -> ldapClient.authenticate(userName, password));
+    String cn =
+        authCache != null
+            ? authCache.authenticate(userName, password, () -> bind(userName, password))
+            : bind(userName, password);
 
-    if (ldapUser != null) {
-      String cn = getCommonName(ldapUser, userName);
+    if (cn != null) {
       return new OneOpsUser(
           userName,
           String.valueOf(password),
@@ -77,6 +101,17 @@ public class LdapUserService {
     return null;
   }
 
+  /**
+   * Does the LDAP bind for the user.
+   *
+   * @return user common name if successfully authenticated, else returns <code>null</code>.
+   */
+  private @Nullable String bind(String userName, char[] password) throws LdapException {
+    LdapEntry ldapUser =
+        time(authTimer, authErrors, () -> ldapClient.authenticate(userName, password));
+    return ldapUser != null ? getCommonName(ldapUser, userName) : null;
+  }
+
   /**
    * Returns the common name from LDAP entry. Usually, AD common name has <b>"FullName - UserId"</b>
    * format. If that's the case, only full name is returned as the common name.
@@ -88,11 +123,11 @@ public class LdapUserService {
   private String getCommonName(LdapEntry ldapUser, String username) {
     String cn;
     try {
-      cn = new X500Name(ldapUser.getDn()).getCommonName();
+      cn = LdapDn.commonName(ldapUser.getDn());
       if (cn != null && cn.endsWith(username)) {
         cn = cn.split("-")[0].trim();
       }
-    } catch (IOException e) {
+    } catch (IllegalArgumentException e) {
       cn = username;
     }
     return cn;
@@ -19,7 +19,9 @@ package com.oneops.proxy.auth.user;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.authz.AuthzClaim;
 import java.util.Collection;
+import javax.annotation.Nullable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -30,13 +32,15 @@ import org.springframework.security.core.userdetails.UserDetails;
  *
  * @author Suresh
  */
-@JsonIgnoreProperties("password")
+@JsonIgnoreProperties({"password", "authzClaim"})
 public class OneOpsUser extends User {
 
   private final String cn;
 
   private final AuthDomain domain;
 
+  private final AuthzClaim authzClaim;
+
   /**
    * Creates a new OneOps user from the {@link UserDetails} object.
    *
@@ -57,9 +61,31 @@ public class OneOpsUser extends User {
       Collection<? extends GrantedAuthority> authorities,
       String cn,
       AuthDomain domain) {
+    this(username, password, authorities, cn, domain, null);
+  }
+
+  public OneOpsUser(
+      String username,
+      String password,
+      Collection<? extends GrantedAuthority> authorities,
+      String cn,
+      AuthDomain domain,
+      @Nullable AuthzClaim authzClaim) {
     super(username, password, authorities);
     this.cn = cn;
     this.domain = domain;
+    this.authzClaim = authzClaim;
+  }
+
+  /**
+   * Returns a copy of this user with the given authz claim.
+   *
+   * @param authzClaim {@link AuthzClaim}
+   * @return {@link OneOpsUser}
+   */
+  public OneOpsUser withAuthzClaim(@Nullable AuthzClaim authzClaim) {
+    String password = getPassword() != null ? getPassword() : "";
+    return new OneOpsUser(getUsername(), password, getAuthorities(), cn, domain, authzClaim);
   }
 
   /** Returns OneOps mgmt domain. */
@@ -72,6 +98,11 @@ public class OneOpsUser extends User {
     return cn;
   }
 
+  /** Returns the authz claim from the JWT token, if present. */
+  public @Nullable AuthzClaim getAuthzClaim() {
+    return authzClaim;
+  }
+
   /**
    * Checks whether the user has given role.
    *
@@ -18,11 +18,20 @@
 package com.oneops.proxy.authz;
 
 import static com.oneops.proxy.authz.OneOpsTeam.SECRETS_ADMIN_TEAM;
+import static java.lang.System.nanoTime;
 
 import com.oneops.proxy.auth.user.OneOpsUser;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.jfr.AuthzEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
 import com.oneops.proxy.model.AppGroup;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.*;
 import org.springframework.security.access.AuthorizationServiceException;
 import org.springframework.stereotype.Component;
@@ -40,8 +49,14 @@ public class Authz {
 
   private final UserRepository userRepo;
 
-  public Authz(UserRepository userRepo) {
+  private final AuthzIndex authzIndex;
+
+  private final OneOpsConfig.Authz config;
+
+  public Authz(UserRepository userRepo, Optional<AuthzIndex> authzIndex, OneOpsConfig config) {
     this.userRepo = userRepo;
+    this.authzIndex = authzIndex.orElse(null);
+    this.config = config.getAuthz();
   }
 
   /**
@@ -53,12 +68,47 @@ public class Authz {
    * @return <code>true</code> if the user is authorized.
    */
   public boolean isAuthorized(@Nonnull String appName, @Nonnull OneOpsUser user) {
+    long start = nanoTime();
+    AuthzEvent event = ProxyEvents.authz();
+    String source = null;
+    boolean cacheHit = false;
+    try {
+      AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
+      if (event != null && event.isEnabled()) {
+        cacheHit = userRepo.isTeamsCached(user.getUsername(), appGroup);
+      }
+      source = checkAccess(appGroup, user);
+      return true;
+    } finally {
+      RequestTiming.record(Stage.AUTHZ, start);
+      if (event != null) {
+        event.complete(user.getUsername(), appName, source != null, source, cacheHit);
+      }
+    }
+  }
+
+  /**
+   * Checks the user access, in the order of token claim, authz index and user teams.
+   *
+   * @return the authz source (<b>claim</b>, <b>index</b> or <b>teams</b>) granted the access.
+   * @throws AuthorizationServiceException if the user is not authorized.
+   */
+  private String checkAccess(AppGroup appGroup, OneOpsUser user) {
     if (log.isDebugEnabled()) {
       log.debug(
-          "Checking the authz for user: " + user.getUsername() + " and application: " + appName);
+          "Checking the authz for user: "
+              + user.getUsername()
+              + " and application: "
+              + appGroup.getName());
     }
 
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    if (hasClaim(user, appGroup)) {
+      return "claim";
+    }
+    // The index is eventually consistent, so the DB is still the source of truth for denials.
+    if (authzIndex != null && authzIndex.isAdmin(user.getUsername(), appGroup)) {
+      return "index";
+    }
     List<OneOpsTeam> teams = userRepo.getTeams(user.getUsername(), appGroup);
     boolean hasAccess = teams.stream().anyMatch(team -> hasAdminAccess(team, appGroup));
     if (!hasAccess) {
@@ -70,7 +120,52 @@ public class Authz {
               + "' or not authorized to manage the secrets for environment: "
               + appGroup.getNsPath());
     }
-    return true;
+    return "teams";
+  }
+
+  /**
+   * Checks if the user token has a fresh authz claim for the application group.
+   *
+   * @param user Authenticated user.
+   * @param appGroup Application group
+   * @return <code>true</code> if the claim has the application group assembly.
+   */
+  private boolean hasClaim(OneOpsUser user, AppGroup appGroup) {
+    AuthzClaim claim = user.getAuthzClaim();
+    return config.isTokenClaimEnabled()
+        && claim != null
+        && claim.isFresh(config.getTokenClaimMaxAgeSec(), Instant.now().getEpochSecond())
+        && claim.contains(appGroup);
+  }
+
+  /**
+   * Creates the authz claim, having all the assemblies the user is a secrets admin of, for the user
+   * token. The claim is not created if it's disabled or the user is an admin of too many
+   * assemblies.
+   *
+   * @param user Authenticated user.
+   * @return {@link AuthzClaim} or <code>null</code>.
+   */
+  public @Nullable AuthzClaim createClaim(@Nonnull OneOpsUser user) {
+    if (!config.isTokenClaimEnabled()) {
+      return null;
+    }
+    try {
+      List<String> assemblies = userRepo.getAdminAssemblies(user.getUsername(), user.getDomain());
+      if (assemblies.size() > config.getTokenClaimMaxAssemblies()) {
+        log.info(
+            user.getUsername()
+                + " is an admin of "
+                + assemblies.size()
+                + " assemblies, skipping the authz claim.");
+        return null;
+      }
+      return new AuthzClaim(Instant.now().getEpochSecond(), assemblies);
+    } catch (Exception ex) {
+      // The authz falls back to DB without the claim.
+      log.warn("Can't create the authz claim for " + user.getUsername(), ex);
+      return null;
+    }
   }
 
   /**
@@ -82,6 +177,6 @@ public class Authz {
    * @return <code>true</code> if the team has admin access.
    */
   public boolean hasAdminAccess(OneOpsTeam team, AppGroup appGroup) {
-    return team.isSecretsAdmin(appGroup.getAssembly()) && team.isDesign() && team.isTransition();
+    return team.hasAdminAccess(appGroup.getAssembly());
   }
 }
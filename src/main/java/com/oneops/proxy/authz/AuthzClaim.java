@@ -0,0 +1,148 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.authz;
+
+import com.oneops.proxy.model.AppGroup;
+import java.util.*;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Authorization claim embedded in the JWT token. It has the sorted list of assemblies (<b>{org}/
+ * {assembly}</b> in lowercase) the user is a secrets admin of, for the token auth domain. The
+ * claim JSON looks like,
+ *
+ * <pre>
+ *   "authz": {"v": 1, "iat": 1528761600, "a": ["oneops/my-app", "oneops/my-app2"]}
+ * </pre>
+ *
+ * @author Suresh G
+ */
+public class AuthzClaim {
+
+  /** JWT claim name. */
+  public static final String CLAIM_NAME = "authz";
+
+  /** Current claim format version. Claims with any other version are ignored. */
+  public static final int VERSION = 1;
+
+  private static final String VERSION_KEY = "v";
+  private static final String ISSUED_AT_KEY = "iat";
+  private static final String ASSEMBLIES_KEY = "a";
+
+  /** Claim issued time in epoch secs. */
+  private final long issuedAt;
+
+  /** Sorted assembly names. */
+  private final String[] assemblies;
+
+  /**
+   * Creates new authz claim.
+   *
+   * @param issuedAt claim issued time in epoch secs.
+   * @param assemblies assembly names, in <b>{org}/{assembly}</b> format.
+   */
+  public AuthzClaim(long issuedAt, @Nonnull Collection<String> assemblies) {
+    this.issuedAt = issuedAt;
+    this.assemblies =
+        assemblies.stream().map(String::toLowerCase).distinct().sorted().toArray(String[]::new);
+  }
+
+  /** Returns the assembly name used in the claim for the application group. */
+  public static String assemblyName(String org, String assembly) {
+    return (org + "/" + assembly).toLowerCase();
+  }
+
+  /**
+   * Checks if the claim has the assembly of given application group.
+   *
+   * @param appGroup {@link AppGroup}
+   * @return <code>true</code> if the user is a secrets admin of the assembly.
+   */
+  public boolean contains(@Nonnull AppGroup appGroup) {
+    String name = assemblyName(appGroup.getOrg(), appGroup.getAssembly());
+    return Arrays.binarySearch(assemblies, name) >= 0;
+  }
+
+  /**
+   * Checks if the claim is issued within the given time.
+   *
+   * @param maxAgeSec max claim age in secs.
+   * @param nowSec current time in epoch secs.
+   * @return <code>true</code> if the claim is not too old.
+   */
+  public boolean isFresh(long maxAgeSec, long nowSec) {
+    return nowSec - issuedAt <= maxAgeSec;
+  }
+
+  public long getIssuedAt() {
+    return issuedAt;
+  }
+
+  public List<String> getAssemblies() {
+    return Collections.unmodifiableList(Arrays.asList(assemblies));
+  }
+
+  /** Returns the claim value to be added to the JWT. */
+  public Map<String, Object> toClaim() {
+    Map<String, Object> claim = new LinkedHashMap<>(4);
+    claim.put(VERSION_KEY, VERSION);
+    claim.put(ISSUED_AT_KEY, issuedAt);
+    claim.put(ASSEMBLIES_KEY, Arrays.asList(assemblies));
+    return claim;
+  }
+
+  /**
+   * Parses the authz claim from JWT.
+   *
+   * @param claim claim value.
+   * @return {@link AuthzClaim} or <code>null</code> if the claim is not present, not valid or of a
+   *     different version.
+   */
+  public static @Nullable AuthzClaim fromClaim(@Nullable Object claim) {
+    if (!(claim instanceof Map)) {
+      return null;
+    }
+    Map<?, ?> map = (Map<?, ?>) claim;
+    Object version = map.get(VERSION_KEY);
+    Object issuedAt = map.get(ISSUED_AT_KEY);
+    Object assemblies = map.get(ASSEMBLIES_KEY);
+    if (!(version instanceof Number)
+        || ((Number) version).intValue() != VERSION
+        || !(issuedAt instanceof Number)
+        || !(assemblies instanceof Collection)) {
+      return null;
+    }
+
+    List<String> names = new ArrayList<>(((Collection<?>) assemblies).size());
+    for (Object name : (Collection<?>) assemblies) {
+      names.add(String.valueOf(name));
+    }
+    return new AuthzClaim(((Number) issuedAt).longValue(), names);
+  }
+
+  @Override
+  public String toString() {
+    return "AuthzClaim{"
+        + "issuedAt="
+        + issuedAt
+        + ", assemblies="
+        + Arrays.toString(assemblies)
+        + '}';
+  }
+}
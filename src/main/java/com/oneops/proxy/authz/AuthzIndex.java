@@ -0,0 +1,391 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.authz;
+
+import static com.oneops.proxy.authz.OneOpsTeam.SECRETS_ADMIN_TEAM;
+import static com.oneops.user.Tables.TEAMS_USERS;
+import static com.oneops.user.tables.CiProxies.CI_PROXIES;
+import static com.oneops.user.tables.CiProxiesTeams.CI_PROXIES_TEAMS;
+import static com.oneops.user.tables.Teams.TEAMS;
+import static com.oneops.user.tables.Users.USERS;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.model.AppGroup;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.slf4j.*;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * An in-memory index of the OneOps assembly secrets admins, bulk loaded from the OneOps DB for all
+ * the auth domains. The index maps an assembly to the users of it's secrets admin teams (see {@link
+ * OneOpsTeam#hasAdminAccess(String)}), so that the authz check is just a couple of hash lookups.
+ *
+ * <p>The index is reloaded periodically in the background. The assemblies, teams and users are
+ * loaded incrementally using their <b>updated_at</b> timestamps and the team links (which doesn't
+ * have timestamps) are reloaded every time. A full reload is done at {@link
+ * OneOpsConfig.Authz#getIndexFullReloadSec()} interval to clean up the deleted entities. A new
+ * index is built on each reload and swapped atomically, so the readers never see a partial index.
+ *
+ * <p>The index is eventually consistent. Enable it using <b>oneops.authz.index-enabled</b>.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnProperty("oneops.authz.index-enabled")
+public class AuthzIndex {
+
+  private static final String ASSEMBLY_CLASS = "account.Assembly";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final UserRepository userRepo;
+
+  private final DropwizardMetricServices metricService;
+
+  private final Timer reloadTimer;
+
+  private final Meter hits;
+
+  private final Meter misses;
+
+  private final OneOpsConfig.Authz config;
+
+  /** Loaded entities for each domain. Only accessed from the loader thread. */
+  private final Map<AuthDomain, Entities> entities = new EnumMap<>(AuthDomain.class);
+
+  /** Current index for each domain. The whole map is replaced on reload. */
+  private volatile Map<AuthDomain, Index> indexes = Collections.emptyMap();
+
+  private ScheduledExecutorService loader;
+
+  private ScheduledFuture<?> reloadTask;
+
+  public AuthzIndex(
+      UserRepository userRepo,
+      DropwizardMetricServices metricService,
+      MetricsUtilService metricsUtil,
+      OneOpsConfig config) {
+    this.userRepo = userRepo;
+    this.metricService = metricService;
+    this.reloadTimer = metricsUtil.timer("oneops.authz.index.reload");
+    this.hits = metricsUtil.meter("oneops.authz.index.hit");
+    this.misses = metricsUtil.meter("oneops.authz.index.miss");
+    this.config = config.getAuthz();
+  }
+
+  @PostConstruct
+  public void start() {
+    loader =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "authz-index-loader");
+              t.setDaemon(true);
+              return t;
+            });
+    reloadTask =
+        loader.scheduleWithFixedDelay(this::reload, 0, config.getIndexReloadSec(), SECONDS);
+    log.info("Started authz index loader, " + config);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (reloadTask != null) {
+      reloadTask.cancel(true);
+    }
+    if (loader != null) {
+      loader.shutdownNow();
+    }
+  }
+
+  /**
+   * Checks if the user is a secrets admin of the application group assembly.
+   *
+   * @param userName oneops user name.
+   * @param appGroup {@link AppGroup}
+   * @return <code>true</code> if the user is a secrets admin. <code>false</code> if not or the
+   *     index for the domain is not yet loaded.
+   */
+  public boolean isAdmin(@Nonnull String userName, @Nonnull AppGroup appGroup) {
+    Index index = indexes.get(appGroup.getDomain());
+    if (index == null) {
+      return false;
+    }
+    boolean admin = index.isAdmin(userName, appGroup);
+    (admin ? hits : misses).mark();
+    return admin;
+  }
+
+  /**
+   * Returns the number of indexed assemblies (having secrets admins) for the domain.
+   *
+   * @param domain auth domain.
+   * @return assembly count or <code>-1</code> if the index is not yet loaded.
+   */
+  public int getAssemblyCount(@Nonnull AuthDomain domain) {
+    Index index = indexes.get(domain);
+    return index != null ? index.admins.size() : -1;
+  }
+
+  /** Reloads the index for all the auth domains. */
+  void reload() {
+    for (AuthDomain domain : AuthDomain.values()) {
+      try {
+        reload(domain);
+      } catch (Exception ex) {
+        // Keeps the current index and retries on next run.
+        log.error("Authz index reload failed for " + domain + " domain.", ex);
+        metricService.increment("meter.oneops.authz.index.reload.err");
+      }
+    }
+  }
+
+  private void reload(AuthDomain domain) {
+    long start = currentTimeMillis();
+    long startNanos = nanoTime();
+    Entities current = entities.get(domain);
+    boolean full =
+        current == null || start - current.loadedAt >= config.getIndexFullReloadSec() * 1000L;
+    Entities e = full ? new Entities(start) : current;
+
+    DSLContext dsl = userRepo.getDSLContext(domain);
+    int changes = loadAssemblies(dsl, e, full) + loadTeams(dsl, e, full) + loadUsers(dsl, e, full);
+    Index index = buildIndex(dsl, e);
+    entities.put(domain, e);
+
+    Map<AuthDomain, Index> newIndexes = new EnumMap<>(AuthDomain.class);
+    newIndexes.putAll(indexes);
+    newIndexes.put(domain, index);
+    indexes = newIndexes;
+
+    long time = nanoTime() - startNanos;
+    reloadTimer.update(time, NANOSECONDS);
+    metricService.submit(
+        "gauge.oneops.authz.index." + domain.getType() + ".assemblies", index.admins.size());
+    log.info(
+        String.format(
+            "Reloaded %s authz index for %s domain in %d ms. Changed: %d, Assemblies: %d",
+            full ? "full" : "incremental",
+            domain,
+            NANOSECONDS.toMillis(time),
+            changes,
+            index.admins.size()));
+  }
+
+  /** Loads the assembly CI proxies updated since the last load. */
+  private int loadAssemblies(DSLContext dsl, Entities e, boolean full) {
+    Condition cond = CI_PROXIES.CI_CLASS_NAME.eq(ASSEMBLY_CLASS);
+    if (!full && e.assemblyMark != null) {
+      cond = cond.and(CI_PROXIES.UPDATED_AT.ge(e.assemblyMark));
+    }
+    Result<? extends Record> records =
+        dsl.select(CI_PROXIES.ID, CI_PROXIES.NS_PATH, CI_PROXIES.CI_NAME, CI_PROXIES.UPDATED_AT)
+            .from(CI_PROXIES)
+            .where(cond)
+            .fetch();
+    for (Record r : records) {
+      String nsPath = r.get(CI_PROXIES.NS_PATH);
+      String name = r.get(CI_PROXIES.CI_NAME);
+      if (nsPath != null && name != null) {
+        e.assemblies.put(r.get(CI_PROXIES.ID), new Assembly(nsPath, name));
+      }
+      e.assemblyMark = max(e.assemblyMark, r.get(CI_PROXIES.UPDATED_AT));
+    }
+    return records.size();
+  }
+
+  /** Loads the teams updated since the last load. */
+  private int loadTeams(DSLContext dsl, Entities e, boolean full) {
+    Condition cond = DSL.trueCondition();
+    if (!full && e.teamMark != null) {
+      cond = TEAMS.UPDATED_AT.ge(e.teamMark);
+    }
+    Result<? extends Record> records =
+        dsl.select(
+                TEAMS.ID,
+                TEAMS.NAME,
+                TEAMS.DESCRIPTION,
+                TEAMS.DESIGN,
+                TEAMS.TRANSITION,
+                TEAMS.OPERATIONS,
+                TEAMS.UPDATED_AT)
+            .from(TEAMS)
+            .where(cond)
+            .fetch();
+    for (Record r : records) {
+      OneOpsTeam team =
+          new OneOpsTeam(
+              r.get(TEAMS.NAME),
+              r.get(TEAMS.DESCRIPTION),
+              Boolean.TRUE.equals(r.get(TEAMS.DESIGN)),
+              Boolean.TRUE.equals(r.get(TEAMS.TRANSITION)),
+              Boolean.TRUE.equals(r.get(TEAMS.OPERATIONS)));
+      e.teams.put(r.get(TEAMS.ID), team);
+      e.teamMark = max(e.teamMark, r.get(TEAMS.UPDATED_AT));
+    }
+    return records.size();
+  }
+
+  /** Loads the users updated since the last load. */
+  private int loadUsers(DSLContext dsl, Entities e, boolean full) {
+    Condition cond = DSL.trueCondition();
+    if (!full && e.userMark != null) {
+      cond = USERS.UPDATED_AT.ge(e.userMark);
+    }
+    Result<? extends Record> records =
+        dsl.select(USERS.ID, USERS.USERNAME, USERS.UPDATED_AT)
+            .from(USERS)
+            .where(cond)
+            .fetch();
+    for (Record r : records) {
+      String userName = r.get(USERS.USERNAME);
+      if (userName != null) {
+        e.users.put(r.get(USERS.ID), userName.toLowerCase());
+      }
+      e.userMark = max(e.userMark, r.get(USERS.UPDATED_AT));
+    }
+    return records.size();
+  }
+
+  /**
+   * Builds a new index from the loaded entities. The team links don't have any timestamps, so
+   * those are always loaded fully. Only the users of secrets admin teams are loaded.
+   */
+  private Index buildIndex(DSLContext dsl, Entities e) {
+    Set<Integer> adminTeams = new HashSet<>();
+    e.teams.forEach(
+        (id, team) -> {
+          if (team.isDesign()
+              && team.isTransition()
+              && team.getName() != null
+              && team.getName().toLowerCase().contains(SECRETS_ADMIN_TEAM)) {
+            adminTeams.add(id);
+          }
+        });
+
+    Map<Integer, Set<String>> teamUsers = new HashMap<>();
+    if (!adminTeams.isEmpty()) {
+      Result<Record2<Integer, Integer>> links =
+          dsl.select(TEAMS_USERS.TEAM_ID, TEAMS_USERS.USER_ID)
+              .from(TEAMS_USERS)
+              .where(TEAMS_USERS.TEAM_ID.in(adminTeams))
+              .fetch();
+      for (Record2<Integer, Integer> link : links) {
+        String user = e.users.get(link.value2());
+        if (user != null) {
+          teamUsers.computeIfAbsent(link.value1(), k -> new HashSet<>()).add(user);
+        }
+      }
+    }
+
+    Map<String, List<Set<String>>> admins = new HashMap<>();
+    if (!teamUsers.isEmpty()) {
+      Result<Record2<Integer, Integer>> links =
+          dsl.select(CI_PROXIES_TEAMS.CI_PROXY_ID, CI_PROXIES_TEAMS.TEAM_ID)
+              .from(CI_PROXIES_TEAMS)
+              .where(CI_PROXIES_TEAMS.TEAM_ID.in(teamUsers.keySet()))
+              .fetch();
+      for (Record2<Integer, Integer> link : links) {
+        Assembly assembly = e.assemblies.get(link.value1());
+        OneOpsTeam team = e.teams.get(link.value2());
+        Set<String> users = teamUsers.get(link.value2());
+        if (assembly != null
+            && team != null
+            && users != null
+            && team.hasAdminAccess(assembly.name)) {
+          admins.computeIfAbsent(assembly.key, k -> new ArrayList<>(2)).add(users);
+        }
+      }
+    }
+    return new Index(admins);
+  }
+
+  private static Timestamp max(Timestamp t1, Timestamp t2) {
+    if (t1 == null) {
+      return t2;
+    }
+    return t2 != null && t2.after(t1) ? t2 : t1;
+  }
+
+  /** Assembly index key, ie <b>/{org}/{assembly}</b> in lowercase. */
+  private static String key(String orgNsPath, String assembly) {
+    return (orgNsPath + "/" + assembly).toLowerCase();
+  }
+
+  /** Assembly CI proxy. */
+  private static final class Assembly {
+    private final String key;
+    private final String name;
+
+    Assembly(String orgNsPath, String name) {
+      this.key = key(orgNsPath, name);
+      this.name = name;
+    }
+  }
+
+  /** Loaded entities of a domain, keyed by it's DB id. */
+  private static final class Entities {
+    private final long loadedAt;
+    private final Map<Integer, Assembly> assemblies = new HashMap<>();
+    private final Map<Integer, OneOpsTeam> teams = new HashMap<>();
+    private final Map<Integer, String> users = new HashMap<>();
+    private Timestamp assemblyMark;
+    private Timestamp teamMark;
+    private Timestamp userMark;
+
+    Entities(long loadedAt) {
+      this.loadedAt = loadedAt;
+    }
+  }
+
+  /** Immutable authz index of a domain. */
+  private static final class Index {
+    /** Assembly key to the users of each of it's secrets admin teams. */
+    private final Map<String, List<Set<String>>> admins;
+
+    Index(Map<String, List<Set<String>>> admins) {
+      this.admins = admins;
+    }
+
+    boolean isAdmin(String userName, AppGroup appGroup) {
+      List<Set<String>> teams = admins.get(key(appGroup.getOrgNsPath(), appGroup.getAssembly()));
+      if (teams != null) {
+        String user = userName.toLowerCase();
+        for (Set<String> users : teams) {
+          if (users.contains(user)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+}
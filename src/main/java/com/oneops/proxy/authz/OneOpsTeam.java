@@ -117,6 +117,17 @@ public class OneOpsTeam {
         || (RESTRICTED_TEAM_PREFIX + assemblySecretsAdmin).equalsIgnoreCase(name);
   }
 
+  /**
+   * Checks if the team is a Secrets admin for the given assembly and has access to manage design
+   * and transition.
+   *
+   * @param assembly OneOps assembly name.
+   * @return <code>true</code> if the team has admin access.
+   */
+  public boolean hasAdminAccess(String assembly) {
+    return isSecretsAdmin(assembly) && design && transition;
+  }
+
   @Override
   public String toString() {
     return "OneOpsTeam{"
@@ -21,28 +21,36 @@ import static com.oneops.proxy.authz.AuthDomain.DEV;
 import static com.oneops.proxy.authz.AuthDomain.MGMT;
 import static com.oneops.proxy.authz.AuthDomain.PROD;
 import static com.oneops.proxy.authz.AuthDomain.STG;
+import static com.oneops.proxy.metrics.MetricsUtilService.stop;
 import static com.oneops.user.Tables.TEAMS_USERS;
 import static com.oneops.user.tables.CiProxies.CI_PROXIES;
 import static com.oneops.user.tables.CiProxiesTeams.CI_PROXIES_TEAMS;
 import static com.oneops.user.tables.Teams.TEAMS;
 import static com.oneops.user.tables.Users.USERS;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.*;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
 import com.oneops.proxy.model.AppGroup;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
+import org.jooq.ResultQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -54,6 +62,9 @@ import org.springframework.stereotype.Repository;
  * <p>Note: JOOQ query has 1:1 mapping with SQL and is very easy to understand. If you want to see
  * the generated SQL (for debugging), add <b>org.jooq.tools: DEBUG</b> in application.yaml file.
  *
+ * <p>The user teams are cached for a short time ({@link OneOpsConfig.Authz}), as it's queried for
+ * every authorized request. The hot entries are refreshed in the background before it expires.
+ *
  * @author Suresh
  */
 // @Transactional
@@ -65,16 +76,32 @@ public class UserRepository {
   /** Holds the DSLContext for all data sources. */
   private Map<AuthDomain, DSLContext> dslContextMap;
 
-  private DropwizardMetricServices metricService;
+  private final Timer teamsTimer;
+
+  private final Timer assembliesTimer;
+
+  private final Timer allTeamsTimer;
+
+  private final Meter teamsCacheHit;
+
+  private final Meter teamsCacheMiss;
+
+  /** User teams cache, <code>null</code> if it's disabled. */
+  private LoadingCache<TeamsKey, List<OneOpsTeam>> teamsCache;
 
   public UserRepository(
       @Qualifier("prod") DSLContext prodDSLContext,
       @Qualifier("mgmt") DSLContext mgmtDSLContext,
       @Qualifier("stg") DSLContext stgDSLContext,
       @Qualifier("dev") DSLContext devDSLContext,
-      DropwizardMetricServices metricService) {
+      MetricsUtilService metricsUtil,
+      OneOpsConfig config) {
 
-    this.metricService = metricService;
+    this.teamsTimer = metricsUtil.timer("oneops.user.teams");
+    this.assembliesTimer = metricsUtil.timer("oneops.user.assemblies");
+    this.allTeamsTimer = metricsUtil.timer("oneops.user.allteams");
+    this.teamsCacheHit = metricsUtil.meter("oneops.user.teams.cache.hit");
+    this.teamsCacheMiss = metricsUtil.meter("oneops.user.teams.cache.miss");
     dslContextMap = new HashMap<>(4);
     dslContextMap.put(PROD, prodDSLContext);
     dslContextMap.put(MGMT, mgmtDSLContext);
@@ -82,6 +109,23 @@ public class UserRepository {
     dslContextMap.put(DEV, devDSLContext);
 
     log.info("Initialized DSL contexts are, " + dslContextMap.keySet());
+
+    OneOpsConfig.Authz authz = config.getAuthz();
+    if (authz.getTeamsCacheTtlSec() > 0) {
+      Caffeine<Object, Object> builder =
+          Caffeine.newBuilder()
+              .maximumSize(authz.getTeamsCacheSize())
+              .expireAfterWrite(authz.getTeamsCacheTtlSec(), SECONDS)
+              .recordStats();
+      if (authz.getTeamsCacheRefreshSec() > 0
+          && authz.getTeamsCacheRefreshSec() < authz.getTeamsCacheTtlSec()) {
+        builder.refreshAfterWrite(authz.getTeamsCacheRefreshSec(), SECONDS);
+      }
+      LoadingCache<TeamsKey, List<OneOpsTeam>> cache = builder.build(this::queryTeams);
+      metricsUtil.gauge("oneops.user.teams.cache.hitRate", () -> cache.stats().hitRate());
+      teamsCache = cache;
+    }
+    log.info("User teams cache config: " + authz);
   }
 
   /** A helper method to map the team record to {@link OneOpsTeam} */
@@ -99,45 +143,167 @@ public class UserRepository {
    */
   public List<OneOpsTeam> getTeams(
       @Nonnull final String userName, @Nonnull final AppGroup appGroup) {
+    TeamsKey key = new TeamsKey(appGroup.getDomain(), userName, appGroup);
+    if (teamsCache == null) {
+      return queryTeams(key);
+    }
+
+    // Single lookup, the mapping function only runs on a miss.
+    boolean[] miss = new boolean[1];
+    List<OneOpsTeam> teams =
+        teamsCache.get(
+            key,
+            k -> {
+              miss[0] = true;
+              return queryTeams(k);
+            });
+    (miss[0] ? teamsCacheMiss : teamsCacheHit).mark();
+    return teams;
+  }
+
+  /** Queries all the teams having given user in the assembly. */
+  private List<OneOpsTeam> queryTeams(TeamsKey key) {
     log.info(
         "Querying "
-            + appGroup.getDomain()
+            + key.domain
             + " teams having user: "
-            + userName
-            + " for application group: "
-            + appGroup.getNsPath());
+            + key.user
+            + " for assembly: /"
+            + key.org
+            + "/"
+            + key.assembly);
 
-    long start = currentTimeMillis();
     Condition teamCondition =
         USERS
             .USERNAME
-            .equalIgnoreCase(userName)
+            .equalIgnoreCase(key.user)
             .and(
                 CI_PROXIES
                     .NS_PATH
-                    .equalIgnoreCase(appGroup.getOrgNsPath())
+                    .equalIgnoreCase("/" + key.org)
                     .and(
                         CI_PROXIES
                             .CI_NAME
-                            .equalIgnoreCase(appGroup.getAssembly())
+                            .equalIgnoreCase(key.assembly)
                             .and(CI_PROXIES.CI_CLASS_NAME.eq("account.Assembly"))));
     // Read like SQL :)
     Result<Record> records =
-        getDSLContext(appGroup)
-            .select(TEAMS.fields())
-            .from(CI_PROXIES)
-            .innerJoin(CI_PROXIES_TEAMS)
-            .on(CI_PROXIES.ID.eq(CI_PROXIES_TEAMS.CI_PROXY_ID))
-            .innerJoin(TEAMS)
-            .on(TEAMS.ID.eq(CI_PROXIES_TEAMS.TEAM_ID))
-            .innerJoin(TEAMS_USERS)
-            .on(TEAMS_USERS.TEAM_ID.eq(TEAMS.ID))
-            .innerJoin(USERS)
-            .on(USERS.ID.eq(TEAMS_USERS.USER_ID))
-            .where(teamCondition)
-            .fetch();
-    metricService.submit("timer.oneops.user.teams", currentTimeMillis() - start);
-    return records.stream().map(UserRepository::mapRecord).collect(Collectors.toList());
+        fetch(
+            "teams",
+            teamsTimer,
+            getDSLContext(key.domain)
+                .select(TEAMS.fields())
+                .from(CI_PROXIES)
+                .innerJoin(CI_PROXIES_TEAMS)
+                .on(CI_PROXIES.ID.eq(CI_PROXIES_TEAMS.CI_PROXY_ID))
+                .innerJoin(TEAMS)
+                .on(TEAMS.ID.eq(CI_PROXIES_TEAMS.TEAM_ID))
+                .innerJoin(TEAMS_USERS)
+                .on(TEAMS_USERS.TEAM_ID.eq(TEAMS.ID))
+                .innerJoin(USERS)
+                .on(USERS.ID.eq(TEAMS_USERS.USER_ID))
+                .where(teamCondition));
+    List<OneOpsTeam> teams =
+        records.stream().map(UserRepository::mapRecord).collect(Collectors.toList());
+    return Collections.unmodifiableList(teams);
+  }
+
+  /**
+   * Returns all the assemblies the user is a secrets admin of (see {@link
+   * OneOpsTeam#hasAdminAccess(String)}).
+   *
+   * @param userName oneops user name
+   * @param domain auth domain
+   * @return list of assembly names in <b>{org}/{assembly}</b> format.
+   */
+  public List<String> getAdminAssemblies(
+      @Nonnull final String userName, @Nonnull final AuthDomain domain) {
+    log.debug("Querying " + domain + " secrets admin assemblies of user: " + userName);
+
+    Condition condition =
+        USERS
+            .USERNAME
+            .equalIgnoreCase(userName)
+            .and(CI_PROXIES.CI_CLASS_NAME.eq("account.Assembly"))
+            .and(TEAMS.DESIGN.isTrue())
+            .and(TEAMS.TRANSITION.isTrue());
+    Result<Record> records =
+        fetch(
+            "assemblies",
+            assembliesTimer,
+            getDSLContext(domain)
+                .select(CI_PROXIES.NS_PATH, CI_PROXIES.CI_NAME)
+                .select(TEAMS.fields())
+                .from(USERS)
+                .innerJoin(TEAMS_USERS)
+                .on(TEAMS_USERS.USER_ID.eq(USERS.ID))
+                .innerJoin(TEAMS)
+                .on(TEAMS.ID.eq(TEAMS_USERS.TEAM_ID))
+                .innerJoin(CI_PROXIES_TEAMS)
+                .on(CI_PROXIES_TEAMS.TEAM_ID.eq(TEAMS.ID))
+                .innerJoin(CI_PROXIES)
+                .on(CI_PROXIES.ID.eq(CI_PROXIES_TEAMS.CI_PROXY_ID))
+                .where(condition));
+
+    List<String> assemblies = new ArrayList<>();
+    for (Record r : records) {
+      String assembly = r.get(CI_PROXIES.CI_NAME);
+      String orgNsPath = r.get(CI_PROXIES.NS_PATH);
+      if (assembly != null && orgNsPath != null && mapRecord(r).hasAdminAccess(assembly)) {
+        assemblies.add(AuthzClaim.assemblyName(orgNsPath.substring(1), assembly));
+      }
+    }
+    return assemblies;
+  }
+
+  /**
+   * Invalidates the cached user teams.
+   *
+   * @param domain auth domain. <code>null</code> matches all the domains.
+   * @param userName oneops user name. <code>null</code> matches all the users.
+   * @return number of cache entries invalidated.
+   */
+  public int invalidateTeams(@Nullable AuthDomain domain, @Nullable String userName) {
+    if (teamsCache == null) {
+      return 0;
+    }
+    String user = userName != null ? userName.toLowerCase() : null;
+    List<TeamsKey> keys = new ArrayList<>();
+    for (TeamsKey key : teamsCache.asMap().keySet()) {
+      if ((domain == null || key.domain == domain) && (user == null || key.user.equals(user))) {
+        keys.add(key);
+      }
+    }
+    teamsCache.invalidateAll(keys);
+    log.info("Invalidated " + keys.size() + " user teams cache entries.");
+    return keys.size();
+  }
+
+  /**
+   * Returns the user teams cache stats.
+   *
+   * @return {@link CacheStats} or <code>null</code> if the cache is disabled.
+   */
+  public @Nullable CacheStats getTeamsCacheStats() {
+    return teamsCache != null ? teamsCache.stats() : null;
+  }
+
+  /**
+   * Checks if the user teams of the application group are cached, without updating the cache
+   * stats.
+   *
+   * @param userName oneops user name
+   * @param appGroup {@link AppGroup}
+   * @return <code>true</code> if the teams are cached.
+   */
+  public boolean isTeamsCached(@Nonnull String userName, @Nonnull AppGroup appGroup) {
+    return teamsCache != null
+        && teamsCache.asMap().containsKey(new TeamsKey(appGroup.getDomain(), userName, appGroup));
+  }
+
+  /** Returns the approximate number of cached user teams. */
+  public long getTeamsCacheSize() {
+    return teamsCache != null ? teamsCache.estimatedSize() : 0;
   }
 
   /**
@@ -149,7 +315,6 @@ public class UserRepository {
   public List<OneOpsTeam> getAllTeams(@Nonnull final AppGroup appGroup) {
     log.debug("Retrieving all teams for application group: " + appGroup.getNsPath());
 
-    long start = currentTimeMillis();
     Condition teamCondition =
         CI_PROXIES
             .NS_PATH
@@ -162,27 +327,76 @@ public class UserRepository {
 
     // Read like SQL :)
     Result<Record> records =
-        getDSLContext(appGroup)
-            .select(TEAMS.fields())
-            .from(CI_PROXIES)
-            .innerJoin(CI_PROXIES_TEAMS)
-            .on(CI_PROXIES.ID.eq(CI_PROXIES_TEAMS.CI_PROXY_ID))
-            .innerJoin(TEAMS)
-            .on(TEAMS.ID.eq(CI_PROXIES_TEAMS.TEAM_ID))
-            .where(teamCondition)
-            .fetch();
-    metricService.submit("timer.oneops.user.allteams", currentTimeMillis() - start);
+        fetch(
+            "allteams",
+            allTeamsTimer,
+            getDSLContext(appGroup.getDomain())
+                .select(TEAMS.fields())
+                .from(CI_PROXIES)
+                .innerJoin(CI_PROXIES_TEAMS)
+                .on(CI_PROXIES.ID.eq(CI_PROXIES_TEAMS.CI_PROXY_ID))
+                .innerJoin(TEAMS)
+                .on(TEAMS.ID.eq(CI_PROXIES_TEAMS.TEAM_ID))
+                .where(teamCondition));
     return records.stream().map(UserRepository::mapRecord).collect(Collectors.toList());
   }
 
+  /** Runs the query, recording its time in the timer and the {@link RequestTiming}. */
+  private static Result<Record> fetch(String name, Timer timer, ResultQuery<Record> query) {
+    long start = nanoTime();
+    String status = RequestTiming.ERROR;
+    try {
+      Result<Record> records = query.fetch();
+      status = RequestTiming.OK;
+      return records;
+    } finally {
+      stop(timer, start);
+      RequestTiming.call(Stage.DB, name, start, status);
+    }
+  }
+
   /**
-   * Returns the {@link DSLContext} for given AppGroup domain. Defaults to <b>prod</b>, if it can't
-   * the domain.
+   * Returns the {@link DSLContext} for given auth domain.
    *
-   * @param appGroup {@link AppGroup}
+   * @param domain {@link AuthDomain}
    */
-  private DSLContext getDSLContext(AppGroup appGroup) {
-    DSLContext dslContext = dslContextMap.get(appGroup.getDomain());
+  DSLContext getDSLContext(AuthDomain domain) {
+    DSLContext dslContext = dslContextMap.get(domain);
     return Objects.requireNonNull(dslContext, "Invalid auth domain");
   }
+
+  /** User teams cache key. The user name and assembly are case insensitive. */
+  private static final class TeamsKey {
+    private final AuthDomain domain;
+    private final String user;
+    private final String org;
+    private final String assembly;
+
+    TeamsKey(AuthDomain domain, String user, AppGroup appGroup) {
+      this.domain = domain;
+      this.user = user.toLowerCase();
+      this.org = appGroup.getOrg().toLowerCase();
+      this.assembly = appGroup.getAssembly().toLowerCase();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof TeamsKey)) {
+        return false;
+      }
+      TeamsKey key = (TeamsKey) o;
+      return domain == key.domain
+          && user.equals(key.user)
+          && org.equals(key.org)
+          && assembly.equals(key.assembly);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(domain, user, org, assembly);
+    }
+  }
 }
@@ -25,6 +25,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oneops.proxy.keywhiz.KeywhizAutomationClient;
 import com.oneops.proxy.keywhiz.KeywhizClient;
 import com.oneops.proxy.ldap.LdapClient;
+import com.oneops.proxy.metrics.MetricsUtilService;
 import com.oneops.proxy.security.KeywhizKeyStore;
 import java.security.GeneralSecurityException;
 import org.slf4j.Logger;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -122,9 +124,12 @@ public class ApplicationConfig {
   @Bean
   @Lazy
   public LdapClient ldapClient(
-      OneOpsConfig config, @Qualifier("ldapKeyStore") KeywhizKeyStore keywhizKeyStore)
+      OneOpsConfig config,
+      @Qualifier("ldapKeyStore") KeywhizKeyStore keywhizKeyStore,
+      DropwizardMetricServices metricService,
+      MetricsUtilService metricsUtil)
       throws GeneralSecurityException {
-    return new LdapClient(config.getLdap(), keywhizKeyStore);
+    return new LdapClient(config.getLdap(), keywhizKeyStore, metricService, metricsUtil);
   }
 
   /**
@@ -48,13 +48,14 @@ public class CacheConfig {
 
   /**
    * Default cache spec configuration for all the caches. The default cache size is 200 and would
-   * expire after a min (60sec) of write operation.
+   * expire after a min (60sec) of write operation. The cache stats are recorded for the
+   * <b>/prometheus</b> endpoint.
    *
    * @return {@link CaffeineSpec}
    */
   @Bean
   public CaffeineSpec caffeineSpec() {
-    CaffeineSpec spec = CaffeineSpec.parse("maximumSize=200,expireAfterWrite=300s");
+    CaffeineSpec spec = CaffeineSpec.parse("maximumSize=200,expireAfterWrite=300s,recordStats");
     log.info("Using CaffeineSpec " + spec.toParsableString());
     return spec;
   }
@@ -41,6 +41,9 @@ public interface Constants {
   /** Authentication token path URI. */
   String AUTH_TOKEN_URI = AUTH_CTLR_BASE_PATH + "/token";
 
+  /** Access token refresh path URI. */
+  String AUTH_REFRESH_URI = AUTH_CTLR_BASE_PATH + "/refresh";
+
   /** {@link com.oneops.proxy.web.GroupController} base path URI. */
   String GROUP_CTLR_BASE_PATH = "/" + API_VERSION + "/apps/" + "{" + APP_NAME_PARAM + "}";
 
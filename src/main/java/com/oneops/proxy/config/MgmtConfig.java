@@ -17,9 +17,11 @@
  */
 package com.oneops.proxy.config;
 
+import com.oneops.proxy.metrics.MetricsUtilService;
 import org.springframework.boot.SpringBootVersion;
 import org.springframework.boot.actuate.autoconfigure.ExportMetricWriter;
 import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.actuate.metrics.dropwizard.ReservoirFactory;
 import org.springframework.boot.actuate.metrics.jmx.JmxMetricWriter;
 import org.springframework.boot.actuate.metrics.writer.MetricWriter;
 import org.springframework.context.annotation.*;
@@ -43,6 +45,15 @@ public class MgmtConfig {
     return builder -> builder.withDetail("spring-boot.version", SpringBootVersion.getVersion());
   }
 
+  /**
+   * Uses the HdrHistogram reservoir for the timers and histograms submitted to the metric service
+   * also.
+   */
+  @Bean
+  public ReservoirFactory reservoirFactory(MetricsUtilService metricsUtil) {
+    return name -> metricsUtil.newReservoir();
+  }
+
   /** Exports actuator metrics to JMX. */
   @Bean
   @ExportMetricWriter
@@ -17,7 +17,8 @@
  */
 package com.oneops.proxy.config;
 
-import java.util.List;
+import com.oneops.proxy.audit.EventTag;
+import java.util.*;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -43,6 +44,12 @@ public class OneOpsConfig {
 
   private Proxy proxy;
 
+  private Authz authz = new Authz();
+
+  private Audit audit = new Audit();
+
+  private Metrics metrics = new Metrics();
+
   public Keywhiz getKeywhiz() {
     return keywhiz;
   }
@@ -75,6 +82,30 @@ public class OneOpsConfig {
     this.proxy = proxy;
   }
 
+  public Authz getAuthz() {
+    return authz;
+  }
+
+  public void setAuthz(Authz authz) {
+    this.authz = authz;
+  }
+
+  public Audit getAudit() {
+    return audit;
+  }
+
+  public void setAudit(Audit audit) {
+    this.audit = audit;
+  }
+
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String toString() {
     return "OneOpsConfig{"
@@ -86,6 +117,12 @@ public class OneOpsConfig {
         + auth
         + ", proxy="
         + proxy
+        + ", authz="
+        + authz
+        + ", audit="
+        + audit
+        + ", metrics="
+        + metrics
         + '}';
   }
 
@@ -255,6 +292,26 @@ public class OneOpsConfig {
   public static class LDAP {
     @NotNull private String server;
 
+    /** Additional LDAP server (domain controller) URLs, used for the failover. */
+    private List<String> servers = new ArrayList<>();
+
+    @Min(1)
+    private int connectTimeoutMs = 5_000;
+
+    @Min(1)
+    private int responseTimeoutMs = 5_000;
+
+    /** How often the LDAP servers are probed for health and latency, in secs. */
+    @Min(1)
+    private int healthCheckPeriodSec = 10;
+
+    /**
+     * LDAP servers with moving average latency above this threshold are not used, as long as there
+     * is a faster healthy server.
+     */
+    @Min(1)
+    private int slowServerThresholdMs = 500;
+
     @Min(1)
     @Max(65535)
     private int port;
@@ -277,6 +334,35 @@ public class OneOpsConfig {
 
     @NotNull @NestedConfigurationProperty private Keystore keyStore;
 
+    /**
+     * Time to cache the successful user authentications, in secs. <b>0</b> disables the login
+     * cache.
+     */
+    @Min(0)
+    private int authCacheTtlSec = 0;
+
+    /** Max number of users in the login cache. */
+    @Min(1)
+    private long authCacheSize = 10_000;
+
+    /** PBKDF2 iterations used to hash the cached user credentials. */
+    @Min(1_000)
+    private int authCacheHashIterations = 10_000;
+
+    /** Max number of LDAP search results (user/role searches) cached. */
+    @Min(1)
+    private long searchCacheSize = 10_000;
+
+    /** Time to cache the LDAP search results, in secs. */
+    @Min(1)
+    private int searchCacheTtlSec = 1800;
+
+    /** Time after which a cached search result is refreshed in the background. 0 disables it. */
+    @Min(0)
+    private int searchCacheRefreshSec = 900;
+
+    @NotNull @NestedConfigurationProperty private LdapPool pool = new LdapPool();
+
     public String getServer() {
       return server;
     }
@@ -285,6 +371,57 @@ public class OneOpsConfig {
       this.server = server;
     }
 
+    public List<String> getServers() {
+      return servers;
+    }
+
+    public void setServers(List<String> servers) {
+      this.servers = servers;
+    }
+
+    /** Returns all the LDAP server URLs, starting with the {@link #server}. */
+    public List<String> getServerUrls() {
+      Set<String> urls = new LinkedHashSet<>();
+      urls.add(server);
+      if (servers != null) {
+        servers.stream().filter(Objects::nonNull).map(String::trim).forEach(urls::add);
+        urls.remove("");
+      }
+      return new ArrayList<>(urls);
+    }
+
+    public int getConnectTimeoutMs() {
+      return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+      this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getResponseTimeoutMs() {
+      return responseTimeoutMs;
+    }
+
+    public void setResponseTimeoutMs(int responseTimeoutMs) {
+      this.responseTimeoutMs = responseTimeoutMs;
+    }
+
+    public int getHealthCheckPeriodSec() {
+      return healthCheckPeriodSec;
+    }
+
+    public void setHealthCheckPeriodSec(int healthCheckPeriodSec) {
+      this.healthCheckPeriodSec = healthCheckPeriodSec;
+    }
+
+    public int getSlowServerThresholdMs() {
+      return slowServerThresholdMs;
+    }
+
+    public void setSlowServerThresholdMs(int slowServerThresholdMs) {
+      this.slowServerThresholdMs = slowServerThresholdMs;
+    }
+
     public int getPort() {
       return port;
     }
@@ -365,12 +502,78 @@ public class OneOpsConfig {
       this.keyStore = keyStore;
     }
 
+    public int getAuthCacheTtlSec() {
+      return authCacheTtlSec;
+    }
+
+    public void setAuthCacheTtlSec(int authCacheTtlSec) {
+      this.authCacheTtlSec = authCacheTtlSec;
+    }
+
+    public long getAuthCacheSize() {
+      return authCacheSize;
+    }
+
+    public void setAuthCacheSize(long authCacheSize) {
+      this.authCacheSize = authCacheSize;
+    }
+
+    public int getAuthCacheHashIterations() {
+      return authCacheHashIterations;
+    }
+
+    public void setAuthCacheHashIterations(int authCacheHashIterations) {
+      this.authCacheHashIterations = authCacheHashIterations;
+    }
+
+    public long getSearchCacheSize() {
+      return searchCacheSize;
+    }
+
+    public void setSearchCacheSize(long searchCacheSize) {
+      this.searchCacheSize = searchCacheSize;
+    }
+
+    public int getSearchCacheTtlSec() {
+      return searchCacheTtlSec;
+    }
+
+    public void setSearchCacheTtlSec(int searchCacheTtlSec) {
+      this.searchCacheTtlSec = searchCacheTtlSec;
+    }
+
+    public int getSearchCacheRefreshSec() {
+      return searchCacheRefreshSec;
+    }
+
+    public void setSearchCacheRefreshSec(int searchCacheRefreshSec) {
+      this.searchCacheRefreshSec = searchCacheRefreshSec;
+    }
+
+    public LdapPool getPool() {
+      return pool;
+    }
+
+    public void setPool(LdapPool pool) {
+      this.pool = pool;
+    }
+
     @Override
     public String toString() {
       return "LDAP{"
           + "server='"
           + server
           + '\''
+          + ", servers="
+          + servers
+          + ", connectTimeoutMs="
+          + connectTimeoutMs
+          + ", responseTimeoutMs="
+          + responseTimeoutMs
+          + ", healthCheckPeriodSec="
+          + healthCheckPeriodSec
+          + ", slowServerThresholdMs="
+          + slowServerThresholdMs
           + ", port="
           + port
           + ", userDn=******"
@@ -393,6 +596,153 @@ public class OneOpsConfig {
           + trustStore
           + ", keyStore="
           + keyStore
+          + ", authCacheTtlSec="
+          + authCacheTtlSec
+          + ", authCacheSize="
+          + authCacheSize
+          + ", authCacheHashIterations="
+          + authCacheHashIterations
+          + ", searchCacheSize="
+          + searchCacheSize
+          + ", searchCacheTtlSec="
+          + searchCacheTtlSec
+          + ", searchCacheRefreshSec="
+          + searchCacheRefreshSec
+          + ", pool="
+          + pool
+          + '}';
+    }
+  }
+
+  /** LDAP connection pool config. */
+  public static class LdapPool {
+
+    @Min(0)
+    private int minSize = 3;
+
+    @Min(1)
+    private int maxSize = 10;
+
+    /** Max time to wait for a free connection, in millis. */
+    @Min(1)
+    private long blockWaitMs = 3_000;
+
+    /** Validates the connections before handing it out. */
+    private boolean validateOnCheckOut = false;
+
+    /** Validates the idle connections in the background. */
+    private boolean validatePeriodically = true;
+
+    @Min(1)
+    private int validatePeriodSec = 300;
+
+    /** How often the idle connections are pruned, in secs. */
+    @Min(1)
+    private int prunePeriodSec = 300;
+
+    /** Connections idle for more than this time are pruned, down to the min pool size. */
+    @Min(1)
+    private int idleTimeSec = 600;
+
+    /**
+     * Binds the users over a separate connection pool, so that a login doesn't have to open a new
+     * LDAPS connection.
+     */
+    private boolean pooledBind = true;
+
+    public int getMinSize() {
+      return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+      this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public long getBlockWaitMs() {
+      return blockWaitMs;
+    }
+
+    public void setBlockWaitMs(long blockWaitMs) {
+      this.blockWaitMs = blockWaitMs;
+    }
+
+    public boolean isValidateOnCheckOut() {
+      return validateOnCheckOut;
+    }
+
+    public void setValidateOnCheckOut(boolean validateOnCheckOut) {
+      this.validateOnCheckOut = validateOnCheckOut;
+    }
+
+    public boolean isValidatePeriodically() {
+      return validatePeriodically;
+    }
+
+    public void setValidatePeriodically(boolean validatePeriodically) {
+      this.validatePeriodically = validatePeriodically;
+    }
+
+    public int getValidatePeriodSec() {
+      return validatePeriodSec;
+    }
+
+    public void setValidatePeriodSec(int validatePeriodSec) {
+      this.validatePeriodSec = validatePeriodSec;
+    }
+
+    public int getPrunePeriodSec() {
+      return prunePeriodSec;
+    }
+
+    public void setPrunePeriodSec(int prunePeriodSec) {
+      this.prunePeriodSec = prunePeriodSec;
+    }
+
+    public int getIdleTimeSec() {
+      return idleTimeSec;
+    }
+
+    public void setIdleTimeSec(int idleTimeSec) {
+      this.idleTimeSec = idleTimeSec;
+    }
+
+    public boolean isPooledBind() {
+      return pooledBind;
+    }
+
+    public void setPooledBind(boolean pooledBind) {
+      this.pooledBind = pooledBind;
+    }
+
+    @Override
+    public String toString() {
+      return "LdapPool{"
+          + "minSize="
+          + minSize
+          + ", maxSize="
+          + maxSize
+          + ", blockWaitMs="
+          + blockWaitMs
+          + ", validateOnCheckOut="
+          + validateOnCheckOut
+          + ", validatePeriodically="
+          + validatePeriodically
+          + ", validatePeriodSec="
+          + validatePeriodSec
+          + ", prunePeriodSec="
+          + prunePeriodSec
+          + ", idleTimeSec="
+          + idleTimeSec
+          + ", pooledBind="
+          + pooledBind
           + '}';
     }
   }
@@ -484,6 +834,48 @@ public class OneOpsConfig {
     /** Token expiry in secs. */
     private int expiresInSec;
 
+    /** Max number of verified tokens cached till it's expiry. <b>0</b> disables the cache. */
+    @Min(0)
+    private long tokenCacheSize = 10_000;
+
+    /** Enables the refresh tokens, used to get new access tokens without login. */
+    private boolean refreshEnabled = false;
+
+    /** Refresh token expiry in secs. */
+    @Min(1)
+    private int refreshExpiresInSec = 86_400;
+
+    /** Max token refreshes allowed per user in a minute. */
+    @Min(1)
+    private int refreshRatePerMin = 6;
+
+    /** Max number of active refresh tokens. The least recently used ones are dropped. */
+    @Min(1)
+    private long refreshStoreSize = 100_000;
+
+    /**
+     * Max number of concurrent logins (LDAP authentications). The logins are processed
+     * asynchronously on a separate thread pool, so that a slow LDAP server won't block the other
+     * requests. <b>0</b> processes the logins on the request thread.
+     */
+    @Min(0)
+    private int loginThreads = 16;
+
+    /** Max number of logins waiting for a login thread. Logins beyond this are rejected. */
+    @Min(0)
+    private int loginQueueSize = 64;
+
+    /**
+     * Max time to process a login, including the wait for a login thread, in secs. The logins
+     * exceeding it are rejected.
+     */
+    @Min(1)
+    private int loginTimeoutSec = 30;
+
+    /** <b>Retry-After</b> header value for the rejected logins, in secs. */
+    @Min(1)
+    private int loginRetryAfterSec = 5;
+
     public char[] getSigningKey() {
       return signingKey;
     }
@@ -532,6 +924,78 @@ public class OneOpsConfig {
       this.compressionEnabled = compressionEnabled;
     }
 
+    public long getTokenCacheSize() {
+      return tokenCacheSize;
+    }
+
+    public void setTokenCacheSize(long tokenCacheSize) {
+      this.tokenCacheSize = tokenCacheSize;
+    }
+
+    public boolean isRefreshEnabled() {
+      return refreshEnabled;
+    }
+
+    public void setRefreshEnabled(boolean refreshEnabled) {
+      this.refreshEnabled = refreshEnabled;
+    }
+
+    public int getRefreshExpiresInSec() {
+      return refreshExpiresInSec;
+    }
+
+    public void setRefreshExpiresInSec(int refreshExpiresInSec) {
+      this.refreshExpiresInSec = refreshExpiresInSec;
+    }
+
+    public int getRefreshRatePerMin() {
+      return refreshRatePerMin;
+    }
+
+    public void setRefreshRatePerMin(int refreshRatePerMin) {
+      this.refreshRatePerMin = refreshRatePerMin;
+    }
+
+    public long getRefreshStoreSize() {
+      return refreshStoreSize;
+    }
+
+    public void setRefreshStoreSize(long refreshStoreSize) {
+      this.refreshStoreSize = refreshStoreSize;
+    }
+
+    public int getLoginThreads() {
+      return loginThreads;
+    }
+
+    public void setLoginThreads(int loginThreads) {
+      this.loginThreads = loginThreads;
+    }
+
+    public int getLoginQueueSize() {
+      return loginQueueSize;
+    }
+
+    public void setLoginQueueSize(int loginQueueSize) {
+      this.loginQueueSize = loginQueueSize;
+    }
+
+    public int getLoginTimeoutSec() {
+      return loginTimeoutSec;
+    }
+
+    public void setLoginTimeoutSec(int loginTimeoutSec) {
+      this.loginTimeoutSec = loginTimeoutSec;
+    }
+
+    public int getLoginRetryAfterSec() {
+      return loginRetryAfterSec;
+    }
+
+    public void setLoginRetryAfterSec(int loginRetryAfterSec) {
+      this.loginRetryAfterSec = loginRetryAfterSec;
+    }
+
     @Override
     public String toString() {
       return "Auth{"
@@ -548,6 +1012,24 @@ public class OneOpsConfig {
           + compressionEnabled
           + ", expiresInSec="
           + expiresInSec
+          + ", tokenCacheSize="
+          + tokenCacheSize
+          + ", refreshEnabled="
+          + refreshEnabled
+          + ", refreshExpiresInSec="
+          + refreshExpiresInSec
+          + ", refreshRatePerMin="
+          + refreshRatePerMin
+          + ", refreshStoreSize="
+          + refreshStoreSize
+          + ", loginThreads="
+          + loginThreads
+          + ", loginQueueSize="
+          + loginQueueSize
+          + ", loginTimeoutSec="
+          + loginTimeoutSec
+          + ", loginRetryAfterSec="
+          + loginRetryAfterSec
           + '}';
     }
   }
@@ -629,4 +1111,711 @@ public class OneOpsConfig {
           + '}';
     }
   }
+
+  /** OneOps application group authorization configuration. */
+  public static class Authz {
+
+    /** Max number of cached (domain, user, org, assembly) team memberships. */
+    @Min(0)
+    private long teamsCacheSize = 1000;
+
+    /** Team membership cache expiry in secs. <b>0</b> disables the cache. */
+    @Min(0)
+    private int teamsCacheTtlSec = 60;
+
+    /**
+     * Team memberships older than this are reloaded in the background on access, so that the hot
+     * entries never expire. Should be less than {@link #teamsCacheTtlSec}, else it's disabled.
+     */
+    @Min(0)
+    private int teamsCacheRefreshSec = 30;
+
+    /**
+     * Enables the in-memory authz index, which is bulk loaded from the OneOps DB for all the auth
+     * domains.
+     */
+    private boolean indexEnabled = false;
+
+    /** Incremental index reload interval in secs. */
+    @Min(1)
+    private int indexReloadSec = 60;
+
+    /** Full index reload interval in secs, which also cleans up the deleted entities. */
+    @Min(1)
+    private int indexFullReloadSec = 3600;
+
+    /**
+     * Enables the authz claim in JWT, which has all the assemblies the user is a secrets admin of.
+     */
+    private boolean tokenClaimEnabled = false;
+
+    /** Authz claims older than this are ignored and the DB is checked instead. */
+    @Min(0)
+    private int tokenClaimMaxAgeSec = 900;
+
+    /** The authz claim is not added if the user is an admin of more assemblies than this. */
+    @Min(0)
+    private int tokenClaimMaxAssemblies = 250;
+
+    public long getTeamsCacheSize() {
+      return teamsCacheSize;
+    }
+
+    public void setTeamsCacheSize(long teamsCacheSize) {
+      this.teamsCacheSize = teamsCacheSize;
+    }
+
+    public int getTeamsCacheTtlSec() {
+      return teamsCacheTtlSec;
+    }
+
+    public void setTeamsCacheTtlSec(int teamsCacheTtlSec) {
+      this.teamsCacheTtlSec = teamsCacheTtlSec;
+    }
+
+    public int getTeamsCacheRefreshSec() {
+      return teamsCacheRefreshSec;
+    }
+
+    public void setTeamsCacheRefreshSec(int teamsCacheRefreshSec) {
+      this.teamsCacheRefreshSec = teamsCacheRefreshSec;
+    }
+
+    public boolean isIndexEnabled() {
+      return indexEnabled;
+    }
+
+    public void setIndexEnabled(boolean indexEnabled) {
+      this.indexEnabled = indexEnabled;
+    }
+
+    public int getIndexReloadSec() {
+      return indexReloadSec;
+    }
+
+    public void setIndexReloadSec(int indexReloadSec) {
+      this.indexReloadSec = indexReloadSec;
+    }
+
+    public int getIndexFullReloadSec() {
+      return indexFullReloadSec;
+    }
+
+    public void setIndexFullReloadSec(int indexFullReloadSec) {
+      this.indexFullReloadSec = indexFullReloadSec;
+    }
+
+    public boolean isTokenClaimEnabled() {
+      return tokenClaimEnabled;
+    }
+
+    public void setTokenClaimEnabled(boolean tokenClaimEnabled) {
+      this.tokenClaimEnabled = tokenClaimEnabled;
+    }
+
+    public int getTokenClaimMaxAgeSec() {
+      return tokenClaimMaxAgeSec;
+    }
+
+    public void setTokenClaimMaxAgeSec(int tokenClaimMaxAgeSec) {
+      this.tokenClaimMaxAgeSec = tokenClaimMaxAgeSec;
+    }
+
+    public int getTokenClaimMaxAssemblies() {
+      return tokenClaimMaxAssemblies;
+    }
+
+    public void setTokenClaimMaxAssemblies(int tokenClaimMaxAssemblies) {
+      this.tokenClaimMaxAssemblies = tokenClaimMaxAssemblies;
+    }
+
+    @Override
+    public String toString() {
+      return "Authz{"
+          + "teamsCacheSize="
+          + teamsCacheSize
+          + ", teamsCacheTtlSec="
+          + teamsCacheTtlSec
+          + ", teamsCacheRefreshSec="
+          + teamsCacheRefreshSec
+          + ", indexEnabled="
+          + indexEnabled
+          + ", indexReloadSec="
+          + indexReloadSec
+          + ", indexFullReloadSec="
+          + indexFullReloadSec
+          + ", tokenClaimEnabled="
+          + tokenClaimEnabled
+          + ", tokenClaimMaxAgeSec="
+          + tokenClaimMaxAgeSec
+          + ", tokenClaimMaxAssemblies="
+          + tokenClaimMaxAssemblies
+          + '}';
+    }
+  }
+
+  /** Audit log configuration. */
+  public static class Audit {
+
+    /** Audit log fsync policy. */
+    public enum FsyncPolicy {
+      /** Leaves it to the OS. */
+      NONE,
+      /** Fsync after every batch. */
+      BATCH,
+      /** Fsync at most once in {@link #fsyncIntervalMs}. */
+      INTERVAL
+    }
+
+    /** Async audit log storage format. */
+    public enum Format {
+      /** Text log file, same as the logback audit log. */
+      TEXT,
+      /** Binary, memory mapped segment files. See {@link #segmentDir}. */
+      BINARY
+    }
+
+    /** How the events of an {@link EventTag} are audited. */
+    public enum Policy {
+      /** Every event is audited. */
+      FULL,
+      /**
+       * Events are counted per (user, group, object, minute) and audited as a rollup event with
+       * the count, first and last time. Not allowed for the write events.
+       */
+      ROLLUP
+    }
+
+    /** What to do when the audit ring buffer is full. */
+    public enum Backpressure {
+      /** Drops the event. */
+      DROP,
+      /** Blocks the request thread up to {@link #blockTimeoutMs}, then drops the event. */
+      BLOCK
+    }
+
+    /**
+     * Writes the audit events asynchronously on a single writer thread, instead of the request
+     * thread.
+     */
+    private boolean asyncEnabled = false;
+
+    @NotNull private Format format = Format.TEXT;
+
+    /** Audit log file used by the async text audit log. */
+    private String file = "log/audit/keywhiz-proxy-audit-events.log";
+
+    /** Segment directory used by the async binary audit log. */
+    private String segmentDir = "log/audit/segments";
+
+    /** Audit ring buffer size. Rounded up to the next power of two. */
+    @Min(2)
+    private int ringSize = 8192;
+
+    /** Max number of events written in a batch. */
+    @Min(1)
+    private int batchSize = 512;
+
+    @NotNull private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+    @Min(1)
+    private int fsyncIntervalMs = 1000;
+
+    @NotNull private Backpressure backpressure = Backpressure.BLOCK;
+
+    @Min(0)
+    private int blockTimeoutMs = 100;
+
+    /** Audit log file is rotated once it reaches this size. Also the binary segment size. */
+    @Min(1)
+    @Max(1024)
+    private int maxFileSizeMb = 50;
+
+    /** Max number of rotated audit log files (or binary segments) to keep. */
+    @Min(1)
+    private int maxFiles = 40;
+
+    /** Audit policy of the event types. The event types not given here are audited in full. */
+    @NotNull private Map<EventTag, Policy> policy = new EnumMap<>(EventTag.class);
+
+    /** Rollup events are written this long after the end of their minute, for the late events. */
+    @Min(0)
+    private int rollupGraceSec = 5;
+
+    /** Max number of rollup counters. The events are audited in full beyond this. */
+    @Min(1)
+    private int rollupMaxKeys = 100_000;
+
+    /** Indexes the audit events for the audit query endpoint (<b>/audit/events</b>). */
+    private boolean indexEnabled = false;
+
+    /** Audit index directory. */
+    private String indexDir = "log/audit/index";
+
+    /** Number of days of events kept in the audit index. */
+    @Min(1)
+    private int indexRetentionDays = 90;
+
+    /** Audit index queue size. The events are dropped from the index if it's full. */
+    @Min(2)
+    private int indexQueueSize = 8192;
+
+    /** Max number of sealed (daily) audit index partitions kept in memory. */
+    @Min(1)
+    private int indexCachePartitions = 31;
+
+    /** Max number of events returned in an audit query page. */
+    @Min(1)
+    private int queryMaxLimit = 1000;
+
+    public boolean isAsyncEnabled() {
+      return asyncEnabled;
+    }
+
+    public void setAsyncEnabled(boolean asyncEnabled) {
+      this.asyncEnabled = asyncEnabled;
+    }
+
+    public Format getFormat() {
+      return format;
+    }
+
+    public void setFormat(Format format) {
+      this.format = format;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public void setFile(String file) {
+      this.file = file;
+    }
+
+    public String getSegmentDir() {
+      return segmentDir;
+    }
+
+    public void setSegmentDir(String segmentDir) {
+      this.segmentDir = segmentDir;
+    }
+
+    public int getRingSize() {
+      return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+      this.ringSize = ringSize;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public FsyncPolicy getFsync() {
+      return fsync;
+    }
+
+    public void setFsync(FsyncPolicy fsync) {
+      this.fsync = fsync;
+    }
+
+    public int getFsyncIntervalMs() {
+      return fsyncIntervalMs;
+    }
+
+    public void setFsyncIntervalMs(int fsyncIntervalMs) {
+      this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    public Backpressure getBackpressure() {
+      return backpressure;
+    }
+
+    public void setBackpressure(Backpressure backpressure) {
+      this.backpressure = backpressure;
+    }
+
+    public int getBlockTimeoutMs() {
+      return blockTimeoutMs;
+    }
+
+    public void setBlockTimeoutMs(int blockTimeoutMs) {
+      this.blockTimeoutMs = blockTimeoutMs;
+    }
+
+    public int getMaxFileSizeMb() {
+      return maxFileSizeMb;
+    }
+
+    public void setMaxFileSizeMb(int maxFileSizeMb) {
+      this.maxFileSizeMb = maxFileSizeMb;
+    }
+
+    public int getMaxFiles() {
+      return maxFiles;
+    }
+
+    public void setMaxFiles(int maxFiles) {
+      this.maxFiles = maxFiles;
+    }
+
+    public Map<EventTag, Policy> getPolicy() {
+      return policy;
+    }
+
+    public void setPolicy(Map<EventTag, Policy> policy) {
+      this.policy = policy;
+    }
+
+    /** Returns the audit policy of the event type. */
+    public Policy getPolicy(EventTag type) {
+      return policy.getOrDefault(type, Policy.FULL);
+    }
+
+    public int getRollupGraceSec() {
+      return rollupGraceSec;
+    }
+
+    public void setRollupGraceSec(int rollupGraceSec) {
+      this.rollupGraceSec = rollupGraceSec;
+    }
+
+    public int getRollupMaxKeys() {
+      return rollupMaxKeys;
+    }
+
+    public void setRollupMaxKeys(int rollupMaxKeys) {
+      this.rollupMaxKeys = rollupMaxKeys;
+    }
+
+    public boolean isIndexEnabled() {
+      return indexEnabled;
+    }
+
+    public void setIndexEnabled(boolean indexEnabled) {
+      this.indexEnabled = indexEnabled;
+    }
+
+    public String getIndexDir() {
+      return indexDir;
+    }
+
+    public void setIndexDir(String indexDir) {
+      this.indexDir = indexDir;
+    }
+
+    public int getIndexRetentionDays() {
+      return indexRetentionDays;
+    }
+
+    public void setIndexRetentionDays(int indexRetentionDays) {
+      this.indexRetentionDays = indexRetentionDays;
+    }
+
+    public int getIndexQueueSize() {
+      return indexQueueSize;
+    }
+
+    public void setIndexQueueSize(int indexQueueSize) {
+      this.indexQueueSize = indexQueueSize;
+    }
+
+    public int getIndexCachePartitions() {
+      return indexCachePartitions;
+    }
+
+    public void setIndexCachePartitions(int indexCachePartitions) {
+      this.indexCachePartitions = indexCachePartitions;
+    }
+
+    public int getQueryMaxLimit() {
+      return queryMaxLimit;
+    }
+
+    public void setQueryMaxLimit(int queryMaxLimit) {
+      this.queryMaxLimit = queryMaxLimit;
+    }
+
+    @Override
+    public String toString() {
+      return "Audit{"
+          + "asyncEnabled="
+          + asyncEnabled
+          + ", format="
+          + format
+          + ", file='"
+          + file
+          + '\''
+          + ", segmentDir='"
+          + segmentDir
+          + '\''
+          + ", ringSize="
+          + ringSize
+          + ", batchSize="
+          + batchSize
+          + ", fsync="
+          + fsync
+          + ", fsyncIntervalMs="
+          + fsyncIntervalMs
+          + ", backpressure="
+          + backpressure
+          + ", blockTimeoutMs="
+          + blockTimeoutMs
+          + ", maxFileSizeMb="
+          + maxFileSizeMb
+          + ", maxFiles="
+          + maxFiles
+          + ", policy="
+          + policy
+          + ", rollupGraceSec="
+          + rollupGraceSec
+          + ", rollupMaxKeys="
+          + rollupMaxKeys
+          + ", indexEnabled="
+          + indexEnabled
+          + ", indexDir='"
+          + indexDir
+          + '\''
+          + ", indexRetentionDays="
+          + indexRetentionDays
+          + ", indexQueueSize="
+          + indexQueueSize
+          + ", indexCachePartitions="
+          + indexCachePartitions
+          + ", queryMaxLimit="
+          + queryMaxLimit
+          + '}';
+    }
+  }
+
+  /** Timer and histogram metrics config. */
+  public static class Metrics {
+
+    /** HdrHistogram precision, as the number of significant value digits. */
+    @Min(1)
+    @Max(5)
+    private int histogramDigits = 2;
+
+    /** Timers and histograms report the values recorded in the last one to two windows. */
+    @Min(1)
+    private int histogramWindowSec = 60;
+
+    /**
+     * Request header to opt in for the <b>Server-Timing</b> response header. Empty disables the
+     * per request opt in.
+     */
+    private String serverTimingHeader = "X-Server-Timing";
+
+    /** The <b>Server-Timing</b> header is always sent to the users having any of these roles. */
+    private List<String> serverTimingRoles = new ArrayList<>();
+
+    /** Requests taking longer than this are written to the slow request log. 0 to disable. */
+    @Min(0)
+    private int slowRequestMs = 1000;
+
+    /**
+     * The requests slower than this percentile (Eg: 99.9) of the recent request times are also
+     * written to the slow request log. 0 to disable.
+     */
+    @Min(0)
+    @Max(100)
+    private double slowRequestPercentile = 0;
+
+    /** Accounts the heap allocation and CPU time of the requests per handler method. */
+    private boolean handlerCostEnabled = true;
+
+    /** Tracks the top users, application groups, secrets and client IPs of the requests. */
+    private boolean heavyHittersEnabled = true;
+
+    /** Number of top keys tracked per dimension. */
+    @Min(1)
+    @Max(1000)
+    private int heavyHittersSize = 20;
+
+    /** Count-min sketch width, the estimated counts are within <b>e/width</b> of the total. */
+    @Min(64)
+    private int heavyHittersSketchWidth = 2048;
+
+    /** The request counts are halved every half-life. */
+    @Min(1)
+    private int heavyHittersHalfLifeSec = 60;
+
+    /** Flight recorder settings (<b>default</b> or <b>profile</b>) of the on demand recording. */
+    @NotNull private String jfrSettings = "default";
+
+    /** Max age of the data kept by the on demand flight recording. */
+    @Min(1)
+    private int jfrMaxAgeSec = 900;
+
+    /** Max size of the data kept by the on demand flight recording. */
+    @Min(1)
+    private int jfrMaxSizeMb = 100;
+
+    /** The on demand flight recording is stopped after this duration. */
+    @Min(1)
+    private int jfrMaxDurationSec = 3600;
+
+    public int getHistogramDigits() {
+      return histogramDigits;
+    }
+
+    public void setHistogramDigits(int histogramDigits) {
+      this.histogramDigits = histogramDigits;
+    }
+
+    public int getHistogramWindowSec() {
+      return histogramWindowSec;
+    }
+
+    public void setHistogramWindowSec(int histogramWindowSec) {
+      this.histogramWindowSec = histogramWindowSec;
+    }
+
+    public String getServerTimingHeader() {
+      return serverTimingHeader;
+    }
+
+    public void setServerTimingHeader(String serverTimingHeader) {
+      this.serverTimingHeader = serverTimingHeader;
+    }
+
+    public List<String> getServerTimingRoles() {
+      return serverTimingRoles;
+    }
+
+    public void setServerTimingRoles(List<String> serverTimingRoles) {
+      this.serverTimingRoles = serverTimingRoles;
+    }
+
+    public int getSlowRequestMs() {
+      return slowRequestMs;
+    }
+
+    public void setSlowRequestMs(int slowRequestMs) {
+      this.slowRequestMs = slowRequestMs;
+    }
+
+    public double getSlowRequestPercentile() {
+      return slowRequestPercentile;
+    }
+
+    public void setSlowRequestPercentile(double slowRequestPercentile) {
+      this.slowRequestPercentile = slowRequestPercentile;
+    }
+
+    public boolean isHandlerCostEnabled() {
+      return handlerCostEnabled;
+    }
+
+    public void setHandlerCostEnabled(boolean handlerCostEnabled) {
+      this.handlerCostEnabled = handlerCostEnabled;
+    }
+
+    public boolean isHeavyHittersEnabled() {
+      return heavyHittersEnabled;
+    }
+
+    public void setHeavyHittersEnabled(boolean heavyHittersEnabled) {
+      this.heavyHittersEnabled = heavyHittersEnabled;
+    }
+
+    public int getHeavyHittersSize() {
+      return heavyHittersSize;
+    }
+
+    public void setHeavyHittersSize(int heavyHittersSize) {
+      this.heavyHittersSize = heavyHittersSize;
+    }
+
+    public int getHeavyHittersSketchWidth() {
+      return heavyHittersSketchWidth;
+    }
+
+    public void setHeavyHittersSketchWidth(int heavyHittersSketchWidth) {
+      this.heavyHittersSketchWidth = heavyHittersSketchWidth;
+    }
+
+    public int getHeavyHittersHalfLifeSec() {
+      return heavyHittersHalfLifeSec;
+    }
+
+    public void setHeavyHittersHalfLifeSec(int heavyHittersHalfLifeSec) {
+      this.heavyHittersHalfLifeSec = heavyHittersHalfLifeSec;
+    }
+
+    public String getJfrSettings() {
+      return jfrSettings;
+    }
+
+    public void setJfrSettings(String jfrSettings) {
+      this.jfrSettings = jfrSettings;
+    }
+
+    public int getJfrMaxAgeSec() {
+      return jfrMaxAgeSec;
+    }
+
+    public void setJfrMaxAgeSec(int jfrMaxAgeSec) {
+      this.jfrMaxAgeSec = jfrMaxAgeSec;
+    }
+
+    public int getJfrMaxSizeMb() {
+      return jfrMaxSizeMb;
+    }
+
+    public void setJfrMaxSizeMb(int jfrMaxSizeMb) {
+      this.jfrMaxSizeMb = jfrMaxSizeMb;
+    }
+
+    public int getJfrMaxDurationSec() {
+      return jfrMaxDurationSec;
+    }
+
+    public void setJfrMaxDurationSec(int jfrMaxDurationSec) {
+      this.jfrMaxDurationSec = jfrMaxDurationSec;
+    }
+
+    @Override
+    public String toString() {
+      return "Metrics{"
+          + "histogramDigits="
+          + histogramDigits
+          + ", histogramWindowSec="
+          + histogramWindowSec
+          + ", serverTimingHeader='"
+          + serverTimingHeader
+          + '\''
+          + ", serverTimingRoles="
+          + serverTimingRoles
+          + ", slowRequestMs="
+          + slowRequestMs
+          + ", slowRequestPercentile="
+          + slowRequestPercentile
+          + ", handlerCostEnabled="
+          + handlerCostEnabled
+          + ", heavyHittersEnabled="
+          + heavyHittersEnabled
+          + ", heavyHittersSize="
+          + heavyHittersSize
+          + ", heavyHittersSketchWidth="
+          + heavyHittersSketchWidth
+          + ", heavyHittersHalfLifeSec="
+          + heavyHittersHalfLifeSec
+          + ", jfrSettings='"
+          + jfrSettings
+          + '\''
+          + ", jfrMaxAgeSec="
+          + jfrMaxAgeSec
+          + ", jfrMaxSizeMb="
+          + jfrMaxSizeMb
+          + ", jfrMaxDurationSec="
+          + jfrMaxDurationSec
+          + '}';
+    }
+  }
 }
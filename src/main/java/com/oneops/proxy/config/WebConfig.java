@@ -19,6 +19,8 @@ package com.oneops.proxy.config;
 
 import static org.springframework.http.MediaType.*;
 
+import com.oneops.proxy.metrics.HandlerCostFilter;
+import com.oneops.proxy.metrics.HeavyHitterTracker;
 import com.oneops.proxy.model.AppGroup;
 import com.oneops.proxy.web.support.*;
 import java.util.List;
@@ -40,6 +42,12 @@ public class WebConfig extends WebMvcConfigurerAdapter {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
+  private final HeavyHitterTracker heavyHitterTracker;
+
+  public WebConfig(HeavyHitterTracker heavyHitterTracker) {
+    this.heavyHitterTracker = heavyHitterTracker;
+  }
+
   @Override
   public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
     log.info("Configuring ContentNegotiation for the application.");
@@ -72,4 +80,14 @@ public class WebConfig extends WebMvcConfigurerAdapter {
     argResolvers.add(new AppGroupArgResolver());
     argResolvers.add(new AppSecretArgResolver());
   }
+
+  /**
+   * Finds the request handler method for the {@link HandlerCostFilter} and tracks the heavy
+   * hitters of the requests.
+   */
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new HandlerCostFilter.Interceptor());
+    registry.addInterceptor(heavyHitterTracker);
+  }
 }
@@ -0,0 +1,65 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.oneops.proxy.audit.*;
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/audit</b>) to display the audit index stats. Use <b>GET
+ * /audit/events</b> to query the audit events, see {@link AuditMvcEndPoint}.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnProperty("oneops.audit.index-enabled")
+public class AuditEndPoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final AuditIndex auditIndex;
+
+  public AuditEndPoint(AuditIndex auditIndex) {
+    super("audit", true, true);
+    this.auditIndex = auditIndex;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    try {
+      return auditIndex.stats();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Queries the audit index.
+   *
+   * @param query audit query.
+   * @param out consumer of the matched events, newest first.
+   * @return cursor for the next page, <code>null</code> if there are no more events.
+   * @throws IOException if the index can't be read.
+   */
+  public String query(AuditQuery query, Consumer<Event> out) throws IOException {
+    return auditIndex.query(query, out);
+  }
+}
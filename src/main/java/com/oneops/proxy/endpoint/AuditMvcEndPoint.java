@@ -0,0 +1,139 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oneops.proxy.audit.*;
+import java.io.*;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * MVC adapter for {@link AuditEndPoint}, which adds the audit query. The matched events are
+ * streamed as they are read from the index, newest first, followed by the cursor of the next page.
+ *
+ * <p>Eg: <b>GET /audit/events?user=xyz&group=oneops_proxy_prod&type=SECRET_READCONTENT&from=
+ * 2018-06-01T00:00:00Z&limit=100</b>
+ *
+ * <p>The time range (<b>from</b>, <b>to</b>) can be ISO-8601 instants or epoch millis, defaults to
+ * the last 7 days. Pass the returned <b>next</b> cursor to get the next page.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnProperty("oneops.audit.index-enabled")
+public class AuditMvcEndPoint extends EndpointMvcAdapter {
+
+  private static final long DEFAULT_RANGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+  /** Events are flushed to the client in chunks of this size. */
+  private static final int FLUSH_EVENTS = 64;
+
+  private final AuditEndPoint delegate;
+
+  private final ObjectMapper mapper;
+
+  public AuditMvcEndPoint(AuditEndPoint delegate, ObjectMapper mapper) {
+    super(delegate);
+    this.delegate = delegate;
+    this.mapper = mapper;
+  }
+
+  @GetMapping(value = "/events", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Object query(
+      @RequestParam(value = "user", required = false) String user,
+      @RequestParam(value = "group", required = false) String group,
+      @RequestParam(value = "object", required = false) String object,
+      @RequestParam(value = "type", required = false) String type,
+      @RequestParam(value = "from", required = false) String from,
+      @RequestParam(value = "to", required = false) String to,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+
+    AuditQuery query;
+    try {
+      long toMillis = to == null ? System.currentTimeMillis() : parseTime(to);
+      long fromMillis = from == null ? toMillis - DEFAULT_RANGE_MILLIS : parseTime(from);
+      EventTag eventType = type == null ? null : EventTag.valueOf(type.toUpperCase());
+      query = new AuditQuery(user, group, object, eventType, fromMillis, toMillis, limit, cursor);
+    } catch (IllegalArgumentException | DateTimeParseException ex) {
+      Map<String, Object> res = new LinkedHashMap<>();
+      res.put("status", HttpStatus.BAD_REQUEST.value());
+      res.put("message", ex.getMessage());
+      return ResponseEntity.badRequest().body(res);
+    }
+
+    StreamingResponseBody body = out -> stream(query, out);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  /** Writes the events as they are found, as <b>{"events":[...],"next":"cursor"}</b>. */
+  private void stream(AuditQuery query, OutputStream out) throws IOException {
+    // The response stream is closed by the container.
+    JsonGenerator gen = mapper.getFactory().createGenerator(out);
+    gen.writeStartObject();
+    gen.writeArrayFieldStart("events");
+    int[] count = new int[1];
+    String next;
+    try {
+      next =
+          delegate.query(
+              query,
+              e -> {
+                try {
+                  gen.writeObject(e);
+                  if (++count[0] % FLUSH_EVENTS == 0) {
+                    gen.flush();
+                  }
+                } catch (IOException ex) {
+                  throw new UncheckedIOException(ex);
+                }
+              });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    gen.writeEndArray();
+    gen.writeNumberField("count", count[0]);
+    if (next != null) {
+      gen.writeStringField("next", next);
+    }
+    gen.writeEndObject();
+    gen.flush();
+  }
+
+  /** Parses the ISO-8601 instant or epoch millis. */
+  private static long parseTime(String time) {
+    if (!time.isEmpty() && time.chars().allMatch(Character::isDigit)) {
+      return Long.parseLong(time);
+    }
+    return Instant.parse(time).toEpochMilli();
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import static com.oneops.proxy.metrics.MetricsUtilService.binaryPrefix;
+
+import com.codahale.metrics.Snapshot;
+import com.oneops.proxy.metrics.HandlerCostFilter;
+import com.oneops.proxy.metrics.HandlerCostFilter.Cost;
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/handlercost</b>) to display the heap allocation and CPU time per
+ * request of the handler methods (see {@link HandlerCostFilter}), the most allocating first.
+ *
+ * @author Suresh G
+ */
+@Component
+public class HandlerCostEndPoint extends AbstractEndpoint<List<Map<String, Object>>> {
+
+  private final HandlerCostFilter filter;
+
+  public HandlerCostEndPoint(HandlerCostFilter filter) {
+    super("handlercost", true, true);
+    this.filter = filter;
+  }
+
+  @Override
+  public List<Map<String, Object>> invoke() {
+    List<Map<String, Object>> costs = new ArrayList<>();
+    for (Cost cost : filter.getCosts()) {
+      Snapshot alloc = cost.getAllocBytes().getSnapshot();
+      Map<String, Object> res = new LinkedHashMap<>();
+      res.put("handler", cost.getHandler());
+      res.put("count", cost.getAllocBytes().getCount());
+      res.put("alloc", binaryPrefix((long) alloc.getMean()));
+      res.put("allocMeanBytes", (long) alloc.getMean());
+      res.put("allocP99Bytes", (long) alloc.getValue(0.99));
+      res.put("allocMaxBytes", alloc.getMax());
+      if (filter.isCpuTimeEnabled()) {
+        Snapshot cpu = cost.getCpuNanos().getSnapshot();
+        res.put("cpuMeanMs", cpu.getMean() / 1_000_000);
+        res.put("cpuP99Ms", cpu.getValue(0.99) / 1_000_000);
+        res.put("cpuMaxMs", cpu.getMax() / 1_000_000.0);
+      }
+      costs.add(res);
+    }
+    costs.sort(
+        Comparator.comparingLong((Map<String, Object> c) -> (long) c.get("allocMeanBytes"))
+            .reversed());
+    return costs;
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.oneops.proxy.metrics.HeavyHitterTracker;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/heavyhitters</b>) to display the top users, application groups,
+ * secrets and client IPs of the recent requests, see {@link HeavyHitterTracker}.
+ *
+ * @author Suresh G
+ */
+@Component
+public class HeavyHittersEndPoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final HeavyHitterTracker tracker;
+
+  public HeavyHittersEndPoint(HeavyHitterTracker tracker) {
+    super("heavyhitters", true, true);
+    this.tracker = tracker;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    return tracker.top();
+  }
+}
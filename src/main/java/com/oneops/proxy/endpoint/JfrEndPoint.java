@@ -0,0 +1,51 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.oneops.proxy.jfr.FlightRecording;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/jfr</b>) to display the on demand flight recording info. Use
+ * {@link JfrMvcEndPoint} to start, stop and dump the recording.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+public class JfrEndPoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final FlightRecording recording;
+
+  public JfrEndPoint(FlightRecording recording) {
+    super("jfr", true, true);
+    this.recording = recording;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    return recording.info();
+  }
+
+  public FlightRecording getRecording() {
+    return recording;
+  }
+}
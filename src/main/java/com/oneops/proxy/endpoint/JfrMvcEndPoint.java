@@ -0,0 +1,116 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.oneops.proxy.jfr.FlightRecording;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * MVC adapter for {@link JfrEndPoint}, to manage the on demand flight recording.
+ *
+ * <ul>
+ *   <li><b>POST /jfr/start?duration=600</b> Starts a recording, duration in seconds.
+ *   <li><b>POST /jfr/stop</b> Stops the recording.
+ *   <li><b>GET /jfr/dump</b> Downloads the recorded data as a <b>.jfr</b> file, to open it in
+ *       JDK Mission Control.
+ * </ul>
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+public class JfrMvcEndPoint extends EndpointMvcAdapter {
+
+  private final JfrEndPoint delegate;
+
+  public JfrMvcEndPoint(JfrEndPoint delegate) {
+    super(delegate);
+    this.delegate = delegate;
+  }
+
+  @PostMapping(value = "/start", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Object start(@RequestParam(value = "duration", required = false) Integer durationSec)
+      throws Exception {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    try {
+      return delegate.getRecording().start(durationSec);
+    } catch (IllegalStateException ex) {
+      return error(HttpStatus.CONFLICT, ex);
+    }
+  }
+
+  @PostMapping(value = "/stop", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Object stop() {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    try {
+      return delegate.getRecording().stop();
+    } catch (IllegalStateException ex) {
+      return error(HttpStatus.NOT_FOUND, ex);
+    }
+  }
+
+  @GetMapping("/dump")
+  @ResponseBody
+  public Object dump() throws Exception {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    Path file;
+    try {
+      file = delegate.getRecording().dump();
+    } catch (IllegalStateException ex) {
+      return error(HttpStatus.NOT_FOUND, ex);
+    }
+
+    StreamingResponseBody body =
+        out -> {
+          try {
+            Files.copy(file, out);
+          } finally {
+            Files.deleteIfExists(file);
+          }
+        };
+    String fileName = "secrets-proxy-" + Instant.now().getEpochSecond() + ".jfr";
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .contentLength(Files.size(file))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+        .body(body);
+  }
+
+  private static ResponseEntity<Map<String, Object>> error(HttpStatus status, Exception ex) {
+    Map<String, Object> res = new LinkedHashMap<>();
+    res.put("status", status.value());
+    res.put("message", ex.getMessage());
+    return ResponseEntity.status(status).body(res);
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.oneops.proxy.ldap.LdapClient;
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/ldapcache</b>) to display the LDAP search cache stats. Use
+ * <b>DELETE</b> method to evict a user from the cache, see {@link LdapCacheMvcEndPoint}.
+ *
+ * @author Suresh G
+ */
+@Component
+public class LdapCacheEndPoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final LdapClient ldapClient;
+
+  public LdapCacheEndPoint(LdapClient ldapClient) {
+    super("ldapcache", true, true);
+    this.ldapClient = ldapClient;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Object> info = new LinkedHashMap<>();
+    CacheStats stats = ldapClient.getSearchCacheStats();
+    info.put("size", ldapClient.getSearchCacheSize());
+    info.put("hitCount", stats.hitCount());
+    info.put("missCount", stats.missCount());
+    info.put("hitRate", stats.hitRate());
+    info.put("loadFailureCount", stats.loadFailureCount());
+    info.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000);
+    info.put("evictionCount", stats.evictionCount());
+    return info;
+  }
+
+  /**
+   * Evicts the user search results from the LDAP cache.
+   *
+   * @param user user id, <code>null</code> for all users.
+   * @return number of entries evicted, <b>-1</b> if the whole cache is cleared.
+   */
+  public long evict(String user) {
+    if (user == null) {
+      ldapClient.clearSearchCache();
+      return -1;
+    }
+    return ldapClient.evictUser(user);
+  }
+}
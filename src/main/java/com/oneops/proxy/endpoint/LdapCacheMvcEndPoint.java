@@ -0,0 +1,52 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * MVC adapter for {@link LdapCacheEndPoint}, which adds the <b>DELETE</b> method to evict a user
+ * from the LDAP search cache. Eg: <b>DELETE /ldapcache?user=xyz</b>
+ *
+ * @author Suresh G
+ */
+@Component
+public class LdapCacheMvcEndPoint extends EndpointMvcAdapter {
+
+  private final LdapCacheEndPoint delegate;
+
+  public LdapCacheMvcEndPoint(LdapCacheEndPoint delegate) {
+    super(delegate);
+    this.delegate = delegate;
+  }
+
+  @DeleteMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Object evict(@RequestParam(value = "user", required = false) String user) {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    Map<String, Object> res = new LinkedHashMap<>();
+    res.put("evicted", delegate.evict(user));
+    return res;
+  }
+}
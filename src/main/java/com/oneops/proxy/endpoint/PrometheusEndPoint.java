@@ -0,0 +1,314 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import static com.oneops.proxy.metrics.PrometheusWriter.sanitize;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.oneops.proxy.authz.UserRepository;
+import com.oneops.proxy.keywhiz.http.HttpClient;
+import com.oneops.proxy.ldap.LdapClient;
+import com.oneops.proxy.metrics.HdrReservoir.HdrSnapshot;
+import com.oneops.proxy.metrics.PrometheusWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ToLongFunction;
+import javax.sql.DataSource;
+import okhttp3.ConnectionPool;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerInitializedEvent;
+import org.springframework.boot.context.embedded.jetty.JettyEmbeddedServletContainer;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/prometheus</b>) to expose the metrics in the Prometheus text
+ * format. It renders the Dropwizard metric registry, the Hikari connection pools, the Jetty thread
+ * pool, the Keywhiz (OkHttp) connection pools and the cache stats. The samples are written straight
+ * to the response as they are read from the sources, see {@link PrometheusMvcEndPoint}.
+ *
+ * <p>The Dropwizard metric names are sanitized and the type prefix is dropped, Eg:
+ * <b>timer.oneops.ldap.auth</b> becomes the <b>oneops_ldap_auth_seconds</b> summary and
+ * <b>meter.oneops.ldap.auth.err</b> becomes the <b>oneops_ldap_auth_err_total</b> counter. The
+ * Dropwizard counters get the same <b>_total</b> suffix.
+ *
+ * @author Suresh G
+ */
+@Component
+public class PrometheusEndPoint extends AbstractEndpoint<String>
+    implements ApplicationListener<EmbeddedServletContainerInitializedEvent> {
+
+  private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.99, 0.999};
+
+  private static final String[] QUANTILE_LABELS = {"0.5", "0.75", "0.95", "0.99", "0.999"};
+
+  private static final double NANOS_PER_SEC = TimeUnit.SECONDS.toNanos(1);
+
+  private final MetricRegistry registry;
+
+  private final Map<String, DataSource> dataSources;
+
+  private final List<HttpClient> httpClients;
+
+  private final UserRepository userRepo;
+
+  private final LdapClient ldapClient;
+
+  private final CacheManager cacheManager;
+
+  /** Metric names, keyed by the registry name. */
+  private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+
+  private volatile QueuedThreadPool threadPool;
+
+  public PrometheusEndPoint(
+      MetricRegistry registry,
+      Map<String, DataSource> dataSources,
+      List<HttpClient> httpClients,
+      UserRepository userRepo,
+      LdapClient ldapClient,
+      CacheManager cacheManager) {
+    super("prometheus", true, true);
+    this.registry = registry;
+    this.dataSources = dataSources;
+    this.httpClients = httpClients;
+    this.userRepo = userRepo;
+    this.ldapClient = ldapClient;
+    this.cacheManager = cacheManager;
+  }
+
+  /** Keeps a reference to the Jetty server thread pool once the server is started. */
+  @Override
+  public void onApplicationEvent(EmbeddedServletContainerInitializedEvent event) {
+    if (event.getEmbeddedServletContainer() instanceof JettyEmbeddedServletContainer) {
+      JettyEmbeddedServletContainer container =
+          (JettyEmbeddedServletContainer) event.getEmbeddedServletContainer();
+      if (container.getServer().getThreadPool() instanceof QueuedThreadPool) {
+        threadPool = (QueuedThreadPool) container.getServer().getThreadPool();
+      }
+    }
+  }
+
+  /** Returns the metrics as a string, used by the JMX endpoint. */
+  @Override
+  public String invoke() {
+    StringWriter out = new StringWriter();
+    try {
+      write(out);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes all the metrics in the Prometheus text format.
+   *
+   * @param out writer.
+   * @throws IOException if the metrics can't be written.
+   */
+  public void write(Writer out) throws IOException {
+    PrometheusWriter writer = new PrometheusWriter(out);
+    writeRegistry(writer);
+    writeDataSources(writer);
+    writeThreadPool(writer);
+    writeHttpClients(writer);
+    writeCaches(writer);
+  }
+
+  private void writeRegistry(PrometheusWriter writer) throws IOException {
+    for (Map.Entry<String, Metric> entry : registry.getMetrics().entrySet()) {
+      Metric metric = entry.getValue();
+      if (metric instanceof Gauge) {
+        Object value = ((Gauge<?>) metric).getValue();
+        if (value instanceof Number) {
+          String name = name(entry.getKey(), "gauge.", "");
+          writer.type(name, "gauge").sample(name, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+          String name = name(entry.getKey(), "gauge.", "");
+          writer.type(name, "gauge").sample(name, (Boolean) value ? 1 : 0);
+        }
+      } else if (metric instanceof Counter) {
+        String name = name(entry.getKey(), "counter.", "_total");
+        writer.type(name, "counter").sample(name, ((Counter) metric).getCount());
+      } else if (metric instanceof Meter) {
+        String name = name(entry.getKey(), "meter.", "_total");
+        writer.type(name, "counter").sample(name, ((Meter) metric).getCount());
+      } else if (metric instanceof Timer) {
+        Timer timer = (Timer) metric;
+        String name = name(entry.getKey(), "timer.", "_seconds");
+        writeSummary(writer, name, timer.getSnapshot(), timer.getCount(), NANOS_PER_SEC);
+      } else if (metric instanceof Histogram) {
+        Histogram histogram = (Histogram) metric;
+        String name = name(entry.getKey(), "histogram.", "");
+        writeSummary(writer, name, histogram.getSnapshot(), histogram.getCount(), 1);
+      }
+    }
+  }
+
+  private static void writeSummary(
+      PrometheusWriter writer, String name, Snapshot snapshot, long count, double divisor)
+      throws IOException {
+    writer.type(name, "summary");
+    for (int i = 0; i < QUANTILES.length; i++) {
+      double value = snapshot.getValue(QUANTILES[i]) / divisor;
+      writer.sample(name, "quantile", QUANTILE_LABELS[i], value);
+    }
+    // The snapshot only has the recent values, the sum is kept by the reservoir.
+    if (snapshot instanceof HdrSnapshot) {
+      writer.sample(name, "_sum", ((HdrSnapshot) snapshot).getSum() / divisor);
+    }
+    writer.sample(name, "_count", count);
+  }
+
+  private void writeDataSources(PrometheusWriter writer) throws IOException {
+    List<Map.Entry<String, HikariPoolMXBean>> pools = new ArrayList<>(dataSources.size());
+    for (Map.Entry<String, DataSource> e : dataSources.entrySet()) {
+      // The pool is created on the first connection.
+      if (e.getValue() instanceof HikariDataSource) {
+        HikariPoolMXBean pool = ((HikariDataSource) e.getValue()).getHikariPoolMXBean();
+        if (pool != null) {
+          pools.add(entry(e.getKey(), pool));
+        }
+      }
+    }
+    gauge(
+        writer, "hikari_connections_active", "pool", pools, HikariPoolMXBean::getActiveConnections);
+    gauge(writer, "hikari_connections_idle", "pool", pools, HikariPoolMXBean::getIdleConnections);
+    gauge(
+        writer,
+        "hikari_connections_pending",
+        "pool",
+        pools,
+        HikariPoolMXBean::getThreadsAwaitingConnection);
+  }
+
+  private void writeThreadPool(PrometheusWriter writer) throws IOException {
+    QueuedThreadPool pool = threadPool;
+    if (pool == null) {
+      return;
+    }
+    writer.type("jetty_threads", "gauge").sample("jetty_threads", pool.getThreads());
+    writer.type("jetty_threads_idle", "gauge").sample("jetty_threads_idle", pool.getIdleThreads());
+    writer.type("jetty_threads_busy", "gauge").sample("jetty_threads_busy", pool.getBusyThreads());
+    writer.type("jetty_threads_max", "gauge").sample("jetty_threads_max", pool.getMaxThreads());
+    writer.type("jetty_queue_size", "gauge").sample("jetty_queue_size", pool.getQueueSize());
+  }
+
+  private void writeHttpClients(PrometheusWriter writer) throws IOException {
+    List<Map.Entry<String, ConnectionPool>> pools = new ArrayList<>(httpClients.size());
+    for (HttpClient client : httpClients) {
+      pools.add(entry(client.getClass().getSimpleName(), client.getConnectionPool()));
+    }
+    gauge(writer, "keywhiz_connections", "client", pools, ConnectionPool::connectionCount);
+    gauge(writer, "keywhiz_connections_idle", "client", pools, ConnectionPool::idleConnectionCount);
+  }
+
+  private void writeCaches(PrometheusWriter writer) throws IOException {
+    List<Map.Entry<String, CacheStats>> caches = new ArrayList<>();
+    CacheStats teams = userRepo.getTeamsCacheStats();
+    if (teams != null) {
+      caches.add(entry("teams", teams));
+    }
+    caches.add(entry("ldapsearch", ldapClient.getSearchCacheStats()));
+    for (String cacheName : cacheManager.getCacheNames()) {
+      Object cache = cacheManager.getCache(cacheName).getNativeCache();
+      if (cache instanceof com.github.benmanes.caffeine.cache.Cache) {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine =
+            (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache;
+        caches.add(entry(cacheName, caffeine.stats()));
+      }
+    }
+    counter(writer, "cache_hits_total", "cache", caches, CacheStats::hitCount);
+    counter(writer, "cache_misses_total", "cache", caches, CacheStats::missCount);
+    counter(writer, "cache_evictions_total", "cache", caches, CacheStats::evictionCount);
+    counter(writer, "cache_load_failures_total", "cache", caches, CacheStats::loadFailureCount);
+  }
+
+  private static <T> void gauge(
+      PrometheusWriter writer,
+      String name,
+      String label,
+      List<Map.Entry<String, T>> sources,
+      ToLongFunction<T> value)
+      throws IOException {
+    family(writer, name, "gauge", label, sources, value);
+  }
+
+  private static <T> void counter(
+      PrometheusWriter writer,
+      String name,
+      String label,
+      List<Map.Entry<String, T>> sources,
+      ToLongFunction<T> value)
+      throws IOException {
+    family(writer, name, "counter", label, sources, value);
+  }
+
+  /** Writes a metric family with one sample per source, labeled with the source name. */
+  private static <T> void family(
+      PrometheusWriter writer,
+      String name,
+      String type,
+      String label,
+      List<Map.Entry<String, T>> sources,
+      ToLongFunction<T> value)
+      throws IOException {
+    if (sources.isEmpty()) {
+      return;
+    }
+    writer.type(name, type);
+    for (Map.Entry<String, T> source : sources) {
+      writer.sample(name, label, source.getKey(), value.applyAsLong(source.getValue()));
+    }
+  }
+
+  private static <T> Map.Entry<String, T> entry(String name, T source) {
+    return new AbstractMap.SimpleImmutableEntry<>(name, source);
+  }
+
+  /**
+   * Returns the metric name for the registry name, dropping its type prefix.
+   *
+   * @param key registry name.
+   * @param prefix type prefix, Eg: <b>timer.</b>
+   * @param suffix metric name suffix, Eg: <b>_seconds</b>
+   */
+  private String name(String key, String prefix, String suffix) {
+    String name = names.get(key);
+    if (name == null) {
+      String source = key.startsWith(prefix) ? key.substring(prefix.length()) : key;
+      name = sanitize(source) + suffix;
+      names.putIfAbsent(key, name);
+    }
+    return name;
+  }
+}
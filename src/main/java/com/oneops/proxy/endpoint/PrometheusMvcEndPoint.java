@@ -0,0 +1,66 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.oneops.proxy.metrics.PrometheusWriter;
+import java.io.*;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * MVC adapter for {@link PrometheusEndPoint}, which streams the metrics in the Prometheus text
+ * format. Eg: <b>GET /prometheus</b>
+ *
+ * @author Suresh G
+ */
+@Component
+public class PrometheusMvcEndPoint extends EndpointMvcAdapter {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final PrometheusEndPoint delegate;
+
+  public PrometheusMvcEndPoint(PrometheusEndPoint delegate) {
+    super(delegate);
+    this.delegate = delegate;
+  }
+
+  @Override
+  @GetMapping(produces = MediaType.TEXT_PLAIN_VALUE)
+  @ResponseBody
+  public Object invoke() {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    StreamingResponseBody body =
+        out -> {
+          // The response stream is closed by the container.
+          Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), BUFFER_SIZE);
+          delegate.write(writer);
+          writer.flush();
+        };
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(PrometheusWriter.CONTENT_TYPE))
+        .body(body);
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.authz.UserRepository;
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom actuator endpoint (<b>/teamscache</b>) to display the user teams cache stats. Use
+ * <b>DELETE</b> method to invalidate the cache, see {@link TeamsCacheMvcEndPoint}.
+ *
+ * @author Suresh G
+ */
+@Component
+public class TeamsCacheEndPoint extends AbstractEndpoint<Map<String, Object>> {
+
+  private final UserRepository userRepo;
+
+  public TeamsCacheEndPoint(UserRepository userRepo) {
+    super("teamscache", true, true);
+    this.userRepo = userRepo;
+  }
+
+  @Override
+  public Map<String, Object> invoke() {
+    Map<String, Object> info = new LinkedHashMap<>();
+    CacheStats stats = userRepo.getTeamsCacheStats();
+    info.put("enabled", stats != null);
+    if (stats != null) {
+      info.put("size", userRepo.getTeamsCacheSize());
+      info.put("hitCount", stats.hitCount());
+      info.put("missCount", stats.missCount());
+      info.put("hitRate", stats.hitRate());
+      info.put("loadFailureCount", stats.loadFailureCount());
+      info.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000);
+      info.put("evictionCount", stats.evictionCount());
+    }
+    return info;
+  }
+
+  /**
+   * Invalidates the user teams cache.
+   *
+   * @param domain auth domain, <code>null</code> for all domains.
+   * @param user user name, <code>null</code> for all users.
+   * @return number of entries invalidated.
+   * @throws IllegalArgumentException if the domain is not valid.
+   */
+  public int invalidate(String domain, String user) {
+    return userRepo.invalidateTeams(domain != null ? AuthDomain.of(domain) : null, user);
+  }
+}
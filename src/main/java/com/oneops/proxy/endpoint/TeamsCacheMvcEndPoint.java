@@ -0,0 +1,54 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.endpoint;
+
+import java.util.*;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * MVC adapter for {@link TeamsCacheEndPoint}, which adds the <b>DELETE</b> method to invalidate
+ * the user teams cache. Eg: <b>DELETE /teamscache?domain=prod&user=xyz</b>
+ *
+ * @author Suresh G
+ */
+@Component
+public class TeamsCacheMvcEndPoint extends EndpointMvcAdapter {
+
+  private final TeamsCacheEndPoint delegate;
+
+  public TeamsCacheMvcEndPoint(TeamsCacheEndPoint delegate) {
+    super(delegate);
+    this.delegate = delegate;
+  }
+
+  @DeleteMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Object invalidate(
+      @RequestParam(value = "domain", required = false) String domain,
+      @RequestParam(value = "user", required = false) String user) {
+    if (!delegate.isEnabled()) {
+      return getDisabledResponse();
+    }
+    Map<String, Object> res = new LinkedHashMap<>();
+    res.put("invalidated", delegate.invalidate(domain, user));
+    return res;
+  }
+}
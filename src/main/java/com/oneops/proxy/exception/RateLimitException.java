@@ -0,0 +1,39 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.exception;
+
+/**
+ * Exception thrown when a client exceeds the allowed request rate. It's mapped to <b>429 Too Many
+ * Requests</b> response with a <b>Retry-After</b> header.
+ *
+ * @author Suresh G
+ */
+public class RateLimitException extends RuntimeException {
+
+  private final long retryAfterSec;
+
+  public RateLimitException(String message, long retryAfterSec) {
+    super(message);
+    this.retryAfterSec = retryAfterSec;
+  }
+
+  /** Returns the number of secs the client should wait before retrying. */
+  public long getRetryAfterSec() {
+    return retryAfterSec;
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports all the validation errors of a request at once, instead of failing on the first one.
+ * It's an {@link IllegalArgumentException}, so that it's mapped to <b>400 Bad Request</b> like any
+ * other invalid input.
+ *
+ * @author Suresh G
+ */
+public class ValidationException extends IllegalArgumentException {
+
+  private final List<String> errors;
+
+  /**
+   * Creates validation exception for the given errors.
+   *
+   * @param errors list of validation error messages.
+   */
+  public ValidationException(List<String> errors) {
+    super(String.join("; ", errors));
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  /** Returns all the validation error messages. */
+  public List<String> getErrors() {
+    return errors;
+  }
+}
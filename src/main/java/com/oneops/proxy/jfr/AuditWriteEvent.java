@@ -0,0 +1,60 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Audit log write. It's a batch of events for the async audit log.
+ *
+ * @author Suresh G
+ */
+@Name("com.oneops.proxy.AuditWrite")
+@Label("Audit Write")
+@Category({"OneOps", "Secrets Proxy"})
+@StackTrace(false)
+public class AuditWriteEvent extends Event {
+
+  @Label("Events")
+  int events;
+
+  @Label("Async")
+  boolean async;
+
+  @Label("Fsync")
+  boolean fsync;
+
+  AuditWriteEvent() {}
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param events number of audit events written.
+   * @param async <code>true</code> for the async audit log.
+   * @param fsync <code>true</code> if it's an fsync.
+   */
+  public void complete(int events, boolean async, boolean fsync) {
+    end();
+    if (shouldCommit()) {
+      this.events = events;
+      this.async = async;
+      this.fsync = fsync;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Application group authz decision. The source is the one granted the access (<b>claim</b>,
+ * <b>index</b> or <b>teams</b>), the user teams are from the cache or the OneOps DB.
+ *
+ * @author Suresh G
+ */
+@Name("com.oneops.proxy.Authz")
+@Label("Authz Decision")
+@Category({"OneOps", "Secrets Proxy"})
+@StackTrace(false)
+public class AuthzEvent extends Event {
+
+  @Label("User")
+  String user;
+
+  @Label("Application Group")
+  String appGroup;
+
+  @Label("Authorized")
+  boolean authorized;
+
+  @Label("Source")
+  String source;
+
+  @Label("Teams Cache Hit")
+  boolean teamsCacheHit;
+
+  AuthzEvent() {}
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param user user name.
+   * @param appGroup application group name.
+   * @param authorized authz decision.
+   * @param source authz source, <code>null</code> if it's denied.
+   * @param teamsCacheHit <code>true</code> if the user teams are cached.
+   */
+  public void complete(
+      String user, String appGroup, boolean authorized, String source, boolean teamsCacheHit) {
+    end();
+    if (shouldCommit()) {
+      this.user = user;
+      this.appGroup = appGroup;
+      this.authorized = authorized;
+      this.source = source;
+      this.teamsCacheHit = teamsCacheHit;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import com.oneops.proxy.config.OneOpsConfig;
+import java.io.IOException;
+import java.nio.file.*;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.*;
+import javax.annotation.*;
+import jdk.jfr.*;
+import org.slf4j.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+/**
+ * Manages the on demand flight recording of the proxy. The recording is bounded by the <b>
+ * oneops.metrics.jfr-max-(age-sec|size-mb|duration-sec)</b> config and can be dumped any time,
+ * having the proxy events (see {@link ProxyEvents}) along with the JVM events like GC, locks and
+ * sockets. Only one recording is kept, a new recording closes the previous one.
+ *
+ * @author Suresh G
+ */
+@Component
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+public class FlightRecording {
+
+  private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+
+  private static final String NAME = "oneops-secrets-proxy";
+
+  private final OneOpsConfig.Metrics config;
+
+  /** Current recording, <code>null</code> if there isn't any. Guarded by <b>this</b>. */
+  private Recording recording;
+
+  public FlightRecording(OneOpsConfig config) {
+    this.config = config.getMetrics();
+  }
+
+  /** Returns <code>true</code> if the flight recorder can be used in this JVM. */
+  public boolean isAvailable() {
+    return FlightRecorder.isAvailable();
+  }
+
+  /**
+   * Starts a new recording.
+   *
+   * @param durationSec recording duration, capped to the max duration. <code>null</code> for the
+   *     max duration.
+   * @return recording info.
+   * @throws IllegalStateException if a recording is already running.
+   */
+  public synchronized Map<String, Object> start(@Nullable Integer durationSec)
+      throws IOException, ParseException {
+    if (recording != null && recording.getState() == RecordingState.RUNNING) {
+      throw new IllegalStateException("Flight recording " + recording.getId() + " is running.");
+    }
+    close();
+
+    int maxDurationSec = config.getJfrMaxDurationSec();
+    int duration = durationSec == null ? maxDurationSec : Math.min(durationSec, maxDurationSec);
+    Recording r = new Recording(Configuration.getConfiguration(config.getJfrSettings()));
+    r.setName(NAME);
+    r.setToDisk(true);
+    r.setMaxAge(Duration.ofSeconds(config.getJfrMaxAgeSec()));
+    r.setMaxSize(config.getJfrMaxSizeMb() * 1024L * 1024L);
+    r.setDuration(Duration.ofSeconds(Math.max(duration, 1)));
+    r.start();
+    recording = r;
+    log.info("Started flight recording " + r.getId() + " for " + duration + " sec, " + config);
+    return info();
+  }
+
+  /**
+   * Stops the current recording. The recorded data is kept for the dump.
+   *
+   * @return recording info.
+   * @throws IllegalStateException if there is no recording.
+   */
+  public synchronized Map<String, Object> stop() {
+    Recording r = current();
+    if (r.getState() == RecordingState.RUNNING) {
+      r.stop();
+      log.info("Stopped flight recording " + r.getId());
+    }
+    return info();
+  }
+
+  /**
+   * Dumps the recorded data to a temp file. The caller should delete the file.
+   *
+   * @return jfr file.
+   * @throws IllegalStateException if there is no recording.
+   */
+  public synchronized Path dump() throws IOException {
+    Recording r = current();
+    Path file = Files.createTempFile("secrets-proxy-", ".jfr");
+    try {
+      r.dump(file);
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(file);
+      throw ex;
+    }
+    log.info("Dumped flight recording " + r.getId() + " to " + file);
+    return file;
+  }
+
+  /** Returns the current recording info. */
+  public synchronized Map<String, Object> info() {
+    Map<String, Object> info = new LinkedHashMap<>();
+    info.put("available", isAvailable());
+    if (recording != null) {
+      Recording r = recording;
+      info.put("id", r.getId());
+      info.put("name", r.getName());
+      info.put("state", r.getState());
+      info.put("startTime", Objects.toString(r.getStartTime(), null));
+      info.put("stopTime", Objects.toString(r.getStopTime(), null));
+      info.put("durationSec", r.getDuration() != null ? r.getDuration().getSeconds() : null);
+      info.put("maxAgeSec", r.getMaxAge() != null ? r.getMaxAge().getSeconds() : null);
+      info.put("maxSizeBytes", r.getMaxSize());
+      info.put("sizeBytes", r.getSize());
+    }
+    return info;
+  }
+
+  /** Closes the current recording, discarding the recorded data. */
+  @PreDestroy
+  public synchronized void close() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+
+  private Recording current() {
+    if (recording == null) {
+      throw new IllegalStateException("There is no flight recording, start it first.");
+    }
+    return recording;
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JWT access token validation. The signature verification is skipped for the cached tokens.
+ *
+ * @author Suresh G
+ */
+@Name("com.oneops.proxy.JwtValidation")
+@Label("JWT Validation")
+@Category({"OneOps", "Secrets Proxy"})
+@StackTrace(false)
+public class JwtValidationEvent extends Event {
+
+  @Label("User")
+  String user;
+
+  @Label("Valid")
+  boolean valid;
+
+  @Label("Cached")
+  boolean cached;
+
+  JwtValidationEvent() {}
+
+  /** Marks the token as found in the verified token cache. */
+  public void cached() {
+    this.cached = true;
+  }
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param user token subject, <code>null</code> if it's invalid.
+   */
+  public void complete(String user) {
+    end();
+    if (shouldCommit()) {
+      this.user = user;
+      this.valid = user != null;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Keywhiz API call. The operation is the http method and the url template, Eg: <b>GET
+ * /automation/v2/groups/{}/secrets</b>.
+ *
+ * @author Suresh G
+ */
+@Name("com.oneops.proxy.KeywhizCall")
+@Label("Keywhiz Call")
+@Category({"OneOps", "Secrets Proxy"})
+@StackTrace(false)
+public class KeywhizCallEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Group")
+  String group;
+
+  @Label("Status")
+  int status;
+
+  @Label("Request Bytes")
+  @DataAmount
+  long requestBytes;
+
+  @Label("Response Bytes")
+  @DataAmount
+  long responseBytes;
+
+  KeywhizCallEvent() {}
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param operation http method and url template.
+   * @param group keywhiz group, if any.
+   * @param status http status, <code>0</code> if the call failed.
+   * @param requestBytes request body size.
+   * @param responseBytes response body size.
+   */
+  public void complete(
+      String operation, String group, int status, long requestBytes, long responseBytes) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation;
+      this.group = group;
+      this.status = status;
+      this.requestBytes = requestBytes;
+      this.responseBytes = responseBytes;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * LDAP search or user bind (authentication).
+ *
+ * @author Suresh G
+ */
+@Name("com.oneops.proxy.Ldap")
+@Label("LDAP Operation")
+@Category({"OneOps", "Secrets Proxy"})
+@StackTrace(false)
+public class LdapEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Base DN")
+  String baseDn;
+
+  @Label("Entries")
+  int entries;
+
+  @Label("Status")
+  String status;
+
+  LdapEvent() {}
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param operation <b>search</b> or <b>bind</b>.
+   * @param baseDn search base dn, <code>null</code> for bind.
+   * @param entries number of entries found.
+   * @param status operation status.
+   */
+  public void complete(String operation, String baseDn, int entries, String status) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation;
+      this.baseDn = baseDn;
+      this.entries = entries;
+      this.status = status;
+      commit();
+    }
+  }
+}
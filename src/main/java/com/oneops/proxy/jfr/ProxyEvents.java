@@ -0,0 +1,107 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.jfr;
+
+import javax.annotation.Nullable;
+
+/**
+ * Factory of the proxy flight recorder events. The events are created only if the JVM has the
+ * flight recorder (JDK 11 or 8u262+), else it returns <code>null</code>, so that the event classes
+ * are never loaded on the older JVMs. The events are cheap when there is no recording, JFR skips
+ * the disabled events on commit.
+ *
+ * <pre>
+ *   KeywhizCallEvent event = ProxyEvents.keywhizCall();
+ *   ...
+ *   if (event != null) {
+ *     event.complete(...);
+ *   }
+ * </pre>
+ *
+ * @author Suresh G
+ */
+public final class ProxyEvents {
+
+  private static final boolean AVAILABLE = checkAvailable();
+
+  private ProxyEvents() {}
+
+  /** Returns <code>true</code> if the JVM has the flight recorder. */
+  public static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  private static boolean checkAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, ProxyEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError ex) {
+      return false;
+    }
+  }
+
+  /** Begins a Keywhiz call event. */
+  public static @Nullable KeywhizCallEvent keywhizCall() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    KeywhizCallEvent event = new KeywhizCallEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Begins an LDAP search/bind event. */
+  public static @Nullable LdapEvent ldap() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    LdapEvent event = new LdapEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Begins an authz decision event. */
+  public static @Nullable AuthzEvent authz() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AuthzEvent event = new AuthzEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Begins an audit write event. */
+  public static @Nullable AuditWriteEvent auditWrite() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    AuditWriteEvent event = new AuditWriteEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Begins a JWT validation event. */
+  public static @Nullable JwtValidationEvent jwtValidation() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    JwtValidationEvent event = new JwtValidationEvent();
+    event.begin();
+    return event;
+  }
+}
@@ -19,6 +19,7 @@ package com.oneops.proxy.keywhiz.http;
 
 import static com.google.common.net.HttpHeaders.*;
 import static com.oneops.proxy.keywhiz.http.HttpStatus.*;
+import static java.lang.System.nanoTime;
 import static java.net.CookiePolicy.ACCEPT_ALL;
 import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -29,11 +30,16 @@ import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.jfr.KeywhizCallEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
 import com.oneops.proxy.keywhiz.KeywhizException;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
 import com.oneops.proxy.security.KeywhizKeyStore;
 import java.io.IOException;
 import java.net.CookieManager;
 import java.security.*;
+import java.util.*;
 import javax.net.ssl.*;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
@@ -53,6 +59,26 @@ public abstract class HttpClient {
 
   protected static final ObjectMapper mapper = createObjectMapper();
 
+  /** Fixed path segments of the Keywhiz API, see {@link #pathTemplate(HttpUrl)}. */
+  private static final Set<String> PATH_KEYWORDS =
+      new HashSet<>(
+          Arrays.asList(
+              "_status",
+              "automation",
+              "v2",
+              "admin",
+              "login",
+              "clients",
+              "groups",
+              "secrets",
+              "partialupdate",
+              "versions",
+              "setversion",
+              "expiring",
+              "request",
+              "contents",
+              "rollback"));
+
   protected final OkHttpClient client;
 
   protected final HttpUrl baseUrl;
@@ -175,6 +201,24 @@ public abstract class HttpClient {
    */
   public abstract boolean isClientAuthEnabled();
 
+  /** Returns the http client connection pool. */
+  public ConnectionPool getConnectionPool() {
+    return client.connectionPool();
+  }
+
+  /**
+   * Returns the url path with the names and ids replaced by <b>{}</b>, Eg:
+   * <b>/automation/v2/groups/{}/secrets</b>, so that the calls can be grouped by the API.
+   */
+  static String pathTemplate(HttpUrl url) {
+    StringBuilder buf = new StringBuilder(64);
+    for (String segment : url.pathSegments()) {
+      buf.append('/');
+      buf.append(segment.isEmpty() || PATH_KEYWORDS.contains(segment) ? segment : "{}");
+    }
+    return buf.toString();
+  }
+
   /** Maps some of the common HTTP errors to the corresponding exceptions. */
   protected void throwOnCommonError(int status, String message) throws IOException {
     switch (status) {
@@ -199,14 +243,39 @@ public abstract class HttpClient {
   }
 
   protected String makeCall(Request request) throws IOException {
-    Response response = client.newCall(request).execute();
+    long start = nanoTime();
+    KeywhizCallEvent event = ProxyEvents.keywhizCall();
+    int code = 0;
+    long responseBytes = 0;
     try {
-      throwOnCommonError(response.code(), response.message());
-    } catch (IOException e) {
-      response.body().close();
-      throw e;
+      Response response = client.newCall(request).execute();
+      code = response.code();
+      try {
+        throwOnCommonError(response.code(), response.message());
+      } catch (IOException e) {
+        response.body().close();
+        throw e;
+      }
+      String body = response.body().string();
+      responseBytes = body.length();
+      return body;
+    } finally {
+      String name = request.method() + " " + pathTemplate(request.url());
+      RequestTiming.call(
+          Stage.KEYWHIZ, name, start, code > 0 ? String.valueOf(code) : RequestTiming.ERROR);
+      if (event != null) {
+        RequestBody body = request.body();
+        long requestBytes = body != null ? body.contentLength() : 0;
+        event.complete(name, groupName(request.url()), code, requestBytes, responseBytes);
+      }
     }
-    return response.body().string();
+  }
+
+  /** Returns the keywhiz group name from the url path, <code>null</code> if there is none. */
+  private static String groupName(HttpUrl url) {
+    List<String> segments = url.pathSegments();
+    int i = segments.indexOf("groups");
+    return i >= 0 && i + 1 < segments.size() ? segments.get(i + 1) : null;
   }
 
   protected String httpGet(HttpUrl url) throws IOException {
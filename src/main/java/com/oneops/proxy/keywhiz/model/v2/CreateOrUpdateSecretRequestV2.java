@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.*;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.*;
 import com.google.common.collect.ImmutableMap;
+import com.oneops.proxy.service.SecretValidator;
 import java.util.*;
 import javax.annotation.Nullable;
 
@@ -39,7 +40,9 @@ public abstract class CreateOrUpdateSecretRequestV2 {
     /** @throws IllegalArgumentException if builder data is invalid. */
     public CreateOrUpdateSecretRequestV2 build() {
       // throws IllegalArgumentException if content not valid base64.
-      Base64.getDecoder().decode(content());
+      if (!SecretValidator.isBase64(content())) {
+        throw new IllegalArgumentException("Secret content is not a valid base64 encoded string.");
+      }
 
       CreateOrUpdateSecretRequestV2 request = autoBuild();
       return request;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.*;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.*;
 import com.google.common.collect.*;
+import com.oneops.proxy.service.SecretValidator;
 import java.util.*;
 import javax.annotation.Nullable;
 
@@ -52,7 +53,9 @@ public abstract class CreateSecretRequestV2 {
     /** @throws IllegalArgumentException if builder data is invalid. */
     public CreateSecretRequestV2 build() {
       // throws IllegalArgumentException if content not valid base64.
-      Base64.getDecoder().decode(content());
+      if (!SecretValidator.isBase64(content())) {
+        throw new IllegalArgumentException("Secret content is not a valid base64 encoded string.");
+      }
 
       CreateSecretRequestV2 request = autoBuild();
       if (request.name().isEmpty()) {
@@ -17,37 +17,42 @@
  */
 package com.oneops.proxy.ldap;
 
+import static java.lang.System.nanoTime;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.jfr.LdapEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import com.oneops.proxy.metrics.RequestTiming;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
 import com.oneops.proxy.security.KeywhizKeyStore;
-import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.annotation.*;
 import org.ldaptive.*;
 import org.ldaptive.auth.*;
-import org.ldaptive.cache.*;
 import org.ldaptive.pool.*;
 import org.ldaptive.ssl.SslConfig;
 import org.slf4j.*;
-import sun.security.x509.X500Name;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
 
 /**
  * Ldap client for authenticating/searching AD accounts.
  *
- * <p>ToDo: Remove sun.security.x509.X500Name. This might be an issue in future java versions with
- * JPMS (Jigsaw).
- *
  * @author Suresh G
  */
 public class LdapClient {
 
   private static final Logger log = LoggerFactory.getLogger(LdapClient.class);
   private static final String USERNAME_PATTERN = "[^A-Za-z0-9-_.]";
-  private final ConnectionFactory pcf;
+  private final LdapServers servers;
+  private final PooledConnectionFactory pcf;
   private final OneOpsConfig.LDAP config;
-  private final Cache<SearchRequest> cache;
+  private final LdapSearchCache cache;
   private final Authenticator auth;
 
   /** Checks if the user id is valid. */
@@ -60,31 +65,62 @@ public class LdapClient {
    *
    * @param config LDAP config properties.
    * @param keywhizKeyStore LDAP keystore.
+   * @param metricService metric service for the LDAP server health metrics.
+   * @param metricsUtil metrics util service for the connection pool metrics.
    * @throws GeneralSecurityException
    */
-  public LdapClient(OneOpsConfig.LDAP config, KeywhizKeyStore keywhizKeyStore)
+  public LdapClient(
+      OneOpsConfig.LDAP config,
+      KeywhizKeyStore keywhizKeyStore,
+      DropwizardMetricServices metricService,
+      MetricsUtilService metricsUtil)
       throws GeneralSecurityException {
     log.info("Initializing the LDAP client...");
     this.config = config;
-    SslConfig ssl = new SslConfig();
-    ssl.setTrustManagers(keywhizKeyStore.getTrustManagers());
+    OneOpsConfig.LdapPool poolConfig = config.getPool();
+    List<String> urls = config.getServerUrls();
+    boolean failFast = urls.size() == 1;
 
-    ConnectionConfig connConfig = new ConnectionConfig();
-    connConfig.setLdapUrl(config.getServer());
-    connConfig.setConnectTimeout(Duration.ofSeconds(5));
-    connConfig.setResponseTimeout(Duration.ofSeconds(5));
-    connConfig.setConnectionInitializer(
-        new BindConnectionInitializer(config.getUserDn(), new Credential(config.getPassword())));
-    connConfig.setSslConfig(ssl);
-    // connConfig.setUseStartTLS(true);
+    List<LdapServer> ldapServers = new ArrayList<>();
+    for (String url : urls) {
+      String name = LdapServers.serverName(url);
+      ConnectionConfig connConfig = connectionConfig(url, config, keywhizKeyStore);
+      connConfig.setConnectionInitializer(
+          new BindConnectionInitializer(config.getUserDn(), new Credential(config.getPassword())));
+
+      log.info("Creating blocking connection pool with LDAP bind for " + url);
+      LdapConnectionPool searchPool =
+          new LdapConnectionPool(
+              "search." + name,
+              new DefaultConnectionFactory(connConfig),
+              poolConfig,
+              failFast,
+              metricsUtil);
 
-    log.info("Creating blocking connection pool with LDAP bind.");
-    DefaultConnectionFactory dcf = new DefaultConnectionFactory(connConfig);
-    BlockingConnectionPool connPool = new BlockingConnectionPool(dcf);
-    connPool.initialize();
+      LdapConnectionPool bindPool = null;
+      if (poolConfig.isPooledBind()) {
+        // User binds don't need the service account bind.
+        log.info("Creating blocking connection pool for user binds to " + url);
+        bindPool =
+            new LdapConnectionPool(
+                "bind." + name,
+                new DefaultConnectionFactory(connectionConfig(url, config, keywhizKeyStore)),
+                poolConfig,
+                failFast,
+                metricsUtil);
+      }
+      ldapServers.add(new LdapServer(url, name, searchPool, bindPool));
+    }
+    servers = new LdapServers(ldapServers, config.getSlowServerThresholdMs(), metricService);
+    servers.start(config.getHealthCheckPeriodSec());
+    pcf = servers.searchFactory();
 
-    pcf = new PooledConnectionFactory(connPool);
-    cache = new LRUCache<>(100, Duration.ofMinutes(30), Duration.ofMinutes(15));
+    cache =
+        new LdapSearchCache(
+            config.getSearchCacheSize(),
+            config.getSearchCacheTtlSec(),
+            config.getSearchCacheRefreshSec(),
+            this::searchUncached);
 
     log.info("Initializing LDAP authenticator with cache.");
     SearchDnResolver dnResolver = new SearchDnResolver(pcf);
@@ -93,19 +129,85 @@ public class LdapClient {
     dnResolver.setUserFilter(String.format("(%s={user})", config.getUserAttribute()));
     dnResolver.setSearchCache(cache);
 
-    BindAuthenticationHandler authHandler = new BindAuthenticationHandler(dcf);
+    AuthenticationHandler authHandler;
+    if (poolConfig.isPooledBind()) {
+      authHandler = new PooledBindAuthenticationHandler(servers.bindFactory());
+    } else {
+      // Ldaptive tries the space separated URLs in order.
+      String allUrls = String.join(" ", urls);
+      authHandler =
+          new BindAuthenticationHandler(
+              new DefaultConnectionFactory(connectionConfig(allUrls, config, keywhizKeyStore)));
+    }
     auth = new Authenticator(dnResolver, authHandler);
     log.info("LDAP client initialization completed.");
   }
 
+  /** Returns the LDAP connection config, without any connection initializer. */
+  private static ConnectionConfig connectionConfig(
+      String url, OneOpsConfig.LDAP config, KeywhizKeyStore keywhizKeyStore)
+      throws GeneralSecurityException {
+    SslConfig ssl = new SslConfig();
+    ssl.setTrustManagers(keywhizKeyStore.getTrustManagers());
+
+    ConnectionConfig connConfig = new ConnectionConfig();
+    connConfig.setLdapUrl(url);
+    connConfig.setConnectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()));
+    connConfig.setResponseTimeout(Duration.ofMillis(config.getResponseTimeoutMs()));
+    connConfig.setSslConfig(ssl);
+    // connConfig.setUseStartTLS(true);
+    return connConfig;
+  }
+
+  /** Executes the search request, bypassing the cache. Used to refresh the cached results. */
+  private SearchResult searchUncached(SearchRequest request) throws LdapException {
+    Connection conn = pcf.getConnection();
+    try {
+      return new SearchOperation(conn).execute(request).getResult();
+    } finally {
+      conn.close();
+    }
+  }
+
+  /**
+   * Evicts all the cached LDAP search results of the given user.
+   *
+   * @param userId LDAP/AD user id
+   * @return number of entries evicted.
+   */
+  public int evictUser(String userId) {
+    return cache.evict(userId);
+  }
+
+  /** Evicts all the cached LDAP search results. */
+  public void clearSearchCache() {
+    cache.clear();
+  }
+
+  /** Returns the LDAP search cache stats. */
+  public CacheStats getSearchCacheStats() {
+    return cache.stats();
+  }
+
+  /** Returns the number of cached LDAP search results. */
+  public long getSearchCacheSize() {
+    return cache.size();
+  }
+
+  /** Stops the LDAP health probes and closes the connection pools. */
+  public void close() {
+    log.info("Closing the LDAP connection pools.");
+    servers.close();
+  }
+
   /**
    * Searches for entries matching given user id.
    *
    * @param userId LDAP/AD user id
-   * @return list of {@link X500Name} matching the given user id.
+   * @return list of {@link LdapDn} matching the given user id.
    * @throws LdapException if there are any errors searching LDAP or invalid user id.
    */
-  public List<X500Name> searchUser(String userId) throws LdapException {
+  public List<LdapDn> searchUser(String userId) throws LdapException {
     if (!isSanitizedUsername(userId)) {
       throw new LdapException("Invalid user id: " + userId);
     }
@@ -120,18 +222,8 @@ public class LdapClient {
    * @throws LdapException if there are any errors searching LDAP.
    */
   public @Nonnull List<String> getRoles(String userDN) throws LdapException {
-    List<X500Name> names = search(userDN, config.getRoleBaseDn(), config.getRoleAttribute());
-    return names
-        .stream()
-        .map(
-            x -> {
-              try {
-                return x.getCommonName();
-              } catch (IOException e) {
-                throw new RuntimeException(e);
-              }
-            })
-        .collect(Collectors.toList());
+    List<LdapDn> names = search(userDN, config.getRoleBaseDn(), config.getRoleAttribute());
+    return names.stream().map(LdapDn::getCommonName).collect(Collectors.toList());
   }
 
   /**
@@ -149,10 +241,10 @@ public class LdapClient {
    * @param name LDAP/AD user id
    * @param baseDn user/role baseDn
    * @param attributeName attribute name to search for.
-   * @return list of {@link X500Name} matching the given user id.
+   * @return list of {@link LdapDn} matching the given user id.
    * @throws LdapException if there are any errors searching LDAP or invalid user id.
    */
-  private @Nonnull List<X500Name> search(String name, String baseDn, String attributeName)
+  private @Nonnull List<LdapDn> search(String name, String baseDn, String attributeName)
       throws LdapException {
     SearchExecutor executor = new SearchExecutor();
     executor.setBaseDn(baseDn);
@@ -160,18 +252,23 @@ public class LdapClient {
     executor.setSearchCache(cache);
     // Use "*" to query all the attributes.
     SearchFilter filter = new SearchFilter(String.format("(%s=%s)", attributeName, name));
-    SearchResult result = executor.search(pcf, filter).getResult();
+    long start = nanoTime();
+    LdapEvent event = ProxyEvents.ldap();
+    String status = RequestTiming.ERROR;
+    SearchResult result = null;
+    try {
+      result = executor.search(pcf, filter).getResult();
+      status = RequestTiming.OK;
+    } finally {
+      RequestTiming.call(Stage.LDAP, "search " + attributeName, start, status);
+      if (event != null) {
+        event.complete("search", baseDn, result != null ? result.size() : 0, status);
+      }
+    }
     return result
         .getEntries()
         .stream()
-        .map(
-            entry -> {
-              try {
-                return new X500Name(entry.getDn());
-              } catch (IOException ex) {
-                throw new RuntimeException(ex);
-              }
-            })
+        .map(entry -> LdapDn.parse(entry.getDn()))
         .collect(Collectors.toList());
   }
 
@@ -198,8 +295,19 @@ public class LdapClient {
     if (!isSanitizedUsername(userId)) {
       throw new LdapException("Invalid user id: " + userId);
     }
-    AuthenticationResponse response =
-        auth.authenticate(new AuthenticationRequest(userId, new Credential(password)));
+    long start = nanoTime();
+    LdapEvent event = ProxyEvents.ldap();
+    String status = RequestTiming.ERROR;
+    AuthenticationResponse response;
+    try {
+      response = auth.authenticate(new AuthenticationRequest(userId, new Credential(password)));
+      status = response.getResult() ? RequestTiming.OK : "failed";
+    } finally {
+      RequestTiming.call(Stage.LDAP, "bind", start, status);
+      if (event != null) {
+        event.complete("bind", null, RequestTiming.OK.equals(status) ? 1 : 0, status);
+      }
+    }
     if (response.getResult()) {
       log.debug(userId + " authentication succeeded.");
       return response.getLdapEntry();
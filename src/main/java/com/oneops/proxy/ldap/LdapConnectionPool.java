@@ -0,0 +1,120 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import static com.oneops.proxy.metrics.MetricsUtilService.stop;
+import static java.lang.System.nanoTime;
+
+import com.codahale.metrics.Timer;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ldaptive.*;
+import org.ldaptive.pool.*;
+import org.slf4j.*;
+
+/**
+ * A blocking LDAP connection pool, configured using {@link OneOpsConfig.LdapPool}. The pool usage
+ * is reported as <b>gauge.oneops.ldap.pool.{name}.(active|idle|waiters)</b> and the connection
+ * wait time as <b>timer.oneops.ldap.pool.{name}.waitTime</b> metrics.
+ *
+ * @author Suresh G
+ */
+class LdapConnectionPool extends PooledConnectionFactory {
+
+  private static final Logger log = LoggerFactory.getLogger(LdapConnectionPool.class);
+
+  private final BlockingConnectionPool pool;
+
+  private final Timer waitTimer;
+
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /**
+   * Creates and initializes the connection pool.
+   *
+   * @param name pool name.
+   * @param factory factory used to open the pool connections.
+   * @param config pool config.
+   * @param failFast fails the pool initialization if the server is not reachable.
+   * @param metricsUtil metrics util service.
+   */
+  LdapConnectionPool(
+      String name,
+      DefaultConnectionFactory factory,
+      OneOpsConfig.LdapPool config,
+      boolean failFast,
+      MetricsUtilService metricsUtil) {
+    String metricPrefix = "oneops.ldap.pool." + name;
+    this.waitTimer = metricsUtil.timer(metricPrefix + ".waitTime");
+
+    PoolConfig poolConfig = new PoolConfig();
+    poolConfig.setMinPoolSize(config.getMinSize());
+    poolConfig.setMaxPoolSize(config.getMaxSize());
+    poolConfig.setValidateOnCheckOut(config.isValidateOnCheckOut());
+    poolConfig.setValidatePeriodically(config.isValidatePeriodically());
+    poolConfig.setValidatePeriod(Duration.ofSeconds(config.getValidatePeriodSec()));
+
+    pool = new BlockingConnectionPool(poolConfig, factory);
+    pool.setName(name);
+    pool.setBlockWaitTime(Duration.ofMillis(config.getBlockWaitMs()));
+    pool.setValidator(new SearchValidator());
+    pool.setFailFastInitialize(failFast);
+    pool.setPruneStrategy(
+        new IdlePruneStrategy(
+            Duration.ofSeconds(config.getPrunePeriodSec()),
+            Duration.ofSeconds(config.getIdleTimeSec())));
+
+    log.info("Initializing LDAP connection pool " + name + ": " + config);
+    pool.initialize();
+    setConnectionPool(pool);
+
+    metricsUtil.gauge(metricPrefix + ".active", pool::activeCount);
+    metricsUtil.gauge(metricPrefix + ".idle", pool::availableCount);
+    metricsUtil.gauge(metricPrefix + ".waiters", waiters::get);
+  }
+
+  /** Checks out a connection from the pool, waiting up to the configured block wait time. */
+  @Override
+  public Connection getConnection() throws LdapException {
+    waiters.incrementAndGet();
+    long start = nanoTime();
+    try {
+      return super.getConnection();
+    } finally {
+      waiters.decrementAndGet();
+      stop(waitTimer, start);
+    }
+  }
+
+  /** Number of connections in use. */
+  int activeCount() {
+    return pool.activeCount();
+  }
+
+  /** Number of idle connections. */
+  int idleCount() {
+    return pool.availableCount();
+  }
+
+  /** Closes all the pool connections. */
+  void close() {
+    pool.close();
+  }
+}
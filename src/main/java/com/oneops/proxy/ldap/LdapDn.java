@@ -0,0 +1,347 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import javax.annotation.Nullable;
+
+/**
+ * A small <a href="https://tools.ietf.org/html/rfc4514">RFC 4514</a> distinguished name parser.
+ * Parsing only records the offsets of the attribute types and values in the DN string. The values
+ * are materialized (and unescaped) on access, so extracting the CN of a DN costs a single scan and
+ * one substring. Besides RFC 4514, it accepts the legacy (RFC 2253/1779) forms returned by some
+ * servers: spaces around the separators, <b>;</b> as RDN separator and quoted values.
+ *
+ * <p>Hex string values (<b>#04024869</b>) are returned as is, without BER decoding.
+ *
+ * @author Suresh G
+ */
+public final class LdapDn {
+
+  /** Ints stored per attribute type and value (AVA). */
+  private static final int STRIDE = 6;
+
+  private static final int TYPE_START = 0, TYPE_END = 1, VALUE_START = 2, VALUE_END = 3;
+  private static final int FLAGS = 4, RDN = 5;
+
+  /** Value flags. */
+  private static final int ESCAPED = 1, HEX = 2;
+
+  private final String dn;
+
+  private final int[] avas;
+
+  private final int size;
+
+  private final int rdnCount;
+
+  private LdapDn(String dn, int[] avas, int size, int rdnCount) {
+    this.dn = dn;
+    this.avas = avas;
+    this.size = size;
+    this.rdnCount = rdnCount;
+  }
+
+  /**
+   * Parses the distinguished name.
+   *
+   * @param dn distinguished name string.
+   * @return {@link LdapDn}
+   * @throws IllegalArgumentException if the DN is not valid.
+   */
+  public static LdapDn parse(String dn) {
+    Objects.requireNonNull(dn, "DN is null.");
+    int n = dn.length();
+    int[] avas = new int[8 * STRIDE];
+    int size = 0;
+    int rdn = 0;
+
+    int i = skipSpaces(dn, 0);
+    if (i == n) {
+      return new LdapDn(dn, avas, 0, 0);
+    }
+
+    while (true) {
+      // Attribute type
+      int typeStart = i;
+      while (i < n && dn.charAt(i) != '=') {
+        if (isSeparator(dn.charAt(i))) {
+          throw invalid(dn, i, "missing '='");
+        }
+        i++;
+      }
+      if (i == n) {
+        throw invalid(dn, i, "missing '='");
+      }
+      int typeEnd = trimEnd(dn, typeStart, i);
+      if (typeEnd == typeStart) {
+        throw invalid(dn, i, "empty attribute type");
+      }
+      i = skipSpaces(dn, i + 1);
+
+      // Attribute value
+      int valueStart = i;
+      int valueEnd = i;
+      int flags = 0;
+      if (i < n && dn.charAt(i) == '#') {
+        flags = HEX;
+        i++;
+        while (i < n && isHex(dn.charAt(i))) {
+          i++;
+        }
+        if (i == valueStart + 1 || (i - valueStart - 1) % 2 != 0) {
+          throw invalid(dn, i, "invalid hex string");
+        }
+        valueEnd = i;
+      } else if (i < n && dn.charAt(i) == '"') {
+        valueStart = ++i;
+        while (i < n && dn.charAt(i) != '"') {
+          if (dn.charAt(i) == '\\') {
+            flags = ESCAPED;
+            i++;
+          }
+          i++;
+        }
+        if (i >= n) {
+          throw invalid(dn, n, "unterminated quoted value");
+        }
+        valueEnd = i++;
+      } else {
+        while (i < n) {
+          char c = dn.charAt(i);
+          if (c == '\\') {
+            flags = ESCAPED;
+            i = escapeEnd(dn, i);
+            valueEnd = i;
+          } else if (isSeparator(c)) {
+            break;
+          } else {
+            i++;
+            // Unescaped trailing spaces are not part of the value.
+            if (c != ' ') {
+              valueEnd = i;
+            }
+          }
+        }
+      }
+
+      if (size * STRIDE == avas.length) {
+        avas = Arrays.copyOf(avas, avas.length * 2);
+      }
+      int off = size++ * STRIDE;
+      avas[off + TYPE_START] = typeStart;
+      avas[off + TYPE_END] = typeEnd;
+      avas[off + VALUE_START] = valueStart;
+      avas[off + VALUE_END] = valueEnd;
+      avas[off + FLAGS] = flags;
+      avas[off + RDN] = rdn;
+
+      i = skipSpaces(dn, i);
+      if (i == n) {
+        break;
+      }
+      char sep = dn.charAt(i);
+      if (!isSeparator(sep)) {
+        throw invalid(dn, i, "unexpected character '" + sep + "'");
+      }
+      if (sep != '+') {
+        rdn++;
+      }
+      i = skipSpaces(dn, i + 1);
+      if (i == n) {
+        throw invalid(dn, i, "trailing separator");
+      }
+    }
+    return new LdapDn(dn, avas, size, rdn + 1);
+  }
+
+  /**
+   * Returns the common name (leftmost CN) of the DN.
+   *
+   * @param dn distinguished name string.
+   * @return common name or <code>null</code> if the DN has no CN.
+   * @throws IllegalArgumentException if the DN is not valid.
+   */
+  public static @Nullable String commonName(String dn) {
+    return parse(dn).getCommonName();
+  }
+
+  /** Returns the common name (leftmost CN), <code>null</code> if there is none. */
+  public @Nullable String getCommonName() {
+    return getValue("CN");
+  }
+
+  /**
+   * Returns the leftmost (most specific) value of the given attribute type.
+   *
+   * @param type attribute type, case insensitive.
+   * @return attribute value or <code>null</code> if the DN doesn't have the attribute type.
+   */
+  public @Nullable String getValue(String type) {
+    for (int i = 0; i < size; i++) {
+      if (typeEquals(i, type)) {
+        return value(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns all the values of the given attribute type, from left to right.
+   *
+   * @param type attribute type, case insensitive.
+   * @return list of attribute values.
+   */
+  public List<String> getValues(String type) {
+    List<String> values = new ArrayList<>(2);
+    for (int i = 0; i < size; i++) {
+      if (typeEquals(i, type)) {
+        values.add(value(i));
+      }
+    }
+    return values;
+  }
+
+  /** Number of attribute type and values (AVA) in the DN. */
+  public int size() {
+    return size;
+  }
+
+  /** Number of RDNs in the DN. Multi valued RDNs have more than one AVA. */
+  public int rdnCount() {
+    return rdnCount;
+  }
+
+  /** Returns the attribute type of the i'th AVA. */
+  public String type(int i) {
+    int off = offset(i);
+    return dn.substring(avas[off + TYPE_START], avas[off + TYPE_END]);
+  }
+
+  /** Returns the unescaped attribute value of the i'th AVA. */
+  public String value(int i) {
+    int off = offset(i);
+    int start = avas[off + VALUE_START];
+    int end = avas[off + VALUE_END];
+    if ((avas[off + FLAGS] & ESCAPED) == 0) {
+      return dn.substring(start, end);
+    }
+    return unescape(dn, start, end);
+  }
+
+  /** Returns the RDN index (from left, starts with 0) of the i'th AVA. */
+  public int rdn(int i) {
+    return avas[offset(i) + RDN];
+  }
+
+  /** Returns the DN string. */
+  @Override
+  public String toString() {
+    return dn;
+  }
+
+  private int offset(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("AVA index: " + i + ", size: " + size);
+    }
+    return i * STRIDE;
+  }
+
+  private boolean typeEquals(int i, String type) {
+    int off = i * STRIDE;
+    int start = avas[off + TYPE_START];
+    int len = avas[off + TYPE_END] - start;
+    return len == type.length() && dn.regionMatches(true, start, type, 0, len);
+  }
+
+  /** Unescapes the value. Hex pairs are decoded as UTF-8 bytes. */
+  private static String unescape(String dn, int start, int end) {
+    StringBuilder buf = new StringBuilder(end - start);
+    ByteArrayOutputStream bytes = null;
+    int i = start;
+    while (i < end) {
+      char c = dn.charAt(i);
+      if (c == '\\' && i + 2 < end && isHex(dn.charAt(i + 1)) && isHex(dn.charAt(i + 2))) {
+        if (bytes == null) {
+          bytes = new ByteArrayOutputStream(4);
+        }
+        int hi = Character.digit(dn.charAt(i + 1), 16);
+        int lo = Character.digit(dn.charAt(i + 2), 16);
+        bytes.write(hi << 4 | lo);
+        i += 3;
+        continue;
+      }
+      if (bytes != null && bytes.size() > 0) {
+        buf.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        bytes.reset();
+      }
+      if (c == '\\' && i + 1 < end) {
+        c = dn.charAt(++i);
+      }
+      buf.append(c);
+      i++;
+    }
+    if (bytes != null && bytes.size() > 0) {
+      buf.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+    return buf.toString();
+  }
+
+  /** Returns the index after the escape sequence starting at i. */
+  private static int escapeEnd(String dn, int i) {
+    int n = dn.length();
+    if (i + 1 >= n) {
+      throw invalid(dn, i, "dangling escape");
+    }
+    if (isHex(dn.charAt(i + 1))) {
+      if (i + 2 >= n || !isHex(dn.charAt(i + 2))) {
+        throw invalid(dn, i, "invalid hex pair");
+      }
+      return i + 3;
+    }
+    return i + 2;
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == ',' || c == '+' || c == ';';
+  }
+
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  private static int skipSpaces(String dn, int i) {
+    while (i < dn.length() && dn.charAt(i) == ' ') {
+      i++;
+    }
+    return i;
+  }
+
+  private static int trimEnd(String dn, int start, int end) {
+    while (end > start && dn.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  private static IllegalArgumentException invalid(String dn, int pos, String reason) {
+    return new IllegalArgumentException("Invalid DN '" + dn + "' at " + pos + ": " + reason);
+  }
+}
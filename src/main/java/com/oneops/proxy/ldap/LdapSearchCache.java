@@ -0,0 +1,120 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.github.benmanes.caffeine.cache.*;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.*;
+import org.ldaptive.*;
+import org.ldaptive.cache.Cache;
+
+/**
+ * A Caffeine backed ldaptive search {@link Cache}. If the refresh is enabled, the stale entries are
+ * reloaded in the background using the given search function, so that the frequent users never
+ * wait for an AD search.
+ *
+ * @author Suresh G
+ */
+class LdapSearchCache implements Cache<SearchRequest> {
+
+  private final com.github.benmanes.caffeine.cache.Cache<SearchRequest, SearchResult> cache;
+
+  /**
+   * Creates the search cache.
+   *
+   * @param maxSize max number of search results to cache.
+   * @param ttlSec time to keep the search results, in secs.
+   * @param refreshSec time after which the entries are refreshed in the background. <b>0</b> or
+   *     any value greater than <b>ttlSec</b> disables the refresh.
+   * @param search search function used to refresh the entries.
+   */
+  LdapSearchCache(
+      long maxSize, int ttlSec, int refreshSec, CacheLoader<SearchRequest, SearchResult> search) {
+    Caffeine<Object, Object> builder =
+        Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSec, SECONDS).recordStats();
+    if (refreshSec > 0 && refreshSec < ttlSec) {
+      cache = builder.refreshAfterWrite(refreshSec, SECONDS).build(search);
+    } else {
+      cache = builder.build();
+    }
+  }
+
+  @Override
+  public SearchResult get(SearchRequest request) {
+    return cache.getIfPresent(request);
+  }
+
+  @Override
+  public void put(SearchRequest request, SearchResult result) {
+    cache.put(request, result);
+  }
+
+  /** Returns the cache stats. */
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+  /** Returns the number of cached search results. */
+  long size() {
+    return cache.estimatedSize();
+  }
+
+  /** Invalidates all the cached search results. */
+  void clear() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Invalidates all the search results of the given user. This includes the user entry searches
+   * and the searches by the user DNs (eg: role search).
+   *
+   * @param userId user id.
+   * @return number of entries invalidated.
+   */
+  int evict(String userId) {
+    Map<SearchRequest, SearchResult> map = cache.asMap();
+    Set<SearchRequest> keys = new HashSet<>();
+    Set<String> dns = new HashSet<>();
+    map.forEach(
+        (req, res) -> {
+          if (filterValueEquals(req, userId)) {
+            keys.add(req);
+            res.getEntries().forEach(e -> dns.add(e.getDn()));
+          }
+        });
+    if (!dns.isEmpty()) {
+      for (SearchRequest req : map.keySet()) {
+        if (dns.stream().anyMatch(dn -> filterValueEquals(req, dn))) {
+          keys.add(req);
+        }
+      }
+    }
+    cache.invalidateAll(keys);
+    return keys.size();
+  }
+
+  /** Checks if the search filter is a simple (attr=value) filter for the given value. */
+  private static boolean filterValueEquals(SearchRequest req, String value) {
+    String filter = req.getSearchFilter().format();
+    String suffix = "=" + value + ")";
+    int offset = filter.length() - suffix.length();
+    return offset > 0 && filter.regionMatches(true, offset, suffix, 0, suffix.length());
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import javax.annotation.Nullable;
+
+/**
+ * An LDAP server (domain controller) with its connection pools, health and the moving average
+ * latency of the health probes.
+ *
+ * @author Suresh G
+ */
+class LdapServer {
+
+  /** Weight of the latest latency sample in the moving average. */
+  private static final double ALPHA = 0.3;
+
+  private final String url;
+
+  private final String name;
+
+  private final LdapConnectionPool searchPool;
+
+  private final @Nullable LdapConnectionPool bindPool;
+
+  private volatile boolean healthy = true;
+
+  private volatile double latencyMs = 0;
+
+  LdapServer(
+      String url,
+      String name,
+      LdapConnectionPool searchPool,
+      @Nullable LdapConnectionPool bindPool) {
+    this.url = url;
+    this.name = name;
+    this.searchPool = searchPool;
+    this.bindPool = bindPool;
+  }
+
+  String getUrl() {
+    return url;
+  }
+
+  /** Server name used in the metrics. */
+  String getName() {
+    return name;
+  }
+
+  LdapConnectionPool getSearchPool() {
+    return searchPool;
+  }
+
+  @Nullable
+  LdapConnectionPool getBindPool() {
+    return bindPool;
+  }
+
+  boolean isHealthy() {
+    return healthy;
+  }
+
+  double getLatencyMs() {
+    return latencyMs;
+  }
+
+  /** Records a successful probe. */
+  synchronized void success(long sampleMs) {
+    // Starts afresh after a failure, so that a recovered server is used again right away.
+    boolean reset = !healthy || latencyMs == 0;
+    latencyMs = reset ? sampleMs : ALPHA * sampleMs + (1 - ALPHA) * latencyMs;
+    healthy = true;
+  }
+
+  /** Marks the server down, till the next successful probe. */
+  void failure() {
+    healthy = false;
+  }
+
+  void close() {
+    searchPool.close();
+    if (bindPool != null) {
+      bindPool.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LdapServer{"
+        + "url='"
+        + url
+        + '\''
+        + ", healthy="
+        + healthy
+        + ", latencyMs="
+        + latencyMs
+        + '}';
+  }
+}
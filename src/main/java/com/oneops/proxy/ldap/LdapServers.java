@@ -0,0 +1,209 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import org.ldaptive.*;
+import org.ldaptive.pool.*;
+import org.slf4j.*;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+
+/**
+ * LDAP servers (domain controllers) used for the failover. All the servers are probed periodically
+ * for health and latency. Each connection is taken from the fastest healthy server. The servers
+ * with the moving average latency above the slow threshold are ejected, as long as there is a
+ * faster healthy server, and failed servers are used only if all the others are down.
+ *
+ * <p>Server metrics: <b>gauge.oneops.ldap.server.{name}.(latency|healthy)</b>, <b>
+ * meter.oneops.ldap.server.{name}.err</b> and <b>meter.oneops.ldap.failover</b>.
+ *
+ * @author Suresh G
+ */
+class LdapServers {
+
+  private static final Logger log = LoggerFactory.getLogger(LdapServers.class);
+
+  private final List<LdapServer> servers;
+
+  private final long slowThresholdMs;
+
+  private final DropwizardMetricServices metricService;
+
+  private final ScheduledExecutorService prober;
+
+  private final SearchValidator validator = new SearchValidator();
+
+  private ScheduledFuture<?> probeTask;
+
+  /**
+   * Creates the LDAP servers. Use {@link #start(int)} to start the health probes.
+   *
+   * @param servers LDAP servers.
+   * @param slowThresholdMs servers slower than this are not used, if there is a faster one.
+   * @param metricService metric service.
+   */
+  LdapServers(
+      List<LdapServer> servers, long slowThresholdMs, DropwizardMetricServices metricService) {
+    this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+    this.slowThresholdMs = slowThresholdMs;
+    this.metricService = metricService;
+    this.prober =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "ldap-health-probe");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Starts the health probes.
+   *
+   * @param probePeriodSec health probe interval, in secs.
+   */
+  synchronized void start(int probePeriodSec) {
+    if (probeTask == null) {
+      probeTask = prober.scheduleWithFixedDelay(this::probe, 0, probePeriodSec, SECONDS);
+    }
+  }
+
+  /** Connection factory for the searches (service account binds). */
+  PooledConnectionFactory searchFactory() {
+    return new FailoverConnectionFactory(LdapServer::getSearchPool);
+  }
+
+  /** Connection factory for the user binds. */
+  PooledConnectionFactory bindFactory() {
+    return new FailoverConnectionFactory(LdapServer::getBindPool);
+  }
+
+  /** Returns the servers in the order of preference, fastest healthy server first. */
+  List<LdapServer> ordered() {
+    List<LdapServer> ordered = new ArrayList<>(servers);
+    if (ordered.size() > 1) {
+      ordered.sort(
+          Comparator.comparing((LdapServer s) -> !s.isHealthy())
+              .thenComparing(s -> s.getLatencyMs() > slowThresholdMs)
+              .thenComparingDouble(LdapServer::getLatencyMs));
+    }
+    return ordered;
+  }
+
+  /** Probes all the servers using a root DSE search. */
+  void probe() {
+    for (LdapServer server : servers) {
+      boolean valid;
+      long latency = 0;
+      try {
+        Connection conn = server.getSearchPool().getConnection();
+        try {
+          // Times only the search, the pool wait says nothing about the server.
+          long start = nanoTime();
+          valid = validator.validate(conn);
+          latency = NANOSECONDS.toMillis(nanoTime() - start);
+        } finally {
+          conn.close();
+        }
+      } catch (PoolExhaustedException ex) {
+        // Server is busy, not down.
+        continue;
+      } catch (Exception ex) {
+        log.debug("Health probe failed for " + server.getUrl(), ex);
+        valid = false;
+      }
+      if (valid) {
+        server.success(latency);
+      } else {
+        failed(server);
+      }
+      String prefix = "gauge.oneops.ldap.server." + server.getName();
+      metricService.submit(prefix + ".latency", server.getLatencyMs());
+      metricService.submit(prefix + ".healthy", server.isHealthy() ? 1 : 0);
+    }
+  }
+
+  private void failed(LdapServer server) {
+    if (server.isHealthy()) {
+      log.warn("LDAP server " + server.getUrl() + " is down.");
+    }
+    server.failure();
+    metricService.increment("meter.oneops.ldap.server." + server.getName() + ".err");
+  }
+
+  /** Stops the health probes and closes all the connection pools. */
+  synchronized void close() {
+    if (probeTask != null) {
+      probeTask.cancel(true);
+    }
+    prober.shutdownNow();
+    servers.forEach(LdapServer::close);
+  }
+
+  /** Returns the metric friendly server name from the LDAP URL. */
+  static String serverName(String url) {
+    String host;
+    try {
+      host = URI.create(url).getHost();
+    } catch (IllegalArgumentException ex) {
+      host = null;
+    }
+    return (host != null ? host : url).replaceAll("[^A-Za-z0-9-]", "_");
+  }
+
+  /** Connection factory which takes the connections from the fastest healthy server. */
+  private class FailoverConnectionFactory extends PooledConnectionFactory {
+
+    private final Function<LdapServer, LdapConnectionPool> pool;
+
+    FailoverConnectionFactory(Function<LdapServer, LdapConnectionPool> pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public Connection getConnection() throws LdapException {
+      LdapException error = null;
+      List<LdapServer> ordered = ordered();
+      for (int i = 0; i < ordered.size(); i++) {
+        LdapServer server = ordered.get(i);
+        try {
+          Connection conn = pool.apply(server).getConnection();
+          if (i > 0) {
+            metricService.increment("meter.oneops.ldap.failover");
+          }
+          return conn;
+        } catch (PoolExhaustedException ex) {
+          // Server is busy, not down.
+          error = ex;
+        } catch (LdapException ex) {
+          // Pool errors and connect failures, fails over to the next server.
+          log.warn("Can't get a connection from " + server.getUrl(), ex);
+          failed(server);
+          error = ex;
+        }
+      }
+      throw error != null ? error : new PoolException("No LDAP servers configured.");
+    }
+  }
+}
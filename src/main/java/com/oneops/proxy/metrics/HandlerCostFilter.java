@@ -0,0 +1,185 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.oneops.proxy.config.OneOpsConfig;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+import org.slf4j.*;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Accounts the heap allocation and CPU time of the requests per handler method, using the request
+ * thread's allocated bytes and CPU time ({@link com.sun.management.ThreadMXBean}) at the request
+ * start and end. The handler is found by the {@link Interceptor}, so only the requests mapped to a
+ * controller method are accounted. The filter runs ahead of the security filters, so that the
+ * authentication cost is included.
+ *
+ * <p>Metrics: <b>histogram.oneops.handler.{Controller.method}.(allocBytes|cpuNanos)</b>, see the
+ * <b>/handlercost</b> endpoint for the summary. Enable it using <b>
+ * oneops.metrics.handler-cost-enabled</b>.
+ *
+ * @author Suresh G
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class HandlerCostFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(HandlerCostFilter.class);
+
+  /** Request attribute of the {@link HandlerMethod}. */
+  static final String HANDLER_ATTR = HandlerCostFilter.class.getName() + ".handler";
+
+  private final MetricsUtilService metricsUtil;
+
+  /** Thread MX bean, <code>null</code> if the accounting is disabled or not supported. */
+  private final com.sun.management.ThreadMXBean threadBean;
+
+  private final boolean cpuTime;
+
+  /** Handler costs, by handler name. */
+  private final ConcurrentMap<String, Cost> costs = new ConcurrentHashMap<>();
+
+  /** Handler cost cache, by handler method. */
+  private final ConcurrentMap<Method, Cost> methodCosts = new ConcurrentHashMap<>();
+
+  public HandlerCostFilter(OneOpsConfig config, MetricsUtilService metricsUtil) {
+    this.metricsUtil = metricsUtil;
+    this.threadBean = config.getMetrics().isHandlerCostEnabled() ? threadBean() : null;
+    this.cpuTime = threadBean != null && threadBean.isThreadCpuTimeEnabled();
+    log.info("Handler allocation accounting: " + (threadBean != null) + ", CPU time: " + cpuTime);
+  }
+
+  /** Returns the thread MX bean with the allocation accounting enabled, if it's supported. */
+  private static com.sun.management.ThreadMXBean threadBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    if (!threadBean.isThreadAllocatedMemorySupported()) {
+      return null;
+    }
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    if (threadBean.isCurrentThreadCpuTimeSupported()) {
+      threadBean.setThreadCpuTimeEnabled(true);
+    }
+    return threadBean;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest req) {
+    return threadBean == null;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+      throws ServletException, IOException {
+    long threadId = Thread.currentThread().getId();
+    long allocStart = threadBean.getThreadAllocatedBytes(threadId);
+    long cpuStart = cpuTime ? threadBean.getCurrentThreadCpuTime() : 0;
+    try {
+      chain.doFilter(req, res);
+    } finally {
+      Object handler = req.getAttribute(HANDLER_ATTR);
+      if (handler instanceof HandlerMethod) {
+        Cost cost = cost(((HandlerMethod) handler).getMethod());
+        cost.allocBytes.update(threadBean.getThreadAllocatedBytes(threadId) - allocStart);
+        if (cpuTime) {
+          cost.cpuNanos.update(threadBean.getCurrentThreadCpuTime() - cpuStart);
+        }
+      }
+    }
+  }
+
+  private Cost cost(Method method) {
+    Cost cost = methodCosts.get(method);
+    if (cost == null) {
+      String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+      cost = costs.computeIfAbsent(name, n -> new Cost(n, metricsUtil));
+      methodCosts.putIfAbsent(method, cost);
+    }
+    return cost;
+  }
+
+  /** Returns the handler costs recorded so far. */
+  public Collection<Cost> getCosts() {
+    return costs.values();
+  }
+
+  /** Returns <code>true</code> if the CPU time is accounted. */
+  public boolean isCpuTimeEnabled() {
+    return cpuTime;
+  }
+
+  /** Allocation and CPU time histograms of a handler method. */
+  public static final class Cost {
+
+    private final String handler;
+
+    private final Histogram allocBytes;
+
+    private final Histogram cpuNanos;
+
+    Cost(String handler, MetricsUtilService metricsUtil) {
+      this.handler = handler;
+      this.allocBytes = metricsUtil.histogram("oneops.handler." + handler + ".allocBytes");
+      this.cpuNanos = metricsUtil.histogram("oneops.handler." + handler + ".cpuNanos");
+    }
+
+    /** Handler name, Eg: <b>GroupController.getSecretVersions</b>. */
+    public String getHandler() {
+      return handler;
+    }
+
+    public Histogram getAllocBytes() {
+      return allocBytes;
+    }
+
+    public Histogram getCpuNanos() {
+      return cpuNanos;
+    }
+  }
+
+  /**
+   * Sets the {@link HandlerMethod} of the request for the {@link HandlerCostFilter}. The handler of
+   * the error dispatch doesn't replace the original handler.
+   */
+  public static class Interceptor extends HandlerInterceptorAdapter {
+
+    @Override
+    public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) {
+      if (handler instanceof HandlerMethod && req.getAttribute(HANDLER_ATTR) == null) {
+        req.setAttribute(HANDLER_ATTR, handler);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A Dropwizard {@link Reservoir} backed by HdrHistogram. Recording is lock-free and allocation
+ * free, and the percentiles are accurate to the given number of significant digits (unlike the
+ * default sampling reservoir).
+ *
+ * <p>The recorded values are moved to the current window when a snapshot is taken. The windows
+ * rotate every <b>window</b> duration and a snapshot has the values of the current and the previous
+ * window, so the stats reflect the recent values. The lifetime sum of the values is kept apart, see
+ * {@link HdrSnapshot#getSum()}.
+ *
+ * @author Suresh G
+ */
+public class HdrReservoir implements Reservoir {
+
+  private final Recorder recorder;
+
+  private final long windowNanos;
+
+  private final LongAdder sum = new LongAdder();
+
+  private Histogram interval;
+
+  private Histogram current;
+
+  private Histogram previous;
+
+  private long windowStart;
+
+  /**
+   * Creates the reservoir.
+   *
+   * @param digits number of significant value digits (1 to 5).
+   * @param window window duration.
+   * @param unit window duration unit.
+   */
+  public HdrReservoir(int digits, long window, TimeUnit unit) {
+    this.recorder = new Recorder(digits);
+    this.windowNanos = unit.toNanos(window);
+    this.current = new Histogram(digits);
+    this.previous = new Histogram(digits);
+    this.windowStart = System.nanoTime();
+  }
+
+  @Override
+  public int size() {
+    return getSnapshot().size();
+  }
+
+  @Override
+  public void update(long value) {
+    long v = Math.max(0, value);
+    recorder.recordValue(v);
+    sum.add(v);
+  }
+
+  @Override
+  public synchronized Snapshot getSnapshot() {
+    interval = recorder.getIntervalHistogram(interval);
+    current.add(interval);
+    long now = System.nanoTime();
+    if (now - windowStart >= windowNanos) {
+      Histogram reuse = previous;
+      previous = current;
+      current = reuse;
+      current.reset();
+      windowStart = now;
+    }
+    Histogram merged = current.copy();
+    merged.add(previous);
+    return new HdrSnapshot(merged, sum.sum());
+  }
+
+  /** Snapshot of a histogram copy. */
+  public static final class HdrSnapshot extends Snapshot {
+
+    private final Histogram histogram;
+
+    private final long sum;
+
+    HdrSnapshot(Histogram histogram, long sum) {
+      this.histogram = histogram;
+      this.sum = sum;
+    }
+
+    /**
+     * Returns the sum of all the values recorded so far, not only the ones in the snapshot windows.
+     * It's monotonic, like the metric count.
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+      return histogram.getValueAtPercentile(quantile * 100);
+    }
+
+    /** Distinct recorded values, one per histogram bucket. */
+    @Override
+    public long[] getValues() {
+      long[] values = new long[64];
+      int i = 0;
+      for (HistogramIterationValue v : histogram.recordedValues()) {
+        if (i == values.length) {
+          values = Arrays.copyOf(values, i * 2);
+        }
+        values[i++] = v.getValueIteratedTo();
+      }
+      return Arrays.copyOf(values, i);
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getMax() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+    }
+
+    @Override
+    public double getMean() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+    }
+
+    @Override
+    public long getMin() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+    }
+
+    @Override
+    public double getStdDev() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+      try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8))) {
+        for (HistogramIterationValue v : histogram.recordedValues()) {
+          out.println(v.getValueIteratedTo() + " " + v.getCountAtValueIteratedTo());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static com.oneops.proxy.model.AppGroup.APP_NAME_PARAM;
+import static com.oneops.proxy.model.AppSecret.APP_SECRET_PARAM;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.springframework.web.servlet.HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
+
+import com.oneops.proxy.config.OneOpsConfig;
+import java.security.Principal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.*;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Tracks the heavy hitters (top users, application groups, secrets and client IPs) of the requests
+ * handled by the controllers, using a {@link TopK} estimator per dimension. The counts are halved
+ * every <b>oneops.metrics.heavy-hitters-half-life-sec</b>, so the top keys reflect the recent
+ * load. The memory is fixed, as per the <b>oneops.metrics.heavy-hitters-(size|sketch-width)</b>.
+ *
+ * <p>Metrics: <b>gauge.oneops.heavy.{dimension}.(topCount|topShare)</b>, updated on every decay.
+ * See the <b>/heavyhitters</b> endpoint for the top keys.
+ *
+ * @author Suresh G
+ */
+@Component
+public class HeavyHitterTracker extends HandlerInterceptorAdapter {
+
+  /** Tracked dimensions. */
+  public static final String USER = "user";
+
+  public static final String GROUP = "group";
+
+  public static final String SECRET = "secret";
+
+  public static final String CLIENT = "client";
+
+  private final OneOpsConfig.Metrics config;
+
+  private final DropwizardMetricServices metricService;
+
+  private final Map<String, TopK> topKs = new LinkedHashMap<>();
+
+  private final TopK users;
+
+  private final TopK groups;
+
+  private final TopK secrets;
+
+  private final TopK clients;
+
+  private final long halfLifeNanos;
+
+  private final AtomicLong nextDecay;
+
+  public HeavyHitterTracker(OneOpsConfig config, DropwizardMetricServices metricService) {
+    this.config = config.getMetrics();
+    this.metricService = metricService;
+    this.users = newTopK(USER);
+    this.groups = newTopK(GROUP);
+    this.secrets = newTopK(SECRET);
+    this.clients = newTopK(CLIENT);
+    this.halfLifeNanos = SECONDS.toNanos(this.config.getHeavyHittersHalfLifeSec());
+    this.nextDecay = new AtomicLong(nanoTime() + halfLifeNanos);
+  }
+
+  private TopK newTopK(String dimension) {
+    TopK topK = new TopK(config.getHeavyHittersSize(), config.getHeavyHittersSketchWidth());
+    topKs.put(dimension, topK);
+    return topK;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) {
+    if (config.isHeavyHittersEnabled()) {
+      @SuppressWarnings("unchecked")
+      Map<String, String> pathVars =
+          (Map<String, String>) req.getAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+      String group = pathVars != null ? pathVars.get(APP_NAME_PARAM) : null;
+      String secret = pathVars != null ? pathVars.get(APP_SECRET_PARAM) : null;
+      Principal user = req.getUserPrincipal();
+      record(user != null ? user.getName() : null, group, secret, req.getRemoteAddr());
+    }
+    return true;
+  }
+
+  /**
+   * Records a request. The <code>null</code> values are not tracked.
+   *
+   * @param user user name.
+   * @param group application group name.
+   * @param secret secret name of the application group.
+   * @param client client IP address.
+   */
+  public void record(String user, String group, String secret, String client) {
+    long now = nanoTime();
+    long decayAt = nextDecay.get();
+    if (now - decayAt >= 0 && nextDecay.compareAndSet(decayAt, now + halfLifeNanos)) {
+      decay();
+    }
+    users.add(user);
+    groups.add(group);
+    secrets.add(group != null && secret != null ? group + "/" + secret : null);
+    clients.add(client);
+  }
+
+  /** Halves the counts and updates the gauges with the top key of the last half-life. */
+  private void decay() {
+    topKs.forEach(
+        (dimension, topK) -> {
+          List<Map.Entry<String, Long>> top = topK.top();
+          long topCount = top.isEmpty() ? 0 : top.get(0).getValue();
+          long total = topK.total();
+          String prefix = "gauge.oneops.heavy." + dimension;
+          metricService.submit(prefix + ".topCount", topCount);
+          metricService.submit(prefix + ".topShare", total > 0 ? 100.0 * topCount / total : 0);
+          topK.decay();
+        });
+  }
+
+  /**
+   * Returns the top keys of each dimension with their estimated (decayed) counts and share of the
+   * requests.
+   */
+  public Map<String, Object> top() {
+    Map<String, Object> res = new LinkedHashMap<>();
+    res.put("halfLifeSec", config.getHeavyHittersHalfLifeSec());
+    topKs.forEach(
+        (dimension, topK) -> {
+          long total = topK.total();
+          List<Map<String, Object>> top = new ArrayList<>();
+          for (Map.Entry<String, Long> e : topK.top()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", e.getKey());
+            entry.put("count", e.getValue());
+            entry.put("share", total > 0 ? Math.round(1000.0 * e.getValue() / total) / 10.0 : 0);
+            top.add(entry);
+          }
+          Map<String, Object> dim = new LinkedHashMap<>();
+          dim.put("total", total);
+          dim.put("top", top);
+          res.put(dimension, dim);
+        });
+    return res;
+  }
+}
@@ -18,38 +18,132 @@
 package com.oneops.proxy.metrics;
 
 import static java.lang.String.format;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
-import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+import com.codahale.metrics.*;
+import com.oneops.proxy.config.OneOpsConfig;
+import java.util.function.Supplier;
 import org.springframework.stereotype.Service;
 
 /**
- * Some utility functions for timer and size.
+ * Pre-registered metric handles and some utility functions for timer and size. The handles are
+ * looked up once (Eg: at construction time) and kept in a field, so that recording a value on the
+ * hot path is just a lock-free update, without building the metric name or a registry lookup.
+ * Timers are recorded in nanoseconds and use the {@link HdrReservoir}.
+ *
+ * <p>The metric names are the same as the ones submitted to the {@link
+ * org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices}, ie. prefixed
+ * with <b>timer.</b>, <b>meter.</b> and <b>histogram.</b>
  *
  * @author Suresh G
  */
 @Service
 public class MetricsUtilService {
 
-  private DropwizardMetricServices metricService;
+  private final MetricRegistry registry;
+
+  private final OneOpsConfig.Metrics config;
+
+  public MetricsUtilService(MetricRegistry registry, OneOpsConfig config) {
+    this.registry = registry;
+    this.config = config.getMetrics();
+  }
+
+  /**
+   * Returns the timer, registering it if needed.
+   *
+   * @param metric metric name, without the <b>timer.</b> prefix.
+   * @return timer handle.
+   */
+  public Timer timer(String metric) {
+    return register("timer." + metric, Timer.class, () -> new Timer(newReservoir()));
+  }
+
+  /**
+   * Returns the histogram, registering it if needed.
+   *
+   * @param metric metric name, without the <b>histogram.</b> prefix.
+   * @return histogram handle.
+   */
+  public Histogram histogram(String metric) {
+    return register("histogram." + metric, Histogram.class, () -> new Histogram(newReservoir()));
+  }
+
+  /**
+   * Returns the meter, registering it if needed.
+   *
+   * @param metric metric name, without the <b>meter.</b> prefix.
+   * @return meter handle.
+   */
+  public Meter meter(String metric) {
+    return register("meter." + metric, Meter.class, Meter::new);
+  }
+
+  /**
+   * Registers the gauge, replacing any gauge registered with the same name.
+   *
+   * @param metric metric name, without the <b>gauge.</b> prefix.
+   * @param gauge gauge to register.
+   * @return gauge handle.
+   */
+  public synchronized <T> Gauge<T> gauge(String metric, Gauge<T> gauge) {
+    String name = "gauge." + metric;
+    registry.remove(name);
+    return registry.register(name, gauge);
+  }
 
-  public MetricsUtilService(DropwizardMetricServices metricService) {
-    this.metricService = metricService;
+  /** Creates a new HdrHistogram reservoir as per the metrics config. */
+  public Reservoir newReservoir() {
+    return new HdrReservoir(config.getHistogramDigits(), config.getHistogramWindowSec(), SECONDS);
   }
 
-  /** A helper method to time operations or errors. */
-  public <T, E extends Exception> T time(String metric, ThrowingSupplier<T, E> lambda) throws E {
-    long start = currentTimeMillis();
+  private synchronized <T extends Metric> T register(
+      String name, Class<T> type, Supplier<T> factory) {
+    Metric metric = registry.getMetrics().get(name);
+    if (metric == null) {
+      return registry.register(name, factory.get());
+    }
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException(
+          name + " is already registered as a " + metric.getClass().getSimpleName());
+    }
+    return type.cast(metric);
+  }
+
+  /**
+   * A helper method to time operations or errors.
+   *
+   * @param timer operation timer.
+   * @param errors operation error meter.
+   * @param lambda operation.
+   * @return operation result.
+   * @throws E operation exception.
+   */
+  public static <T, E extends Exception> T time(
+      Timer timer, Meter errors, ThrowingSupplier<T, E> lambda) throws E {
+    long start = nanoTime();
     try {
       return lambda.get();
     } catch (Exception ex) {
-      metricService.increment("meter." + metric + ".err");
+      errors.mark();
       throw ex;
     } finally {
-      metricService.submit("timer." + metric, currentTimeMillis() - start);
+      timer.update(nanoTime() - start, NANOSECONDS);
     }
   }
 
+  /**
+   * Records the time elapsed since the given {@link System#nanoTime()}.
+   *
+   * @param timer timer.
+   * @param startNanos start time from {@link System#nanoTime()}.
+   */
+  public static void stop(Timer timer, long startNanos) {
+    timer.update(nanoTime() - startNanos, NANOSECONDS);
+  }
+
   /**
    * Converts a given number to a string preceded by the corresponding binary International System
    * of Units (SI) prefix.
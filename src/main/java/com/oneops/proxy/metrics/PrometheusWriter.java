@@ -0,0 +1,165 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import java.io.*;
+
+/**
+ * Writes the metric samples in the Prometheus <a
+ * href="https://prometheus.io/docs/instrumenting/exposition_formats/">text exposition format</a>.
+ * The samples are written to the underlying writer as they are added, nothing is buffered here.
+ *
+ * @author Suresh G
+ */
+public class PrometheusWriter {
+
+  /** Exposition format content type. */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final Writer out;
+
+  public PrometheusWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes the metric family type line.
+   *
+   * @param name metric name.
+   * @param type one of <b>counter</b>, <b>gauge</b> or <b>summary</b>.
+   */
+  public PrometheusWriter type(String name, String type) throws IOException {
+    out.write("# TYPE ");
+    out.write(name);
+    out.write(' ');
+    out.write(type);
+    out.write('\n');
+    return this;
+  }
+
+  public PrometheusWriter sample(String name, long value) throws IOException {
+    return sample(name, "", null, null, Long.toString(value));
+  }
+
+  public PrometheusWriter sample(String name, double value) throws IOException {
+    return sample(name, "", null, null, format(value));
+  }
+
+  /**
+   * Writes the sample of <b>name + suffix</b>, Eg: the <b>_count</b> of a summary.
+   *
+   * @param name metric name.
+   * @param suffix name suffix.
+   * @param value sample value.
+   */
+  public PrometheusWriter sample(String name, String suffix, long value) throws IOException {
+    return sample(name, suffix, null, null, Long.toString(value));
+  }
+
+  /**
+   * Writes the sample of <b>name + suffix</b>, Eg: the <b>_sum</b> of a summary.
+   *
+   * @param name metric name.
+   * @param suffix name suffix.
+   * @param value sample value.
+   */
+  public PrometheusWriter sample(String name, String suffix, double value) throws IOException {
+    return sample(name, suffix, null, null, format(value));
+  }
+
+  public PrometheusWriter sample(String name, String label, String labelValue, long value)
+      throws IOException {
+    return sample(name, "", label, labelValue, Long.toString(value));
+  }
+
+  public PrometheusWriter sample(String name, String label, String labelValue, double value)
+      throws IOException {
+    return sample(name, "", label, labelValue, format(value));
+  }
+
+  private PrometheusWriter sample(
+      String name, String suffix, String label, String labelValue, String value)
+      throws IOException {
+    out.write(name);
+    out.write(suffix);
+    if (label != null) {
+      out.write('{');
+      out.write(label);
+      out.write("=\"");
+      escape(labelValue);
+      out.write("\"}");
+    }
+    out.write(' ');
+    out.write(value);
+    out.write('\n');
+    return this;
+  }
+
+  /** Escapes the backslash, double-quote and line feed in the label value. */
+  private void escape(String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        default:
+          out.write(c);
+      }
+    }
+  }
+
+  private static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * Returns a valid metric name for the given source name, replacing the chars not allowed in the
+   * metric names with <b>_</b>. Eg: <b>oneops.ldap.auth</b> becomes <b>oneops_ldap_auth</b>.
+   */
+  public static String sanitize(String source) {
+    StringBuilder buf = new StringBuilder(source.length() + 1);
+    for (int i = 0; i < source.length(); i++) {
+      char c = source.charAt(i);
+      boolean valid =
+          (c >= 'a' && c <= 'z')
+              || (c >= 'A' && c <= 'Z')
+              || c == '_'
+              || c == ':'
+              || (i > 0 && c >= '0' && c <= '9');
+      if (i == 0 && c >= '0' && c <= '9') {
+        buf.append('_');
+        valid = true;
+      }
+      buf.append(valid ? c : '_');
+    }
+    return buf.toString();
+  }
+}
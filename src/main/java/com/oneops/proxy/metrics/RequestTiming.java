@@ -0,0 +1,292 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+
+import java.util.*;
+
+/**
+ * Request scoped stage timing. The {@link ServerTimingFilter} binds a timing to the request thread
+ * and the stages add their elapsed time to it using {@link #record(Stage, long)}. It's a no-op for
+ * the threads not processing a request, so the work handed over to another thread has to be bound
+ * to the request, see {@link #bind(Runnable)}. The upstream calls (Keywhiz, LDAP and DB) are also
+ * kept for the {@link SlowRequestLog}, see {@link #call(Stage, String, long, String)}.
+ *
+ * <pre>
+ *   long start = System.nanoTime();
+ *   try {
+ *     ...
+ *   } finally {
+ *     RequestTiming.record(Stage.AUTHZ, start);
+ *   }
+ * </pre>
+ *
+ * @author Suresh G
+ */
+public final class RequestTiming {
+
+  /** Request processing stages. */
+  public enum Stage {
+    /** JWT validation. */
+    AUTH("auth"),
+    /** Authz check of the application group. */
+    AUTHZ("authz"),
+    /** Keywhiz calls. */
+    KEYWHIZ("keywhiz"),
+    /** LDAP searches and binds. */
+    LDAP("ldap"),
+    /** OneOps DB queries. */
+    DB("db"),
+    /** Audit log. */
+    AUDIT("audit");
+
+    private final String id;
+
+    Stage(String id) {
+      this.id = id;
+    }
+
+    /** Stage id used in the <b>Server-Timing</b> header and the metric names. */
+    public String getId() {
+      return id;
+    }
+  }
+
+  /** Upstream call status. */
+  public static final String OK = "ok";
+
+  /** Upstream call status. */
+  public static final String ERROR = "error";
+
+  /** Cached stages, {@link Stage#values()} clones the array. */
+  static final Stage[] STAGES = Stage.values();
+
+  /** Max number of upstream calls kept per request. */
+  private static final int MAX_CALLS = 64;
+
+  private static final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+
+  private final long startNanos;
+
+  private final long startMillis;
+
+  private final long[] nanos = new long[STAGES.length];
+
+  private final int[] counts = new int[STAGES.length];
+
+  private List<Call> calls;
+
+  /**
+   * Set once the request is completed, the stages still running on another thread (Eg: a timed
+   * out login) are not added afterwards.
+   */
+  private volatile boolean ended;
+
+  /** Request end time for the frozen timing, see {@link #freeze()}. */
+  private long endNanos;
+
+  private RequestTiming(long startNanos, long startMillis) {
+    this.startNanos = startNanos;
+    this.startMillis = startMillis;
+  }
+
+  /**
+   * Adds the time elapsed since the given {@link System#nanoTime()} to the stage of the current
+   * request.
+   *
+   * @param stage request stage.
+   * @param startNanos stage start time.
+   */
+  public static void record(Stage stage, long startNanos) {
+    RequestTiming timing = current.get();
+    if (timing != null) {
+      timing.add(stage, nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Records an upstream call of the current request, along with its stage time.
+   *
+   * @param stage request stage.
+   * @param name call name, Eg: <b>GET /automation/v2/clients</b>, <b>search</b> or <b>teams</b>.
+   * @param startNanos call start time from {@link System#nanoTime()}.
+   * @param status call status, Eg: HTTP status code, {@link #OK} or {@link #ERROR}.
+   */
+  public static void call(Stage stage, String name, long startNanos, String status) {
+    RequestTiming timing = current.get();
+    if (timing != null) {
+      timing.addCall(stage, name, nanoTime() - startNanos, status);
+    }
+  }
+
+  /**
+   * Binds the timing of the current request to the task, so that the stages processed by the task
+   * on another thread (Eg: the async login) are added to the request.
+   *
+   * @param task task to run on another thread.
+   * @return task bound to the current request timing, or the same task if there is none.
+   */
+  public static Runnable bind(Runnable task) {
+    RequestTiming timing = current.get();
+    if (timing == null) {
+      return task;
+    }
+    return () -> {
+      current.set(timing);
+      try {
+        task.run();
+      } finally {
+        current.remove();
+      }
+    };
+  }
+
+  private synchronized void add(Stage stage, long elapsed) {
+    if (ended) {
+      return;
+    }
+    nanos[stage.ordinal()] += elapsed;
+    counts[stage.ordinal()]++;
+  }
+
+  private synchronized void addCall(Stage stage, String name, long elapsed, String status) {
+    if (ended) {
+      return;
+    }
+    add(stage, elapsed);
+    if (calls == null) {
+      calls = new ArrayList<>(4);
+    }
+    if (calls.size() < MAX_CALLS) {
+      calls.add(new Call(stage, name, elapsed, status));
+    }
+  }
+
+  /**
+   * Ends the request timing and returns a copy of it. The stages recorded afterwards (Eg: by a
+   * timed out login still running) are dropped, so the copy can be read from any thread.
+   */
+  synchronized RequestTiming freeze() {
+    ended = true;
+    RequestTiming frozen = new RequestTiming(startNanos, startMillis);
+    System.arraycopy(nanos, 0, frozen.nanos, 0, nanos.length);
+    System.arraycopy(counts, 0, frozen.counts, 0, counts.length);
+    if (calls != null) {
+      frozen.calls = new ArrayList<>(calls);
+    }
+    frozen.endNanos = nanoTime();
+    frozen.ended = true;
+    return frozen;
+  }
+
+  /** Starts the timing of the current request. */
+  static RequestTiming begin() {
+    RequestTiming timing = new RequestTiming(nanoTime(), currentTimeMillis());
+    current.set(timing);
+    return timing;
+  }
+
+  /** Unbinds the timing from the current thread. */
+  void end() {
+    current.remove();
+  }
+
+  /** Total time spent on the stage, in nanos. */
+  long nanos(Stage stage) {
+    return nanos[stage.ordinal()];
+  }
+
+  /** Number of times the stage is recorded. */
+  int count(Stage stage) {
+    return counts[stage.ordinal()];
+  }
+
+  /** Request start time, in epoch millis. */
+  long startMillis() {
+    return startMillis;
+  }
+
+  /** Time elapsed since the request start (till the end for the frozen timing), in nanos. */
+  long elapsed() {
+    return (endNanos != 0 ? endNanos : nanoTime()) - startNanos;
+  }
+
+  /** Upstream calls in the order they are made. */
+  List<Call> calls() {
+    return calls != null ? calls : Collections.emptyList();
+  }
+
+  /**
+   * Returns the W3C <b>Server-Timing</b> header value for the stages recorded so far, along with
+   * the total request time. Eg: <b>authz;dur=1.204, keywhiz;dur=20.5;desc="2 calls",
+   * total;dur=23.117</b>
+   */
+  synchronized String header() {
+    StringBuilder buf = new StringBuilder(128);
+    for (Stage stage : STAGES) {
+      int count = counts[stage.ordinal()];
+      if (count > 0) {
+        appendMetric(buf, stage.getId(), nanos[stage.ordinal()]);
+        if (count > 1) {
+          buf.append(";desc=\"").append(count).append(" calls\"");
+        }
+        buf.append(", ");
+      }
+    }
+    appendMetric(buf, "total", elapsed());
+    return buf.toString();
+  }
+
+  /** Appends the metric with the duration in millis, up to micros precision. */
+  private static void appendMetric(StringBuilder buf, String name, long nanos) {
+    long micros = nanos / 1_000;
+    buf.append(name).append(";dur=").append(micros / 1_000);
+    long frac = micros % 1_000;
+    if (frac != 0) {
+      buf.append('.');
+      if (frac < 100) {
+        buf.append('0');
+      }
+      if (frac < 10) {
+        buf.append('0');
+      }
+      buf.append(frac);
+    }
+  }
+
+  /** An upstream call made by the request. */
+  static final class Call {
+
+    final Stage stage;
+
+    final String name;
+
+    final long nanos;
+
+    final String status;
+
+    Call(Stage stage, String name, long nanos, String status) {
+      this.stage = stage;
+      this.name = name;
+      this.nanos = nanos;
+      this.status = status;
+    }
+  }
+}
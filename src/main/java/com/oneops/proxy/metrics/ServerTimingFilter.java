@@ -0,0 +1,188 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.codahale.metrics.Timer;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import java.io.IOException;
+import java.util.*;
+import javax.servlet.*;
+import javax.servlet.http.*;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Times the request processing stages (see {@link RequestTiming}) and records them as
+ * <b>timer.oneops.stage.{stage}</b> metrics. The stage breakdown is sent back as the W3C <b>
+ * Server-Timing</b> header if the request has the opt in header (<b>X-Server-Timing</b>) or the
+ * user has any of the <b>oneops.metrics.server-timing-roles</b>. The slow requests are written to
+ * the {@link SlowRequestLog}. The filter runs ahead of the security filters, so that the JWT
+ * validation is included. The async requests (Eg: login) are recorded once those complete.
+ *
+ * @author Suresh G
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+  public static final String SERVER_TIMING = "Server-Timing";
+
+  private final OneOpsConfig.Metrics config;
+
+  private final Set<String> authorities;
+
+  /** Stage timers, indexed by the stage ordinal. */
+  private final Timer[] timers;
+
+  private final SlowRequestLog slowRequestLog;
+
+  public ServerTimingFilter(
+      OneOpsConfig config, MetricsUtilService metricsUtil, SlowRequestLog slowRequestLog) {
+    this.config = config.getMetrics();
+    this.slowRequestLog = slowRequestLog;
+    this.authorities = new HashSet<>();
+    for (String role : this.config.getServerTimingRoles()) {
+      authorities.add("ROLE_" + role);
+    }
+    Stage[] stages = Stage.values();
+    this.timers = new Timer[stages.length];
+    for (Stage stage : stages) {
+      timers[stage.ordinal()] = metricsUtil.timer("oneops.stage." + stage.getId());
+    }
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+      throws ServletException, IOException {
+    RequestTiming timing = RequestTiming.begin();
+    boolean optIn = isOptIn(req);
+    TimingResponse timingRes = null;
+    if (optIn || !authorities.isEmpty()) {
+      timingRes = new TimingResponse(res, timing, optIn);
+    }
+    try {
+      chain.doFilter(req, timingRes != null ? timingRes : res);
+    } finally {
+      timing.end();
+      if (req.isAsyncStarted()) {
+        // The stages run on another thread (Eg: login), those are recorded on completion.
+        req.getAsyncContext().addListener(new CompletionListener(req, res, timing));
+      } else {
+        // The response is not committed yet if there is no body.
+        if (optIn && !timingRes.sent && !res.isCommitted()) {
+          res.setHeader(SERVER_TIMING, timing.header());
+        }
+        record(req, res, timing.freeze());
+      }
+    }
+  }
+
+  /** Records the stage timers of the request and logs it if it's slow. */
+  private void record(HttpServletRequest req, HttpServletResponse res, RequestTiming timing) {
+    for (Stage stage : RequestTiming.STAGES) {
+      if (timing.count(stage) > 0) {
+        timers[stage.ordinal()].update(timing.nanos(stage), NANOSECONDS);
+      }
+    }
+    slowRequestLog.record(req, res, timing);
+  }
+
+  private boolean isOptIn(HttpServletRequest req) {
+    String header = config.getServerTimingHeader();
+    return header != null && !header.isEmpty() && req.getHeader(header) != null;
+  }
+
+  /** Checks if the current user has any of the server timing roles. */
+  private boolean hasRole() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null) {
+      return false;
+    }
+    for (GrantedAuthority authority : auth.getAuthorities()) {
+      if (authorities.contains(authority.getAuthority())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Records the async request timing once the request is completed. */
+  private class CompletionListener implements AsyncListener {
+
+    private final HttpServletRequest req;
+
+    private final HttpServletResponse res;
+
+    private final RequestTiming timing;
+
+    CompletionListener(HttpServletRequest req, HttpServletResponse res, RequestTiming timing) {
+      this.req = req;
+      this.res = res;
+      this.timing = timing;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      // A timed out login may still be running, only its stages recorded so far are used.
+      record(req, res, timing.freeze());
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {}
+
+    @Override
+    public void onError(AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+  }
+
+  /** Adds the <b>Server-Timing</b> header just before the response is committed. */
+  private class TimingResponse extends OnCommittedResponseWrapper {
+
+    private final RequestTiming timing;
+
+    private final boolean optIn;
+
+    private boolean sent;
+
+    TimingResponse(HttpServletResponse res, RequestTiming timing, boolean optIn) {
+      super(res);
+      this.timing = timing;
+      this.optIn = optIn;
+    }
+
+    @Override
+    protected void onResponseCommitted() {
+      if (optIn || hasRole()) {
+        setHeader(SERVER_TIMING, timing.header());
+        sent = true;
+      }
+    }
+  }
+}
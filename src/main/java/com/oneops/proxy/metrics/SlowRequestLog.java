@@ -0,0 +1,168 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.RequestTiming.Call;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import java.io.*;
+import java.time.Instant;
+import javax.servlet.http.*;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.*;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs the slow requests as JSON, one per line, with the stage timings and the upstream calls made
+ * by the request. A request is slow if it takes longer than <b>oneops.metrics.slow-request-ms</b>
+ * or the <b>oneops.metrics.slow-request-percentile</b> of the recent request times. The entries are
+ * written to the slow request log file by an async appender (see <b>logback-spring.xml</b>).
+ *
+ * <pre>
+ * {"time":"2018-06-20T17:04:05.123Z","method":"GET","uri":"/apps/oneops_proxy_prod/secrets/x/
+ * contents","status":200,"totalMs":1204.312,"queueWaitMs":2,"bytesIn":0,"bytesOut":1732,
+ * "stages":{"auth":0.412,"authz":1.05,"keywhiz":1190.2},"calls":[{"stage":"keywhiz","name":"GET
+ * /automation/v2/secrets/x","ms":1190.2,"status":"200"}]}
+ * </pre>
+ *
+ * @author Suresh G
+ */
+@Component
+public class SlowRequestLog {
+
+  private static final Logger log = LoggerFactory.getLogger(SlowRequestLog.class);
+
+  /** How often the percentile threshold is updated from the request timer. */
+  private static final long REFRESH_NANOS = SECONDS.toNanos(10);
+
+  /** Min number of recent requests needed for the percentile threshold. */
+  private static final int MIN_SAMPLES = 100;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  private final Timer requestTimer;
+
+  private final long thresholdNanos;
+
+  private final double quantile;
+
+  private volatile long percentileNanos = Long.MAX_VALUE;
+
+  private volatile long refreshedAt = nanoTime();
+
+  public SlowRequestLog(OneOpsConfig config, MetricsUtilService metricsUtil) {
+    OneOpsConfig.Metrics metrics = config.getMetrics();
+    this.requestTimer = metricsUtil.timer("oneops.request");
+    long slowMs = metrics.getSlowRequestMs();
+    this.thresholdNanos = slowMs > 0 ? MILLISECONDS.toNanos(slowMs) : Long.MAX_VALUE;
+    this.quantile = metrics.getSlowRequestPercentile() / 100;
+  }
+
+  /**
+   * Records the request time and logs the request if it's slow.
+   *
+   * @param req http request.
+   * @param res http response.
+   * @param timing request timing.
+   */
+  void record(HttpServletRequest req, HttpServletResponse res, RequestTiming timing) {
+    long total = timing.elapsed();
+    requestTimer.update(total, NANOSECONDS);
+    if (isSlow(total) && log.isInfoEnabled()) {
+      log.info(toJson(req, res, timing, total));
+    }
+  }
+
+  private boolean isSlow(long total) {
+    if (total >= thresholdNanos) {
+      return true;
+    }
+    if (quantile <= 0) {
+      return false;
+    }
+    long now = nanoTime();
+    if (now - refreshedAt >= REFRESH_NANOS) {
+      refreshedAt = now;
+      Snapshot snapshot = requestTimer.getSnapshot();
+      percentileNanos =
+          snapshot.size() >= MIN_SAMPLES ? (long) snapshot.getValue(quantile) : Long.MAX_VALUE;
+    }
+    return total > percentileNanos;
+  }
+
+  private String toJson(
+      HttpServletRequest req, HttpServletResponse res, RequestTiming timing, long total) {
+    StringWriter out = new StringWriter(512);
+    try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+      gen.writeStartObject();
+      gen.writeStringField("time", Instant.ofEpochMilli(timing.startMillis()).toString());
+      gen.writeStringField("method", req.getMethod());
+      gen.writeStringField("uri", req.getRequestURI());
+      gen.writeNumberField("status", res.getStatus());
+      gen.writeNumberField("totalMs", millis(total));
+
+      Request jettyReq = Request.getBaseRequest(req);
+      if (jettyReq != null) {
+        // Time spent by the request, from its arrival to the start of the processing.
+        gen.writeNumberField("queueWaitMs", timing.startMillis() - jettyReq.getTimeStamp());
+        gen.writeNumberField("bytesIn", jettyReq.getHttpInput().getContentConsumed());
+        gen.writeNumberField("bytesOut", jettyReq.getResponse().getHttpChannel().getBytesWritten());
+      } else {
+        gen.writeNumberField("bytesIn", req.getContentLengthLong());
+      }
+
+      gen.writeObjectFieldStart("stages");
+      for (Stage stage : RequestTiming.STAGES) {
+        if (timing.count(stage) > 0) {
+          gen.writeNumberField(stage.getId(), millis(timing.nanos(stage)));
+        }
+      }
+      gen.writeEndObject();
+
+      gen.writeArrayFieldStart("calls");
+      for (Call call : timing.calls()) {
+        gen.writeStartObject();
+        gen.writeStringField("stage", call.stage.getId());
+        gen.writeStringField("name", call.name);
+        gen.writeNumberField("ms", millis(call.nanos));
+        gen.writeStringField("status", call.status);
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    } catch (IOException ex) {
+      // Not thrown by the string writer.
+      throw new UncheckedIOException(ex);
+    }
+    return out.toString();
+  }
+
+  /** Nanos to millis, rounded to micros. */
+  private static double millis(long nanos) {
+    return Math.round(nanos / 1_000.0) / 1_000.0;
+  }
+}
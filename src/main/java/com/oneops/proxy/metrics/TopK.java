@@ -0,0 +1,176 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Streaming top-k (heavy hitters) estimator with a fixed memory, no matter how many distinct keys
+ * are added. The key counts are estimated by a count-min sketch and the top <b>k</b> keys are kept
+ * as candidates. A key replaces the least frequent candidate once its estimated count is larger.
+ * The counts are halved on {@link #decay()}, so the recent keys weigh more.
+ *
+ * <p>Adding a key is lock-free, the lock is taken only when a non candidate key has a higher count
+ * than the least frequent candidate.
+ *
+ * @author Suresh G
+ */
+public class TopK {
+
+  private static final int DEPTH = 4;
+
+  private final int k;
+
+  private final int mask;
+
+  /** Count-min sketch, <b>DEPTH</b> rows of <b>width</b> counters. */
+  private final AtomicLongArray counts;
+
+  private final AtomicLong total = new AtomicLong();
+
+  private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+
+  /** Min estimated count of the candidates, once it has <b>k</b> keys. Updated under the lock. */
+  private volatile long threshold;
+
+  /**
+   * Creates the estimator.
+   *
+   * @param k number of top keys.
+   * @param width sketch width, rounded up to a power of 2. The estimated counts are within <b>
+   *     e/width</b> of the total count.
+   */
+  public TopK(int k, int width) {
+    this.k = k;
+    int w = Integer.highestOneBit(Math.max(width, 2) - 1) << 1;
+    this.mask = w - 1;
+    this.counts = new AtomicLongArray(DEPTH * w);
+  }
+
+  /** Adds the key, <code>null</code> is ignored. */
+  public void add(String key) {
+    if (key == null) {
+      return;
+    }
+    total.incrementAndGet();
+    int h = key.hashCode();
+    int h1 = h ^ (h >>> 16);
+    int h2 = mix(h);
+    long est = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      est = Math.min(est, counts.incrementAndGet(index(i, h1, h2)));
+    }
+    if (est > threshold && !candidates.contains(key)) {
+      offer(key, est);
+    }
+  }
+
+  private synchronized void offer(String key, long est) {
+    if (candidates.contains(key)) {
+      return;
+    }
+    if (candidates.size() < k) {
+      candidates.add(key);
+    } else {
+      String min = null;
+      long minCount = Long.MAX_VALUE;
+      for (String c : candidates) {
+        long count = estimate(c);
+        if (count < minCount) {
+          min = c;
+          minCount = count;
+        }
+      }
+      if (est <= minCount) {
+        threshold = minCount;
+        return;
+      }
+      candidates.remove(min);
+      candidates.add(key);
+    }
+    updateThreshold();
+  }
+
+  private void updateThreshold() {
+    long min = Long.MAX_VALUE;
+    for (String c : candidates) {
+      min = Math.min(min, estimate(c));
+    }
+    threshold = candidates.size() < k ? 0 : min;
+  }
+
+  /** Returns the estimated count of the key, it's never less than the actual count. */
+  public long estimate(String key) {
+    int h = key.hashCode();
+    int h1 = h ^ (h >>> 16);
+    int h2 = mix(h);
+    long est = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      est = Math.min(est, counts.get(index(i, h1, h2)));
+    }
+    return est;
+  }
+
+  /** Returns the total count. */
+  public long total() {
+    return total.get();
+  }
+
+  /**
+   * Halves all the counts and drops the candidates with zero count. The concurrent adds may be
+   * lost while it's decaying.
+   */
+  public synchronized void decay() {
+    for (int i = 0; i < counts.length(); i++) {
+      long count = counts.get(i);
+      if (count != 0) {
+        counts.set(i, count >> 1);
+      }
+    }
+    total.set(total.get() >> 1);
+    candidates.removeIf(c -> estimate(c) == 0);
+    updateThreshold();
+  }
+
+  /** Returns the top keys with their estimated counts, most frequent first. */
+  public synchronized List<Map.Entry<String, Long>> top() {
+    List<Map.Entry<String, Long>> top = new ArrayList<>(candidates.size());
+    for (String c : candidates) {
+      top.add(new AbstractMap.SimpleImmutableEntry<>(c, estimate(c)));
+    }
+    top.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+    return top;
+  }
+
+  private int index(int row, int h1, int h2) {
+    // Kirsch-Mitzenmacher double hashing.
+    return row * (mask + 1) + ((h1 + row * h2) & mask);
+  }
+
+  /** Murmur3 finalizer, as the second hash. */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h | 1;
+  }
+}
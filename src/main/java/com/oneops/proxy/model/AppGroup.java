@@ -43,27 +43,37 @@ public class AppGroup {
 
   public static final String DOMAIN_METADATA = "_domain";
 
+  private static final char SEP_CHAR = '_';
+
   private final AuthDomain domain;
   private final String name;
   private final String org;
   private final String assembly;
   private final String env;
 
+  /** Derived names, computed once as the group is immutable. */
+  private final String nsPath;
+
+  private final String groupName;
+  private final String keywhizGroup;
+
   /**
-   * Creates new {@link AppGroup} from the given domain and app group name.
+   * Returns the interned {@link AppGroup} for the given domain and app group name.
    *
    * @param domain OneOps auth domain
    * @param name application group name. OneOps environment name with <b>{org}_{assembly}_{env}</b>
    *     format.
    * @return {@link AppGroup}
    * @throws IllegalArgumentException if the app group name format is not valid.
+   * @see AppNameCodec
    */
   public static AppGroup from(@Nonnull AuthDomain domain, @Nonnull String name) {
-    return new AppGroup(domain, name);
+    return AppNameCodec.group(domain, name);
   }
 
   /**
-   * Constructor for {@link AppGroup}.
+   * Constructor for {@link AppGroup}. Prefer {@link #from(AuthDomain, String)}, which reuses the
+   * already parsed app groups.
    *
    * @param domain OneOps auth domain
    * @param name application group name
@@ -73,15 +83,35 @@ public class AppGroup {
     this.domain = domain;
     this.name = name;
 
-    String[] paths = name.split(GROUP_SEP);
-    if (paths.length != 3 || isBlank(paths[0]) || isBlank(paths[1]) || isBlank(paths[2])) {
+    // Same as name.split(GROUP_SEP), which discards the trailing empty paths.
+    int end = name.length();
+    while (end > 0 && name.charAt(end - 1) == SEP_CHAR) {
+      end--;
+    }
+    int first = name.indexOf(SEP_CHAR);
+    int second = first < 0 ? -1 : name.indexOf(SEP_CHAR, first + 1);
+    int third = second < 0 ? -1 : name.indexOf(SEP_CHAR, second + 1);
+    if (second < 0
+        || second >= end
+        || (third >= 0 && third < end)
+        || isBlank(name.substring(0, first))
+        || isBlank(name.substring(first + 1, second))
+        || isBlank(name.substring(second + 1, end))) {
       throw new IllegalArgumentException(
           "Invalid application group name: " + name + ". The format is 'org_assembly_env'.");
     }
 
-    org = paths[0].trim();
-    assembly = paths[1].trim();
-    env = paths[2].trim();
+    org = name.substring(0, first).trim();
+    assembly = name.substring(first + 1, second).trim();
+    env = name.substring(second + 1, end).trim();
+
+    nsPath = "/" + org + "/" + assembly + "/" + env;
+    groupName = ("/" + domain.getType() + nsPath).toLowerCase();
+    try {
+      keywhizGroup = URLEncoder.encode(groupName, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   /** Returns oneOps auth domain for the application group. */
@@ -116,7 +146,7 @@ public class AppGroup {
 
   /** Returns OneOps env nspath for the application group. */
   public String getNsPath() {
-    return String.format("/%s/%s/%s", org, assembly, env);
+    return nsPath;
   }
 
   /**
@@ -125,15 +155,15 @@ public class AppGroup {
    * instances and is defaults to <b>prod</b>.
    */
   public String getGroupName() {
-    return String.format("/%s/%s/%s/%s", domain.getType(), org, assembly, env).toLowerCase();
+    return groupName;
   }
 
   /**
    * Returns the http url encoded {@link #getGroupName()}. Use this method when making requests to
    * keywhiz servers. The URL encoded group name is used for request con
    */
-  public String getKeywhizGroup() throws UnsupportedEncodingException {
-    return URLEncoder.encode(getGroupName(), "UTF-8");
+  public String getKeywhizGroup() {
+    return keywhizGroup;
   }
 
   @Override
@@ -0,0 +1,85 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.model;
+
+import com.github.benmanes.caffeine.cache.*;
+import com.oneops.proxy.authz.AuthDomain;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * Flyweight codec for application group and secret names. The names are parsed only once and the
+ * {@link AppGroup}/{@link AppSecret} instances, along with their derived names, are interned in a
+ * bounded cache. As both the models are immutable, it's safe to share the instances across
+ * requests.
+ *
+ * @author Suresh G
+ */
+public final class AppNameCodec {
+
+  /** Max number of interned app groups per auth domain. */
+  public static final int MAX_GROUPS = 4_096;
+
+  /** Max number of interned unique secret names. */
+  public static final int MAX_SECRETS = 16_384;
+
+  private static final Map<AuthDomain, Cache<String, AppGroup>> groups =
+      new EnumMap<>(AuthDomain.class);
+
+  private static final Cache<String, AppSecret> secrets =
+      Caffeine.newBuilder().maximumSize(MAX_SECRETS).build();
+
+  static {
+    for (AuthDomain domain : AuthDomain.values()) {
+      groups.put(domain, Caffeine.newBuilder().maximumSize(MAX_GROUPS).build());
+    }
+  }
+
+  private AppNameCodec() {}
+
+  /**
+   * Returns the interned {@link AppGroup} for the given domain and app group name.
+   *
+   * @param domain OneOps auth domain
+   * @param name application group name, in <b>{org}_{assembly}_{env}</b> format.
+   * @return {@link AppGroup}
+   * @throws IllegalArgumentException if the app group name format is not valid.
+   */
+  public static AppGroup group(@Nonnull AuthDomain domain, @Nonnull String name) {
+    return groups.get(domain).get(name, n -> new AppGroup(domain, n));
+  }
+
+  /**
+   * Returns the interned {@link AppSecret} for the globally unique secret name.
+   *
+   * @param uniqSecretName globally unique secret name, in
+   *     <b>{domain}_{AppGroupName}@{secretName}</b> format.
+   * @return {@link AppSecret}
+   * @throws IllegalArgumentException if the unique secret name format is not valid.
+   */
+  public static AppSecret secret(@Nonnull String uniqSecretName) {
+    return secrets.get(uniqSecretName, AppSecret::new);
+  }
+
+  /** Discards all the interned names. */
+  public static void clear() {
+    groups.values().forEach(Cache::invalidateAll);
+    secrets.invalidateAll();
+  }
+}
@@ -47,6 +47,7 @@ public class AppSecret {
 
   private final String secretName;
   private final AppGroup group;
+  private final String uniqSecretName;
 
   /**
    * Constructor for app secret.
@@ -57,8 +58,7 @@ public class AppSecret {
    */
   public AppSecret(
       @Nonnull String secretName, @Nonnull AuthDomain domain, @Nonnull String appName) {
-    this.secretName = secretName;
-    this.group = AppGroup.from(domain, appName);
+    this(secretName, AppGroup.from(domain, appName));
   }
 
   /**
@@ -70,38 +70,59 @@ public class AppSecret {
   public AppSecret(@Nonnull String secretName, @Nonnull AppGroup group) {
     this.secretName = secretName;
     this.group = group;
+    this.uniqSecretName =
+        group.getDomain().getType() + GROUP_SEP + group.getName() + UNIQ_NAME_SEP + secretName;
   }
 
   /**
-   * Create {@link AppSecret} from the globally unique secret name.
+   * Create {@link AppSecret} from the globally unique secret name. Prefer {@link #from(String)},
+   * which reuses the already parsed secret names.
    *
    * @param uniqSecretName globally unique secret name. It has the format
    *     <b>{domain}_{AppGroupName}@{secretName}</b>
    */
   public AppSecret(@Nonnull String uniqSecretName) {
-    String[] names = uniqSecretName.split(UNIQ_NAME_SEP, 2);
-    if (names.length != 2) {
+    int sep = uniqSecretName.indexOf(UNIQ_NAME_SEP);
+    if (sep < 0) {
       throw new IllegalArgumentException("Invalid secret name: " + uniqSecretName);
     }
 
-    String prefix = names[0];
-    secretName = names[1];
-    String[] groups = prefix.split(GROUP_SEP, 2);
-    if (groups.length != 2) {
+    String prefix = uniqSecretName.substring(0, sep);
+    secretName = uniqSecretName.substring(sep + 1);
+    int groupSep = prefix.indexOf(GROUP_SEP);
+    if (groupSep < 0) {
       throw new IllegalArgumentException("Invalid app group prefix: " + prefix);
     }
 
+    String domain = prefix.substring(0, groupSep);
     AuthDomain authDomain;
     try {
-      authDomain = AuthDomain.of(groups[0]);
+      authDomain = AuthDomain.of(domain);
     } catch (IllegalArgumentException iae) {
       throw new IllegalArgumentException(
           "Invalid auth domain: "
-              + groups[0]
+              + domain
               + ". Valid domains are "
               + Arrays.toString(AuthDomain.values()));
     }
-    group = new AppGroup(authDomain, groups[1]);
+    group = AppGroup.from(authDomain, prefix.substring(groupSep + 1));
+    // Keeps the unique name canonical (lowercase domain).
+    this.uniqSecretName =
+        domain.equals(authDomain.getType())
+            ? uniqSecretName
+            : authDomain.getType() + uniqSecretName.substring(groupSep);
+  }
+
+  /**
+   * Returns the interned {@link AppSecret} for the globally unique secret name.
+   *
+   * @param uniqSecretName globally unique secret name. It has the format
+   *     <b>{domain}_{AppGroupName}@{secretName}</b>
+   * @return {@link AppSecret}
+   * @see AppNameCodec
+   */
+  public static AppSecret from(@Nonnull String uniqSecretName) {
+    return AppNameCodec.secret(uniqSecretName);
   }
 
   /**
@@ -138,9 +159,7 @@ public class AppSecret {
    * @return String globally unique secret name.
    */
   public String getUniqSecretName() {
-    return String.format(
-        "%s%s%s%s%s",
-        group.getDomain().getType(), GROUP_SEP, group.getName(), UNIQ_NAME_SEP, secretName);
+    return uniqSecretName;
   }
 
   /**
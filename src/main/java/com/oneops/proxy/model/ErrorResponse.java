@@ -34,6 +34,7 @@ public class ErrorResponse {
   private final String error;
   private final String message;
   private final String path;
+  private final List<String> errors;
 
   /**
    * Error response constructor.
@@ -45,11 +46,27 @@ public class ErrorResponse {
    * @param path The path that was requested
    */
   public ErrorResponse(long timestamp, int status, String error, String message, String path) {
+    this(timestamp, status, error, message, path, null);
+  }
+
+  /**
+   * Error response constructor with all the validation errors.
+   *
+   * @param timestamp A time stamp when the error occurred.
+   * @param status The HTTP status code
+   * @param error The HTTP status code description
+   * @param message A message which elaborates the error further
+   * @param path The path that was requested
+   * @param errors List of all validation errors.
+   */
+  public ErrorResponse(
+      long timestamp, int status, String error, String message, String path, List<String> errors) {
     this.timestamp = timestamp;
     this.status = status;
     this.error = error;
     this.message = message;
     this.path = path;
+    this.errors = errors;
   }
 
   /**
@@ -68,6 +85,7 @@ public class ErrorResponse {
     message = (msg != null) ? msg.toString() : "None";
     Object pt = errAttrs.get("path");
     path = (pt != null) ? pt.toString() : "";
+    errors = null;
   }
 
   public long getTimestamp() {
@@ -90,6 +108,10 @@ public class ErrorResponse {
     return path;
   }
 
+  public List<String> getErrors() {
+    return errors;
+  }
+
   @Override
   public String toString() {
     return "ErrorResponse{"
@@ -106,6 +128,8 @@ public class ErrorResponse {
         + ", path='"
         + path
         + '\''
+        + ", errors="
+        + errors
         + '}';
   }
 }
@@ -19,6 +19,7 @@ package com.oneops.proxy.model;
 
 import static com.oneops.proxy.config.Constants.DEFAULT_TOKEN_TYPE;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -34,10 +35,30 @@ public class LoginResponse {
 
   @JsonProperty private int expiresInSec;
 
+  /** Refresh token, only if it's enabled. */
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String refreshToken;
+
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Integer refreshExpiresInSec;
+
   public LoginResponse(String accessToken, String tokenType, int expiresInSec) {
+    this(accessToken, tokenType, expiresInSec, null, null);
+  }
+
+  public LoginResponse(
+      String accessToken,
+      String tokenType,
+      int expiresInSec,
+      String refreshToken,
+      Integer refreshExpiresInSec) {
     this.accessToken = accessToken;
     this.tokenType = tokenType;
     this.expiresInSec = expiresInSec;
+    this.refreshToken = refreshToken;
+    this.refreshExpiresInSec = refreshExpiresInSec;
   }
 
   public String getAccessToken() {
@@ -64,6 +85,22 @@ public class LoginResponse {
     this.expiresInSec = expiresInSec;
   }
 
+  public String getRefreshToken() {
+    return refreshToken;
+  }
+
+  public void setRefreshToken(String refreshToken) {
+    this.refreshToken = refreshToken;
+  }
+
+  public Integer getRefreshExpiresInSec() {
+    return refreshExpiresInSec;
+  }
+
+  public void setRefreshExpiresInSec(Integer refreshExpiresInSec) {
+    this.refreshExpiresInSec = refreshExpiresInSec;
+  }
+
   @Override
   public String toString() {
     return "LoginResponse{"
@@ -73,6 +110,10 @@ public class LoginResponse {
         + '\''
         + ", expiresInSec="
         + expiresInSec
+        + ", refreshToken="
+        + (refreshToken != null ? "******" : null)
+        + ", refreshExpiresInSec="
+        + refreshExpiresInSec
         + '}';
   }
 }
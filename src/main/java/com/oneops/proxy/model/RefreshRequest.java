@@ -0,0 +1,53 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Access token refresh (or revoke) request. {@link ApiModelProperty} is used only for generating
+ * swagger documentation.
+ *
+ * @author Suresh G
+ */
+public class RefreshRequest {
+
+  @JsonProperty
+  @ApiModelProperty(example = "Refresh token from login response")
+  private String refreshToken;
+
+  public RefreshRequest() {}
+
+  public RefreshRequest(String refreshToken) {
+    this.refreshToken = refreshToken;
+  }
+
+  public String getRefreshToken() {
+    return refreshToken;
+  }
+
+  public void setRefreshToken(String refreshToken) {
+    this.refreshToken = refreshToken;
+  }
+
+  @Override
+  public String toString() {
+    return "RefreshRequest{refreshToken=******}";
+  }
+}
@@ -37,7 +37,7 @@ public class SecretContent {
   }
 
   public static SecretContent from(String uniqSecretName, String content) {
-    AppSecret appSecret = new AppSecret(uniqSecretName);
+    AppSecret appSecret = AppSecret.from(uniqSecretName);
     return new SecretContent(appSecret.getSecretName(), content);
   }
 
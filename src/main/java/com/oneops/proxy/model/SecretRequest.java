@@ -29,6 +29,16 @@ import java.util.Map;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class SecretRequest {
 
+  /** Http headers used to pass the secret attributes along with a raw content stream. */
+  public static final String DESC_HEADER = "X-Secret-Description";
+
+  public static final String TYPE_HEADER = "X-Secret-Type";
+
+  public static final String EXPIRY_HEADER = "X-Secret-Expiry";
+
+  /** Prefix for secret metadata headers. Eg: <b>X-Secret-Meta-mode: 0400</b> */
+  public static final String METADATA_HEADER_PREFIX = "X-Secret-Meta-";
+
   @JsonProperty
   @ApiModelProperty(example = "[BASE64 encoded secret data]")
   private String content;
@@ -51,6 +61,12 @@ public class SecretRequest {
   @ApiModelProperty(example = "secret")
   private String type;
 
+  /**
+   * Decoded content size in bytes, if it's already known (eg: streamed uploads). <code>-1</code>
+   * means the size has to be computed from the base64 content.
+   */
+  @JsonIgnore private long contentSize = -1;
+
   public SecretRequest() {}
 
   public SecretRequest(
@@ -102,6 +118,14 @@ public class SecretRequest {
     this.type = type;
   }
 
+  public long getContentSize() {
+    return contentSize;
+  }
+
+  public void setContentSize(long contentSize) {
+    this.contentSize = contentSize;
+  }
+
   @Override
   public String toString() {
     return "SecretRequest{"
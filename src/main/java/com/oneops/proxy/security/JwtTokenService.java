@@ -17,18 +17,28 @@
  */
 package com.oneops.proxy.security;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.springframework.util.StringUtils.isEmpty;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.oneops.proxy.auth.token.JwtAuthToken;
 import com.oneops.proxy.auth.user.OneOpsUser;
 import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.authz.AuthzClaim;
 import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.jfr.JwtValidationEvent;
+import com.oneops.proxy.jfr.ProxyEvents;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.CompressionCodecs;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
@@ -68,7 +78,8 @@ public class JwtTokenService {
 
   private static SignatureAlgorithm SIGNATURE_ALGORITHM = SignatureAlgorithm.HS512;
 
-  private final char[] secretKey;
+  /** Decoded HMAC signing key. */
+  private final byte[] signingKey;
 
   private final int expiresInSec;
 
@@ -80,19 +91,44 @@ public class JwtTokenService {
 
   private final boolean compressionEnabled;
 
+  /**
+   * Verified token (SHA-256 hash) cache, <code>null</code> if it's disabled. The entries are valid
+   * till the token expiry.
+   */
+  private final Cache<HashCode, VerifiedToken> tokenCache;
+
   public JwtTokenService(OneOpsConfig config) {
     final OneOpsConfig.Auth authConfig = config.getAuth();
-    secretKey = authConfig.getSigningKey();
+    signingKey = decodeKey(authConfig.getSigningKey());
     expiresInSec = authConfig.getExpiresInSec();
     issuer = authConfig.getIssuer();
     tokenHeader = authConfig.getHeader();
     tokenType = authConfig.getTokenType();
     compressionEnabled = authConfig.isCompressionEnabled();
+    if (authConfig.getTokenCacheSize() > 0) {
+      tokenCache =
+          Caffeine.newBuilder()
+              .maximumSize(authConfig.getTokenCacheSize())
+              .expireAfterWrite(Math.max(expiresInSec, 1), SECONDS)
+              .build();
+    } else {
+      tokenCache = null;
+    }
+  }
+
+  /**
+   * Decodes the signing key, same as the jjwt does for base64 encoded string keys.
+   *
+   * @param secretKey base64 encoded secret key.
+   * @return key bytes.
+   */
+  private static byte[] decodeKey(char[] secretKey) {
+    return TextCodec.BASE64.decode(String.valueOf(secretKey));
   }
 
   /**
    * Generate a JWT token for the given user. The roles will be stored as a claim in JWT token as a
-   * comma separated string.
+   * comma separated string. The {@link AuthzClaim}, if present, is added as <b>authz</b> claim.
    *
    * @param user authenticated user details object.
    * @return compact JWS (JSON Web Signature)
@@ -107,7 +143,7 @@ public class JwtTokenService {
             .setIssuer(issuer)
             .setIssuedAt(Date.from(now))
             .setExpiration(Date.from(expiresIn))
-            .signWith(SIGNATURE_ALGORITHM, String.valueOf(secretKey));
+            .signWith(SIGNATURE_ALGORITHM, signingKey);
     if (user.getAuthorities() != null) {
       List<String> roles =
           user.getAuthorities()
@@ -122,6 +158,9 @@ public class JwtTokenService {
     if (user.getCn() != null) {
       jwt.claim(CN_CLAIM, user.getCn());
     }
+    if (user.getAuthzClaim() != null) {
+      jwt.claim(AuthzClaim.CLAIM_NAME, user.getAuthzClaim().toClaim());
+    }
     if (compressionEnabled) {
       jwt.compressWith(CompressionCodecs.DEFLATE);
     }
@@ -130,15 +169,61 @@ public class JwtTokenService {
 
   /**
    * Validates token and creates the user details object by extracting identity and authorization
-   * claims. It throws a Runtime exception if the token is invalid or expired.
+   * claims. It throws a Runtime exception if the token is invalid or expired. The user details of
+   * already verified tokens are returned from the cache till the token expiry.
    *
    * @param token jwt token
    * @return {@link OneOpsUser}
    */
   public OneOpsUser createUser(String token) {
-    Claims claims =
-        Jwts.parser().setSigningKey(String.valueOf(secretKey)).parseClaimsJws(token).getBody();
+    JwtValidationEvent event = ProxyEvents.jwtValidation();
+    if (event == null) {
+      return verify(token, null);
+    }
+    OneOpsUser user = null;
+    try {
+      user = verify(token, event);
+      return user;
+    } finally {
+      event.complete(user != null ? user.getUsername() : null);
+    }
+  }
 
+  /** Verifies the token, using the verified token cache if it's enabled. */
+  private OneOpsUser verify(String token, @Nullable JwtValidationEvent event) {
+    if (tokenCache == null) {
+      return createUser(parseClaims(token, signingKey));
+    }
+
+    HashCode tokenHash = Hashing.sha256().hashString(token, UTF_8);
+    VerifiedToken verified = tokenCache.getIfPresent(tokenHash);
+    // The signing key changes only on restart, which empties this in-memory cache, so the cached
+    // tokens never outlive the key that verified them.
+    if (verified != null) {
+      if (verified.expiresAt > System.currentTimeMillis()) {
+        if (event != null) {
+          event.cached();
+        }
+        return verified.user;
+      }
+      tokenCache.invalidate(tokenHash);
+    }
+
+    Claims claims = parseClaims(token, signingKey);
+    OneOpsUser user = createUser(claims);
+    if (claims.getExpiration() != null) {
+      tokenCache.put(tokenHash, new VerifiedToken(user, claims.getExpiration().getTime()));
+    }
+    return user;
+  }
+
+  /** Verifies the JWS and returns the claims. */
+  private Claims parseClaims(String token, byte[] key) {
+    return Jwts.parser().setSigningKey(key).parseClaimsJws(token).getBody();
+  }
+
+  /** Creates the user details object from the verified token claims. */
+  private OneOpsUser createUser(Claims claims) {
     String username = claims.getSubject();
     List<GrantedAuthority> authorities = getAuthorities(claims);
     String dnClaim = claims.getOrDefault(DOMAIN_CLAIM, "").toString();
@@ -151,7 +236,8 @@ public class JwtTokenService {
     }
 
     String cn = claims.getOrDefault(CN_CLAIM, username).toString();
-    return new OneOpsUser(username, "", authorities, cn, authDomain);
+    AuthzClaim authzClaim = AuthzClaim.fromClaim(claims.get(AuthzClaim.CLAIM_NAME));
+    return new OneOpsUser(username, "", authorities, cn, authDomain, authzClaim);
   }
 
   /**
@@ -163,8 +249,7 @@ public class JwtTokenService {
   public @Nullable Claims getClaims(@Nonnull String token) {
     Claims claims;
     try {
-      claims =
-          Jwts.parser().setSigningKey(String.valueOf(secretKey)).parseClaimsJws(token).getBody();
+      claims = parseClaims(token, signingKey);
     } catch (JwtException e) {
       log.debug("JWT token parser error.", e);
       claims = null;
@@ -241,4 +326,15 @@ public class JwtTokenService {
   public String getTokenType() {
     return tokenType;
   }
+
+  /** A verified token entry. */
+  private static final class VerifiedToken {
+    private final OneOpsUser user;
+    private final long expiresAt;
+
+    VerifiedToken(OneOpsUser user, long expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
 }
@@ -0,0 +1,277 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.security;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.github.benmanes.caffeine.cache.*;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.oneops.proxy.auth.user.OneOpsUser;
+import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.exception.RateLimitException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.*;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+/**
+ * Refresh token services. A refresh token is an opaque random string issued on login, which can
+ * be used to get new access tokens without going through the LDAP authentication again.
+ *
+ * <p>The tokens are tracked in a bounded in-memory store (only the SHA-256 hash of the token is
+ * stored), so that those can be revoked at any time. Refresh tokens are single use, each refresh
+ * revokes the token and issues a new one with the same expiry. The token refreshes are rate
+ * limited per user, allowing up to <b>refreshRatePerMin</b> refreshes in a fixed one minute window.
+ *
+ * <p>Note: The store is local to the proxy instance, so a refresh token can't be used on other
+ * instances. The clients should login again if the refresh fails.
+ *
+ * @author Suresh G
+ */
+@Service
+public class RefreshTokenService {
+
+  private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  /** Refresh token size in bytes. */
+  private static final int TOKEN_SIZE = 32;
+
+  /** Refresh rate window size in millis. */
+  private static final long RATE_WINDOW_MS = 60_000;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final boolean enabled;
+
+  private final int expiresInSec;
+
+  private final int ratePerMin;
+
+  /** Refresh token hash to it's session. */
+  private final Cache<HashCode, Session> store;
+
+  /** Refresh rate window for each user. */
+  private final LoadingCache<String, RateWindow> rateWindows;
+
+  public RefreshTokenService(OneOpsConfig config) {
+    OneOpsConfig.Auth auth = config.getAuth();
+    enabled = auth.isRefreshEnabled();
+    expiresInSec = auth.getRefreshExpiresInSec();
+    ratePerMin = auth.getRefreshRatePerMin();
+    store =
+        Caffeine.newBuilder()
+            .maximumSize(auth.getRefreshStoreSize())
+            .expireAfterWrite(expiresInSec, SECONDS)
+            .build();
+    rateWindows =
+        Caffeine.newBuilder().expireAfterAccess(2, MINUTES).build(user -> new RateWindow());
+  }
+
+  /** Returns <code>true</code> if the refresh tokens are enabled. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Creates a new refresh token for the authenticated user.
+   *
+   * @param user {@link OneOpsUser}
+   * @return refresh token or <code>null</code> if the refresh tokens are disabled.
+   */
+  public @Nullable RefreshToken create(@Nonnull OneOpsUser user) {
+    if (!enabled) {
+      return null;
+    }
+    List<String> roles =
+        user.getAuthorities()
+            .stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toList());
+    Session session =
+        new Session(
+            user.getUsername(),
+            user.getCn(),
+            user.getDomain(),
+            roles,
+            System.currentTimeMillis() + expiresInSec * 1000L);
+    return issue(session);
+  }
+
+  /**
+   * Redeems the refresh token. The token is revoked and a new refresh token is issued with the same
+   * expiry.
+   *
+   * @param refreshToken refresh token.
+   * @return new {@link RefreshToken}, having the token user.
+   * @throws BadCredentialsException if the token is invalid, revoked or expired.
+   * @throws RateLimitException if the user exceeds the refresh rate.
+   */
+  public RefreshToken refresh(@Nonnull String refreshToken) {
+    HashCode hash = hash(refreshToken);
+    Session session = store.getIfPresent(hash);
+    if (session == null || session.expiresAt <= System.currentTimeMillis()) {
+      throw new BadCredentialsException("Invalid or expired refresh token.");
+    }
+
+    long retryAfter = rateWindows.get(session.rateKey()).acquire(ratePerMin);
+    if (retryAfter > 0) {
+      throw new RateLimitException(
+          "Too many token refreshes for " + session.userName + ", retry after " + retryAfter + "s.",
+          retryAfter);
+    }
+
+    // Single use, makes sure concurrent refreshes with the same token can't both succeed.
+    if (!store.asMap().remove(hash, session)) {
+      throw new BadCredentialsException("Invalid or expired refresh token.");
+    }
+    return issue(session);
+  }
+
+  /**
+   * Revokes the refresh token.
+   *
+   * @param refreshToken refresh token.
+   * @return the token user or <code>null</code> if the token is not active.
+   */
+  public @Nullable OneOpsUser revoke(@Nonnull String refreshToken) {
+    Session session = store.asMap().remove(hash(refreshToken));
+    return session != null ? session.toUser() : null;
+  }
+
+  /**
+   * Revokes all the refresh tokens of a user.
+   *
+   * @param userName user name.
+   * @param domain auth domain.
+   * @return number of tokens revoked.
+   */
+  public int revokeAll(@Nonnull String userName, @Nonnull AuthDomain domain) {
+    int count = 0;
+    for (Map.Entry<HashCode, Session> entry : store.asMap().entrySet()) {
+      Session session = entry.getValue();
+      if (session.domain == domain && session.userName.equalsIgnoreCase(userName)) {
+        store.invalidate(entry.getKey());
+        count++;
+      }
+    }
+    log.info("Revoked " + count + " refresh tokens of " + userName);
+    return count;
+  }
+
+  private RefreshToken issue(Session session) {
+    byte[] bytes = new byte[TOKEN_SIZE];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    store.put(hash(token), session);
+    return new RefreshToken(token, session);
+  }
+
+  private static HashCode hash(String refreshToken) {
+    return Hashing.sha256().hashString(refreshToken, UTF_8);
+  }
+
+  /** Refresh token and it's user details. */
+  public static final class RefreshToken {
+    private final String token;
+    private final Session session;
+
+    private RefreshToken(String token, Session session) {
+      this.token = token;
+      this.session = session;
+    }
+
+    /** Returns the opaque refresh token. */
+    public String getToken() {
+      return token;
+    }
+
+    /** Returns the remaining refresh token lifetime in secs. */
+    public int getExpiresInSec() {
+      long remaining = session.expiresAt - System.currentTimeMillis();
+      return (int) Math.max(0, remaining / 1000);
+    }
+
+    /** Returns the refresh token user, having the roles granted on login. */
+    public OneOpsUser getUser() {
+      return session.toUser();
+    }
+  }
+
+  /** Refresh token session. */
+  private static final class Session {
+    private final String userName;
+    private final String cn;
+    private final AuthDomain domain;
+    private final List<String> roles;
+    private final long expiresAt;
+
+    Session(String userName, String cn, AuthDomain domain, List<String> roles, long expiresAt) {
+      this.userName = userName;
+      this.cn = cn;
+      this.domain = domain;
+      this.roles = roles;
+      this.expiresAt = expiresAt;
+    }
+
+    OneOpsUser toUser() {
+      List<GrantedAuthority> authorities =
+          roles.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+      return new OneOpsUser(userName, "", authorities, cn, domain);
+    }
+
+    String rateKey() {
+      return domain.getType() + ":" + userName.toLowerCase();
+    }
+  }
+
+  /** Fixed window refresh counter of a user. */
+  private static final class RateWindow {
+    private long start;
+    private int count;
+
+    /**
+     * Counts a refresh in the current window.
+     *
+     * @param limit max refreshes allowed in a window.
+     * @return 0 if the refresh is allowed, else the secs till the window resets.
+     */
+    synchronized long acquire(int limit) {
+      long now = System.currentTimeMillis();
+      if (now - start >= RATE_WINDOW_MS) {
+        start = now;
+        count = 0;
+      }
+      if (count < limit) {
+        count++;
+        return 0;
+      }
+      return Math.max(1, MILLISECONDS.toSeconds(start + RATE_WINDOW_MS - now + 999));
+    }
+  }
+}
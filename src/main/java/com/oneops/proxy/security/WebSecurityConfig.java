@@ -76,12 +76,14 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   private final ObjectMapper objectMapper;
   private final AuthenticationSuccessHandler successHandler;
   private final AuthenticationFailureHandler failureHandler;
+  private final LoginExecutor loginExecutor;
 
   public WebSecurityConfig(
       LoginAuthProvider loginAuthProvider,
       TokenAuthProvider tokenAuthProvider,
       AuthenticationSuccessHandler successHandler,
       AuthenticationFailureHandler failureHandler,
+      LoginExecutor loginExecutor,
       RestAuthEntryPoint authEntryPoint,
       JwtTokenService jwtTokenService,
       ObjectMapper objectMapper,
@@ -100,9 +102,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     this.oneOpsConfig = oneOpsConfig;
     this.successHandler = successHandler;
     this.failureHandler = failureHandler;
+    this.loginExecutor = loginExecutor;
     this.permitAllPaths = ArrayUtils.addAll(DEFAULT_SKIP_PATHS, mgmtContext + "/health");
     this.tokenAuthSkipPaths =
-        Arrays.asList(ArrayUtils.addAll(DEFAULT_SKIP_PATHS, mgmtContext + "/**"));
+        Arrays.asList(ArrayUtils.addAll(DEFAULT_SKIP_PATHS, mgmtContext + "/**", AUTH_REFRESH_URI));
   }
 
   @Bean
@@ -134,7 +137,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
    */
   private LoginProcessingFilter buildLoginProcessingFilter() throws Exception {
     LoginProcessingFilter loginFilter =
-        new LoginProcessingFilter(AUTH_TOKEN_URI, successHandler, failureHandler, objectMapper);
+        new LoginProcessingFilter(
+            AUTH_TOKEN_URI, successHandler, failureHandler, objectMapper, loginExecutor);
     loginFilter.setAuthenticationManager(authenticationManager());
     return loginFilter;
   }
@@ -189,7 +193,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         .authorizeRequests()
         .mvcMatchers(GET, permitAllPaths)
         .permitAll()
-        .mvcMatchers(GET, mgmtContext + "/**")
+        .mvcMatchers(AUTH_REFRESH_URI)
+        .permitAll()
+        .mvcMatchers(mgmtContext + "/**")
         .hasAnyRole(MGMT.name())
         // .mvcMatchers("/auth/{userId}").access("@authz.isAuthorized(#userId,principal)")
         .anyRequest()
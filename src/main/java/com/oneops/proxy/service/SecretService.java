@@ -19,18 +19,22 @@ package com.oneops.proxy.service;
 
 import static com.oneops.proxy.metrics.MetricsUtilService.binaryPrefix;
 import static com.oneops.proxy.model.AppSecret.*;
+import static com.oneops.proxy.model.SecretRequest.*;
+import static com.oneops.proxy.service.SecretValidator.*;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
 
 import com.oneops.proxy.auth.user.OneOpsUser;
 import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.exception.ValidationException;
 import com.oneops.proxy.keywhiz.KeywhizException;
 import com.oneops.proxy.keywhiz.model.v2.*;
 import com.oneops.proxy.model.*;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
 /**
@@ -44,8 +48,8 @@ public class SecretService {
   /** Default secret type. */
   public static final String DEFAULT_TYPE = "secret";
 
-  /** Max file name length. */
-  private static final int MAX_FILENAME_LENGTH = 255;
+  /** Buffer size used when reading the secret content stream. */
+  private static final int STREAM_BUFFER_SIZE = 8192;
 
   /** Max secret size in bytes. */
   private long maxSecretSize;
@@ -56,35 +60,45 @@ public class SecretService {
 
   /**
    * Validate and enrich {@link SecretRequest} for it's content and other metadata. Keywhiz expects
-   * the secret content to be Base64 encoded string.
+   * the secret content to be Base64 encoded string. All the validation errors are reported together
+   * using {@link ValidationException}.
    *
    * @param req Secret request.
    * @param appSecret App secret details.
    * @param user OneOps user.
    * @return {@link SecretRequest}
+   * @throws ValidationException if the request is not valid.
+   * @throws KeywhizException if the secret is too large.
    * @see <a href="https://en.wikipedia.org/wiki/Comparison_of_file_systems#Limits">File name
    *     limit</a>
    */
   public SecretRequest validateAndEnrichReq(SecretRequest req, AppSecret appSecret, OneOpsUser user)
       throws IOException {
+    List<String> errors = new ArrayList<>(2);
     String content = req.getContent();
+    long secretSize = req.getContentSize();
     if (isBlank(content)) {
-      throw new IllegalArgumentException("Secret content is not provided!");
+      errors.add("Secret content is not provided!");
+    } else if (secretSize < 0) {
+      // Secrets data is base64 encoded. Skip the decoding if the size is already known.
+      secretSize = decodedLength(content, true);
+      if (secretSize < 0) {
+        errors.add("Secret content is not a valid base64 encoded string.");
+      } else if (hasWhitespace(content)) {
+        // Keywhiz doesn't accept line wrapped base64 content.
+        req.setContent(stripWhitespace(content));
+      }
     }
 
     if (appSecret.getUniqSecretName().length() > MAX_FILENAME_LENGTH) {
-      throw new IllegalArgumentException("Secret file name too long.");
+      errors.add("Secret file name too long.");
     }
 
-    // Secrets data is base64 encoded.
-    int secretSize = Base64.getDecoder().decode(content).length;
-    if (secretSize > maxSecretSize) {
-      String errMsg =
-          format(
-              "Secret size (%s) is too large. Max allowed secret size is %s.",
-              binaryPrefix(secretSize), binaryPrefix(maxSecretSize));
-      throw new KeywhizException(PAYLOAD_TOO_LARGE.value(), errMsg);
+    if (req.getMetadata() != null) {
+      validateMetadata(req.getMetadata(), errors);
     }
+    throwIfInvalid(errors);
+    checkSecretSize(secretSize);
 
     String desc = req.getDescription();
     if (desc == null) {
@@ -100,7 +114,6 @@ public class SecretService {
       req.setMetadata(new HashMap<>(3));
     }
     Map<String, String> metadata = req.getMetadata();
-    validateMetadata(metadata);
 
     // IMP: Add secret aliases to the short name.
     metadata.put(FILENAME_METADATA, appSecret.getSecretName());
@@ -111,34 +124,77 @@ public class SecretService {
   }
 
   /**
-   * Perform strong validation of the metadata to make sure it is well formed.
+   * Creates a {@link SecretRequest} from the raw (binary) secret content stream. The secret
+   * attributes are read from the <b>X-Secret-*</b> http headers. The content is base64 encoded
+   * while reading the stream and the max secret size is enforced without buffering the whole
+   * payload upfront.
    *
-   * @param metadata secret metadata map.
+   * @param content raw secret content stream.
+   * @param headers http request headers.
+   * @return {@link SecretRequest} with base64 encoded content.
+   * @throws IOException if any error reading the stream.
+   * @throws KeywhizException if the secret size is too large.
    */
-  private void validateMetadata(Map<String, String> metadata) {
-    for (Map.Entry<String, String> entry : metadata.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-
-      if (!key.matches("(owner|group|mode|filename)")) {
-        if (!key.startsWith("_")) {
-          throw new IllegalArgumentException(
-              format(
-                  "Illegal metadata key %s: custom metadata keys must start with an underscore",
-                  key));
-        }
-        if (!key.matches("^[a-zA-Z_0-9\\-.:]+$")) {
-          throw new IllegalArgumentException(
-              format(
-                  "Illegal metadata key %s: metadata keys can only contain: a-z A-Z 0-9 _ - . :",
-                  key));
-        }
+  public SecretRequest readSecretReq(InputStream content, HttpHeaders headers)
+      throws IOException {
+    long contentLength = headers.getContentLength();
+    checkSecretSize(contentLength);
+
+    int encodedLength = contentLength > 0 ? (int) (4 * ((contentLength + 2) / 3)) : 1024;
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream(encodedLength);
+    long secretSize = 0;
+    try (OutputStream out = Base64.getEncoder().wrap(encoded)) {
+      byte[] buf = new byte[STREAM_BUFFER_SIZE];
+      int read;
+      while ((read = content.read(buf)) != -1) {
+        secretSize += read;
+        checkSecretSize(secretSize);
+        out.write(buf, 0, read);
       }
+    }
+
+    SecretRequest req = new SecretRequest();
+    req.setContent(encoded.toString(US_ASCII.name()));
+    req.setContentSize(secretSize);
+    req.setDescription(headers.getFirst(DESC_HEADER));
+    req.setType(headers.getFirst(TYPE_HEADER));
+
+    String expiry = headers.getFirst(EXPIRY_HEADER);
+    if (!isBlank(expiry)) {
+      try {
+        req.setExpiry(Long.parseLong(expiry.trim()));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException(format("Invalid secret expiry %s", expiry));
+      }
+    }
 
-      if (key.equals("mode") && !value.matches("0[0-7]+")) {
-        throw new IllegalArgumentException(format("Mode %s is not proper octal", value));
+    Map<String, String> metadata = new HashMap<>(3);
+    int prefixLen = METADATA_HEADER_PREFIX.length();
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      String name = header.getKey();
+      if (name.length() > prefixLen
+          && name.regionMatches(true, 0, METADATA_HEADER_PREFIX, 0, prefixLen)) {
+        metadata.put(name.substring(prefixLen).toLowerCase(), header.getValue().get(0));
       }
     }
+    req.setMetadata(metadata);
+    return req;
+  }
+
+  /**
+   * Checks the decoded secret size against the max allowed secret size.
+   *
+   * @param secretSize decoded secret size in bytes.
+   * @throws KeywhizException if the secret size is too large.
+   */
+  private void checkSecretSize(long secretSize) throws KeywhizException {
+    if (secretSize > maxSecretSize) {
+      String errMsg =
+          format(
+              "Secret size (%s) is too large. Max allowed secret size is %s.",
+              binaryPrefix(secretSize), binaryPrefix(maxSecretSize));
+      throw new KeywhizException(PAYLOAD_TOO_LARGE.value(), errMsg);
+    }
   }
 
   /**
@@ -163,14 +219,11 @@ public class SecretService {
    * @return list of normalized secret names.
    */
   public List<String> normalize(Collection<String> uniqSecretNames) {
-    return uniqSecretNames
-        .stream()
-        .map(
-            uniqName -> {
-              AppSecret appSecret = new AppSecret(uniqName);
-              return appSecret.getSecretName();
-            })
-        .collect(Collectors.toList());
+    List<String> names = new ArrayList<>(uniqSecretNames.size());
+    for (String uniqName : uniqSecretNames) {
+      names.add(AppSecret.from(uniqName).getSecretName());
+    }
+    return names;
   }
 
   /**
@@ -201,7 +254,7 @@ public class SecretService {
    * @return normalized secret response.
    */
   public SecretDetailResponseV2 normalize(SecretDetailResponseV2 secret) {
-    String normalizedSecret = new AppSecret(secret.name()).getSecretName();
+    String normalizedSecret = AppSecret.from(secret.name()).getSecretName();
     return SecretDetailResponseV2.fromParts(
         normalizedSecret,
         secret.description(),
@@ -0,0 +1,223 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.service;
+
+import static java.lang.String.format;
+
+import com.google.common.collect.ImmutableSet;
+import com.oneops.proxy.exception.ValidationException;
+import java.util.*;
+import javax.annotation.Nonnull;
+
+/**
+ * A reusable validation engine for secret requests. All the checks are done with precomputed
+ * character classes, so that validating a request doesn't compile any regex or allocate a decoded
+ * copy of the secret content. The errors are collected and reported together using {@link
+ * ValidationException}.
+ *
+ * @author Suresh G
+ */
+public class SecretValidator {
+
+  /** Max file name length. */
+  public static final int MAX_FILENAME_LENGTH = 255;
+
+  /** Metadata keys understood by keywhiz, which can't have the custom (underscore) prefix. */
+  private static final ImmutableSet<String> RESERVED_METADATA_KEYS =
+      ImmutableSet.of("owner", "group", "mode", "filename");
+
+  /** Base64 alphabet lookup table (RFC 4648, Table 1). */
+  private static final boolean[] BASE64_CHARS = new boolean[128];
+
+  /** Allowed metadata key chars, <b>a-z A-Z 0-9 _ - . :</b> */
+  private static final boolean[] METADATA_KEY_CHARS = new boolean[128];
+
+  static {
+    for (char c = 'A'; c <= 'Z'; c++) {
+      BASE64_CHARS[c] = true;
+      METADATA_KEY_CHARS[c] = true;
+      METADATA_KEY_CHARS[Character.toLowerCase(c)] = true;
+      BASE64_CHARS[Character.toLowerCase(c)] = true;
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      BASE64_CHARS[c] = true;
+      METADATA_KEY_CHARS[c] = true;
+    }
+    BASE64_CHARS['+'] = true;
+    BASE64_CHARS['/'] = true;
+    for (char c : "_-.:".toCharArray()) {
+      METADATA_KEY_CHARS[c] = true;
+    }
+  }
+
+  private SecretValidator() {}
+
+  /**
+   * Calculates the exact decoded length of the base64 content without decoding it. The padding is
+   * optional, but if present it must be correct, same as {@link Base64.Decoder}.
+   *
+   * @param content base64 encoded content.
+   * @param skipWhitespace <code>true</code> to ignore the whitespaces (eg: line wrapped base64
+   *     output), else whitespace is treated as an invalid character.
+   * @return decoded length in bytes or <code>-1</code> if the content is not a valid base64.
+   */
+  public static long decodedLength(@Nonnull CharSequence content, boolean skipWhitespace) {
+    long chars = 0;
+    int padding = 0;
+    for (int i = 0, len = content.length(); i < len; i++) {
+      char c = content.charAt(i);
+      if (skipWhitespace && isWhitespace(c)) {
+        continue;
+      }
+      if (c == '=') {
+        if (++padding > 2) {
+          return -1;
+        }
+      } else if (padding > 0 || c >= 128 || !BASE64_CHARS[c]) {
+        // Illegal char or data after the padding.
+        return -1;
+      } else {
+        chars++;
+      }
+    }
+
+    long rem = chars % 4;
+    if (rem == 1 || (padding > 0 && (rem + padding) != 4)) {
+      return -1;
+    }
+    return (chars / 4) * 3 + (rem == 0 ? 0 : rem - 1);
+  }
+
+  /**
+   * Checks if the content is a valid base64 without any whitespace.
+   *
+   * @param content base64 encoded content.
+   * @return <code>true</code> if it's a valid base64.
+   */
+  public static boolean isBase64(@Nonnull CharSequence content) {
+    return decodedLength(content, false) >= 0;
+  }
+
+  /**
+   * Checks if the content has any whitespace.
+   *
+   * @param content char sequence.
+   * @return <code>true</code> if there is at least one whitespace char.
+   */
+  public static boolean hasWhitespace(@Nonnull CharSequence content) {
+    for (int i = 0, len = content.length(); i < len; i++) {
+      if (isWhitespace(content.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes all the whitespaces from content.
+   *
+   * @param content char sequence.
+   * @return content without any whitespace.
+   */
+  public static String stripWhitespace(@Nonnull CharSequence content) {
+    StringBuilder buf = new StringBuilder(content.length());
+    for (int i = 0, len = content.length(); i < len; i++) {
+      char c = content.charAt(i);
+      if (!isWhitespace(c)) {
+        buf.append(c);
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Validates the secret metadata entries and add the error messages to the given list.
+   *
+   * @param metadata secret metadata.
+   * @param errors list to collect validation errors.
+   */
+  public static void validateMetadata(
+      @Nonnull Map<String, String> metadata, @Nonnull List<String> errors) {
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue();
+
+      if (!RESERVED_METADATA_KEYS.contains(key)) {
+        if (!key.startsWith("_")) {
+          errors.add(
+              format(
+                  "Illegal metadata key %s: custom metadata keys must start with an underscore",
+                  key));
+        } else if (!isMetadataKey(key)) {
+          errors.add(
+              format(
+                  "Illegal metadata key %s: metadata keys can only contain: a-z A-Z 0-9 _ - . :",
+                  key));
+        }
+      }
+
+      if (key.equals("mode") && !isOctalMode(value)) {
+        errors.add(format("Mode %s is not proper octal", value));
+      }
+    }
+  }
+
+  /**
+   * Throws {@link ValidationException} if there are any errors.
+   *
+   * @param errors validation errors.
+   * @throws ValidationException if the errors list is not empty.
+   */
+  public static void throwIfInvalid(@Nonnull List<String> errors) {
+    if (!errors.isEmpty()) {
+      throw new ValidationException(errors);
+    }
+  }
+
+  /** Same as <code>key.matches("^[a-zA-Z_0-9\\-.:]+$")</code> */
+  private static boolean isMetadataKey(String key) {
+    if (key.isEmpty()) {
+      return false;
+    }
+    for (int i = 0, len = key.length(); i < len; i++) {
+      char c = key.charAt(i);
+      if (c >= 128 || !METADATA_KEY_CHARS[c]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Same as <code>value.matches("0[0-7]+")</code> */
+  private static boolean isOctalMode(String value) {
+    if (value == null || value.length() < 2 || value.charAt(0) != '0') {
+      return false;
+    }
+    for (int i = 1, len = value.length(); i < len; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '7') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+}
@@ -17,22 +17,37 @@
  */
 package com.oneops.proxy.web;
 
+import static com.oneops.proxy.audit.EventTag.REFRESH_TOKEN;
+import static com.oneops.proxy.audit.EventTag.REVOKE_TOKEN;
 import static com.oneops.proxy.config.Constants.AUTH_CTLR_BASE_PATH;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
 
+import com.oneops.proxy.audit.AuditLog;
+import com.oneops.proxy.audit.Event;
 import com.oneops.proxy.auth.user.OneOpsUser;
+import com.oneops.proxy.authz.Authz;
+import com.oneops.proxy.authz.AuthzClaim;
 import com.oneops.proxy.model.LoginRequest;
 import com.oneops.proxy.model.LoginResponse;
+import com.oneops.proxy.model.RefreshRequest;
 import com.oneops.proxy.model.UserResponse;
+import com.oneops.proxy.security.JwtTokenService;
+import com.oneops.proxy.security.RefreshTokenService;
+import com.oneops.proxy.security.RefreshTokenService.RefreshToken;
 import com.oneops.proxy.security.annotations.CurrentUser;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -45,6 +60,22 @@ import org.springframework.web.bind.annotation.RestController;
 @Api(value = "Auth EndPoint", description = "User Authentication.")
 public class AuthController {
 
+  private final JwtTokenService tokenService;
+  private final RefreshTokenService refreshTokenService;
+  private final Authz authz;
+  private final AuditLog auditLog;
+
+  public AuthController(
+      JwtTokenService tokenService,
+      RefreshTokenService refreshTokenService,
+      Authz authz,
+      AuditLog auditLog) {
+    this.tokenService = tokenService;
+    this.refreshTokenService = refreshTokenService;
+    this.authz = authz;
+    this.auditLog = auditLog;
+  }
+
   /**
    * Returns the authenticated current user info.
    *
@@ -78,4 +109,62 @@ public class AuthController {
   public LoginResponse token(@RequestBody LoginRequest loginRequest) {
     throw new IllegalStateException("Token method shouldn't be called. This is just for api doc.");
   }
+
+  /**
+   * Generates a new access token using the refresh token, without the user login. The refresh
+   * token is single use and a new refresh token is returned along with the access token.
+   *
+   * @param refreshRequest refresh request.
+   * @return Login response.
+   */
+  @PostMapping("/refresh")
+  @ResponseStatus(CREATED)
+  @ApiOperation(
+    value = "Refresh Access Token",
+    notes = "Generates new access token using the refresh token from login."
+  )
+  public LoginResponse refresh(@RequestBody RefreshRequest refreshRequest) {
+    if (!refreshTokenService.isEnabled()) {
+      throw new IllegalArgumentException("Token refresh is not enabled.");
+    }
+    RefreshToken refreshToken = refreshTokenService.refresh(getRefreshToken(refreshRequest));
+
+    OneOpsUser user = refreshToken.getUser();
+    AuthzClaim authzClaim = authz.createClaim(user);
+    if (authzClaim != null) {
+      user = user.withAuthzClaim(authzClaim);
+    }
+    String token = tokenService.generateToken(user);
+    auditLog.log(new Event(REFRESH_TOKEN, user.getUsername(), user.getDomain().getType(), "N/A"));
+
+    return new LoginResponse(
+        token,
+        tokenService.getTokenType(),
+        tokenService.getExpiresInSec(),
+        refreshToken.getToken(),
+        refreshToken.getExpiresInSec());
+  }
+
+  /**
+   * Revokes the refresh token. Use this on logout.
+   *
+   * @param refreshRequest refresh request.
+   */
+  @DeleteMapping("/refresh")
+  @ResponseStatus(NO_CONTENT)
+  @ApiOperation(value = "Revoke Refresh Token")
+  public void revoke(@RequestBody RefreshRequest refreshRequest) {
+    OneOpsUser user = refreshTokenService.revoke(getRefreshToken(refreshRequest));
+    if (user != null) {
+      auditLog.log(new Event(REVOKE_TOKEN, user.getUsername(), user.getDomain().getType(), "N/A"));
+    }
+  }
+
+  private static String getRefreshToken(RefreshRequest refreshRequest) {
+    String refreshToken = refreshRequest.getRefreshToken();
+    if (isBlank(refreshToken)) {
+      throw new IllegalArgumentException("Refresh token is not provided!");
+    }
+    return refreshToken;
+  }
 }
@@ -20,6 +20,8 @@ package com.oneops.proxy.web;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.util.StringUtils.isEmpty;
 
+import com.oneops.proxy.exception.RateLimitException;
+import com.oneops.proxy.exception.ValidationException;
 import com.oneops.proxy.keywhiz.KeywhizException;
 import com.oneops.proxy.model.ErrorResponse;
 import javax.servlet.http.*;
@@ -55,6 +57,27 @@ public class ErrorControllerAdvice {
         path);
   }
 
+  /**
+   * An exception handler method for {@link ValidationException} thrown from all the Rest
+   * controllers. The response contains all the validation errors.
+   *
+   * @param req http request.
+   * @param ex exception thrown.
+   * @return {@link ErrorResponse}
+   */
+  @ExceptionHandler(ValidationException.class)
+  @ResponseStatus(BAD_REQUEST)
+  public ErrorResponse handleValidationException(HttpServletRequest req, ValidationException ex) {
+    String path = getReqPath(req);
+    return new ErrorResponse(
+        System.currentTimeMillis(),
+        BAD_REQUEST.value(),
+        BAD_REQUEST.getReasonPhrase(),
+        ex.getMessage(),
+        path,
+        ex.getErrors());
+  }
+
   /**
    * An exception handler method for {@link KeywhizException} thrown from all the Rest controllers.
    *
@@ -78,6 +101,30 @@ public class ErrorControllerAdvice {
     return new ResponseEntity<>(errRes, status);
   }
 
+  /**
+   * An exception handler method for {@link RateLimitException} thrown from all the Rest
+   * controllers.
+   *
+   * @param req Http request.
+   * @param ex exception thrown.
+   * @return {@link ErrorResponse} with <b>Retry-After</b> header.
+   */
+  @ExceptionHandler(RateLimitException.class)
+  public ResponseEntity<ErrorResponse> handleRateLimitException(
+      HttpServletRequest req, RateLimitException ex) {
+    String path = getReqPath(req);
+    ErrorResponse errRes =
+        new ErrorResponse(
+            System.currentTimeMillis(),
+            TOO_MANY_REQUESTS.value(),
+            TOO_MANY_REQUESTS.getReasonPhrase(),
+            ex.getMessage(),
+            path);
+    return ResponseEntity.status(TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSec()))
+        .body(errRes);
+  }
+
   /** Returns the http status from request. */
   private HttpStatus getStatus(HttpServletRequest req) {
     Integer statusCode = (Integer) req.getAttribute("javax.servlet.error.status_code");
@@ -36,6 +36,7 @@ import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 
 import com.google.common.collect.ImmutableMap;
 import com.oneops.proxy.audit.AuditLog;
@@ -59,18 +60,21 @@ import com.oneops.proxy.service.SecretService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -127,7 +131,7 @@ public class GroupController {
   public GroupDetailResponseV2 info(
       @PathVariable(APP_NAME_PARAM) String appName, @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     GroupDetailResponseV2 groupDetails = kwClient.getGroupDetails(appGroup.getKeywhizGroup());
     return secretService.normalize(groupDetails);
   }
@@ -146,7 +150,7 @@ public class GroupController {
   public List<ClientDetailResponseV2> getClients(
       @PathVariable(APP_NAME_PARAM) String appName, @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     return kwClient.getClients(appGroup.getKeywhizGroup());
   }
 
@@ -188,7 +192,7 @@ public class GroupController {
       @PathVariable("clientName") String name,
       @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     checkClientInGroup(name, appGroup);
 
     if (user.hasRole(ADMIN)) {
@@ -219,7 +223,7 @@ public class GroupController {
   public List<SecretDetailResponseV2> getSecrets(
       @PathVariable(APP_NAME_PARAM) String appName, @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     List<SecretDetailResponseV2> secrets = kwClient.getSecrets(appGroup.getKeywhizGroup());
     return secrets.stream().map(secretService::normalize).collect(Collectors.toList());
   }
@@ -238,12 +242,12 @@ public class GroupController {
   public List<String> deleteAllSecrets(
       @PathVariable(APP_NAME_PARAM) String appName, @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     List<AppSecret> appSecrets =
         kwClient
             .getSecrets(appGroup.getKeywhizGroup())
             .stream()
-            .map(s -> new AppSecret(s.name()))
+            .map(s -> AppSecret.from(s.name()))
             .collect(Collectors.toList());
     for (AppSecret secret : appSecrets) {
       purgeSecret(secret, user);
@@ -268,7 +272,7 @@ public class GroupController {
       @PathVariable("time") long time,
       @CurrentUser OneOpsUser user)
       throws IOException {
-    AppGroup appGroup = new AppGroup(user.getDomain(), appName);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), appName);
     List<String> secrets = kwClient.getSecretsExpiring(appGroup.getKeywhizGroup(), time);
     return secretService.normalize(secrets);
   }
@@ -328,6 +332,40 @@ public class GroupController {
     log.info(format("Created new secret: %s ", uniqSecretName));
   }
 
+  /**
+   * Creates new secret from the raw secret content (<b>application/octet-stream</b>). The secret
+   * description, type, expiry and metadata are passed as <b>X-Secret-*</b> http headers. This
+   * avoids the base64 encoded JSON payload for large/binary secrets.
+   *
+   * @param createGroup <code>true</code> to create non existing application group. Default is
+   *     <code>false</code>.
+   * @param appName Application name.
+   * @param secretName secret name.
+   * @param content Raw secret content stream.
+   * @param headers Http request headers.
+   * @param user Authorized {@link OneOpsUser}
+   * @throws IOException Throws if the request could not be executed due to cancellation, a
+   *     connectivity problem or timeout.
+   * @throws KeywhizException Throws if application group doesn't exist, the secret with the same
+   *     name already exists or the secret is too large.
+   * @see SecretRequest#METADATA_HEADER_PREFIX
+   */
+  @PostMapping(value = "/secrets/{secretName}", consumes = APPLICATION_OCTET_STREAM_VALUE)
+  @ResponseStatus(CREATED)
+  @ApiOperation(value = "Creates a secret for an application from the raw secret content")
+  public void createSecretStream(
+      @RequestParam(value = "createGroup", required = false, defaultValue = "false")
+          boolean createGroup,
+      @PathVariable(APP_NAME_PARAM) String appName,
+      @PathVariable(APP_SECRET_PARAM) String secretName,
+      InputStream content,
+      @RequestHeader HttpHeaders headers,
+      @CurrentUser OneOpsUser user)
+      throws IOException {
+    SecretRequest secretRequest = secretService.readSecretReq(content, headers);
+    createSecret(createGroup, appName, secretName, secretRequest, user);
+  }
+
   /**
    * Updates the secret.
    *
@@ -367,6 +405,34 @@ public class GroupController {
     log.info(format("Updated the secret: %s", uniqSecretName));
   }
 
+  /**
+   * Updates the secret from the raw secret content (<b>application/octet-stream</b>). The secret
+   * description, type, expiry and metadata are passed as <b>X-Secret-*</b> http headers.
+   *
+   * @param appName Application name.
+   * @param secretName secret name.
+   * @param content Raw secret content stream.
+   * @param headers Http request headers.
+   * @param user Authorized {@link OneOpsUser}
+   * @throws IOException Throws if the request could not be executed due to cancellation, a
+   *     connectivity problem or timeout.
+   * @throws KeywhizException Throws if the secret is not part of given application group or the
+   *     secret is too large.
+   */
+  @PutMapping(value = "/secrets/{secretName}", consumes = APPLICATION_OCTET_STREAM_VALUE)
+  @ResponseStatus(CREATED)
+  @ApiOperation(value = "Updates a secret for an application from the raw secret content")
+  public void updateSecretStream(
+      @PathVariable(APP_NAME_PARAM) String appName,
+      @PathVariable(APP_SECRET_PARAM) String secretName,
+      InputStream content,
+      @RequestHeader HttpHeaders headers,
+      @CurrentUser OneOpsUser user)
+      throws IOException {
+    SecretRequest secretRequest = secretService.readSecretReq(content, headers);
+    updateSecret(appName, secretName, secretRequest, user);
+  }
+
   /**
    * Retrieve information on a secret series.
    *
@@ -66,7 +66,7 @@ public class AppSecretArgResolver implements HandlerMethodArgumentResolver {
     String group = pathVars != null ? pathVars.get(APP_NAME_PARAM) : "";
     String secret = pathVars != null ? pathVars.get(APP_SECRET_PARAM) : "";
 
-    AppGroup appGroup = new AppGroup(user.getDomain(), group);
+    AppGroup appGroup = AppGroup.from(user.getDomain(), group);
     return new AppSecret(secret, appGroup);
   }
 }
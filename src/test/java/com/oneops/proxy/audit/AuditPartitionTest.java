@@ -0,0 +1,141 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Audit index partition tests.
+ *
+ * @author Suresh G
+ */
+public class AuditPartitionTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private final LocalDate date = LocalDate.of(2018, 6, 1);
+
+  @Test
+  public void search() throws IOException {
+    AuditPartition partition = AuditPartition.open(tmp.getRoot().toPath(), date);
+    partition.append(events(0, 100));
+
+    assertEquals(100, partition.count());
+    assertEquals(100, search(partition, Collections.emptyList(), 1000).size());
+
+    List<String> objects = search(partition, Arrays.asList(AuditPartition.user("user-1")), 1000);
+    assertEquals(33, objects.size());
+    assertEquals("obj-97", objects.get(0));
+    assertEquals("obj-1", objects.get(32));
+
+    List<String> terms =
+        Arrays.asList(
+            AuditPartition.user("user-1"),
+            AuditPartition.group("group-1"),
+            AuditPartition.type(EventTag.SECRET_READCONTENT));
+    assertEquals(Arrays.asList("obj-97", "obj-91", "obj-85"), search(partition, terms, 3));
+    assertEquals(17, search(partition, terms, 100).size());
+    assertEquals(0, search(partition, Arrays.asList(AuditPartition.user("none")), 10).size());
+  }
+
+  @Test
+  public void pagination() throws IOException {
+    AuditPartition partition = AuditPartition.open(tmp.getRoot().toPath(), date);
+    partition.append(events(0, 50));
+    partition.append(events(50, 50));
+
+    List<String> terms = Arrays.asList(AuditPartition.group("group-0"));
+    List<String> all = new ArrayList<>();
+    long before = Long.MAX_VALUE;
+    while (true) {
+      long[] last = {-1};
+      int count =
+          partition.search(
+              terms,
+              before,
+              e -> true,
+              7,
+              (e, offset) -> {
+                all.add(e.getObjectName());
+                last[0] = offset;
+              });
+      if (count == 0) {
+        break;
+      }
+      before = last[0];
+    }
+    assertEquals(search(partition, terms, 1000), all);
+    assertEquals(50, all.size());
+  }
+
+  @Test
+  public void sealAndReopen() throws IOException {
+    Path root = tmp.getRoot().toPath();
+    AuditPartition partition = AuditPartition.open(root, date);
+    partition.append(events(0, 20));
+    partition.close();
+
+    // Postings are rebuilt from the events.
+    partition = AuditPartition.open(root, date);
+    assertEquals(20, partition.count());
+    partition.append(events(20, 10));
+    partition.seal();
+
+    Path dir = root.resolve("20180601");
+    AuditPartition sealed = AuditPartition.load(dir);
+    assertEquals(30, sealed.count());
+    List<String> terms = Arrays.asList(AuditPartition.object("obj-25"));
+    assertEquals(Arrays.asList("obj-25"), search(sealed, terms, 10));
+
+    // Corrupt postings file is rebuilt.
+    Path postings = dir.resolve(AuditPartition.POSTINGS_FILE);
+    byte[] bytes = Files.readAllBytes(postings);
+    int i = bytes.length / 2;
+    bytes[i] = (byte) ~bytes[i];
+    Files.write(postings, bytes);
+    sealed = AuditPartition.load(dir);
+    assertEquals(30, sealed.count());
+    assertEquals(10, search(sealed, Arrays.asList(AuditPartition.user("user-2")), 100).size());
+  }
+
+  private static List<String> search(AuditPartition partition, List<String> terms, int limit)
+      throws IOException {
+    List<String> objects = new ArrayList<>();
+    partition.search(
+        terms, Long.MAX_VALUE, e -> true, limit, (e, offset) -> objects.add(e.getObjectName()));
+    return objects;
+  }
+
+  /** Events with 3 users and 2 groups, every other one is a read. */
+  private static List<Event> events(int from, int count) {
+    List<Event> events = new ArrayList<>();
+    for (int i = from; i < from + count; i++) {
+      EventTag type = i % 2 == 1 ? EventTag.SECRET_READCONTENT : EventTag.SECRET_CREATE;
+      events.add(new Event(type, "user-" + i % 3, "group-" + i % 2, "obj-" + i));
+    }
+    return events;
+  }
+}
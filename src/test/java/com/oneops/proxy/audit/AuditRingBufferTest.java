@@ -0,0 +1,124 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * Audit ring buffer tests.
+ *
+ * @author Suresh G
+ */
+public class AuditRingBufferTest {
+
+  @Test
+  public void bounded() {
+    AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(3);
+    assertEquals(4, ring.capacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+    assertFalse(ring.offer(4));
+
+    List<Integer> out = new ArrayList<>();
+    assertEquals(2, ring.drain(out, 2));
+    assertTrue(ring.offer(4));
+    assertEquals(3, ring.drain(out, 10));
+    assertEquals(0, ring.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, out.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void multipleProducers() throws Exception {
+    int producers = 4;
+    int count = 100_000;
+    AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(1024);
+    ExecutorService pool = Executors.newFixedThreadPool(producers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        int base = p * count;
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int i = 0; i < count; i++) {
+                    while (!ring.offer(base + i)) {
+                      Thread.yield();
+                    }
+                  }
+                }));
+      }
+
+      boolean[] seen = new boolean[producers * count];
+      int[] last = new int[producers];
+      Arrays.fill(last, -1);
+      List<Integer> out = new ArrayList<>();
+      int total = 0;
+      while (total < seen.length) {
+        out.clear();
+        total += ring.drain(out, 256);
+        for (int v : out) {
+          assertFalse("Duplicate element " + v, seen[v]);
+          seen[v] = true;
+          // Elements of a producer are drained in order.
+          assertTrue(v % count > last[v / count]);
+          last[v / count] = v % count;
+        }
+      }
+      assertEquals(0, ring.size());
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void offerWakesUpConsumer() throws Exception {
+    AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(4);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<Long> waited =
+          pool.submit(
+              () -> {
+                long start = System.nanoTime();
+                ring.await(SECONDS.toNanos(30));
+                return System.nanoTime() - start;
+              });
+      Thread.sleep(100);
+      assertTrue(ring.offer(1));
+      assertTrue(waited.get(10, SECONDS) < SECONDS.toNanos(10));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
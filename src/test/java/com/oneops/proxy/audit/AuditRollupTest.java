@@ -0,0 +1,115 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static com.oneops.proxy.audit.EventTag.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.config.OneOpsConfig.Audit.Policy;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Audit rollup tests.
+ *
+ * @author Suresh G
+ */
+public class AuditRollupTest {
+
+  private final MetricRegistry registry = new MetricRegistry();
+
+  private final MetricsUtilService metricsUtil =
+      new MetricsUtilService(registry, new OneOpsConfig());
+
+  @Test
+  public void rollup() {
+    List<Event> out = new ArrayList<>();
+    AuditRollup rollup = new AuditRollup(config(SECRET_READCONTENT), out::add, metricsUtil);
+
+    long minute = 1_527_811_200_000L;
+    for (int i = 0; i < 100; i++) {
+      assertTrue(rollup.offer(event(SECRET_READCONTENT, "user-1", minute + i * 100)));
+    }
+    assertTrue(rollup.offer(event(SECRET_READCONTENT, "user-2", minute)));
+    assertTrue(rollup.offer(event(SECRET_READCONTENT, "user-1", minute + 60_000)));
+    assertFalse(rollup.offer(event(SECRET_CREATE, "user-1", minute)));
+    assertEquals(3, rollup.size());
+
+    rollup.flush(true);
+    assertEquals(0, rollup.size());
+    assertEquals(3, out.size());
+    out.sort(Comparator.comparing(Event::getTimestamp).thenComparing(Event::getUser));
+
+    Event e = out.get(0);
+    assertEquals(SECRET_READCONTENT, e.getType());
+    assertEquals("user-1", e.getUser());
+    assertEquals("group", e.getAppGroup());
+    assertEquals("secret", e.getObjectName());
+    assertEquals(minute, e.getTimestamp());
+    assertEquals("100", e.getExtraInfo().get("count"));
+    assertEquals("2018-06-01T00:00:00Z", e.getExtraInfo().get("first"));
+    assertEquals("2018-06-01T00:00:09.900Z", e.getExtraInfo().get("last"));
+    assertEquals("1", out.get(1).getExtraInfo().get("count"));
+    assertEquals("user-2", out.get(1).getUser());
+    assertEquals(minute + 60_000, out.get(2).getTimestamp());
+    assertEquals(102, registry.meter("meter.oneops.audit.rollup.events").getCount());
+    assertEquals(3, registry.meter("meter.oneops.audit.rollup.records").getCount());
+  }
+
+  @Test
+  public void flushClosedMinutes() {
+    List<Event> out = new ArrayList<>();
+    AuditRollup rollup = new AuditRollup(config(SECRET_READCONTENT), out::add, metricsUtil);
+
+    long now = System.currentTimeMillis();
+    assertTrue(rollup.offer(event(SECRET_READCONTENT, "user-1", now - 300_000)));
+    assertTrue(rollup.offer(event(SECRET_READCONTENT, "user-1", now)));
+    rollup.flush(false);
+    assertEquals(1, out.size());
+    assertEquals(1, rollup.size());
+  }
+
+  @Test
+  public void fullByDefault() {
+    List<Event> out = new ArrayList<>();
+    AuditRollup rollup = new AuditRollup(config(), out::add, metricsUtil);
+    assertFalse(rollup.offer(event(SECRET_READCONTENT, "user-1", System.currentTimeMillis())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void writeEventsNotAllowed() {
+    new AuditRollup(config(SECRET_DELETE), e -> {}, metricsUtil);
+  }
+
+  private static OneOpsConfig.Audit config(EventTag... rollupTypes) {
+    OneOpsConfig.Audit config = new OneOpsConfig.Audit();
+    for (EventTag type : rollupTypes) {
+      config.getPolicy().put(type, Policy.ROLLUP);
+    }
+    return config;
+  }
+
+  private static Event event(EventTag type, String user, long timestamp) {
+    return new Event(type, user, "group", "secret", null, timestamp);
+  }
+}
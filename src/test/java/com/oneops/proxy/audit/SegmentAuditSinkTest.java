@@ -0,0 +1,135 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Binary audit segment tests.
+ *
+ * @author Suresh G
+ */
+public class SegmentAuditSinkTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void writeAndRead() throws IOException {
+    Path dir = tmp.getRoot().toPath();
+    List<Event> events = events(0, 100);
+    try (SegmentAuditSink sink = new SegmentAuditSink(dir, 4096, 100)) {
+      sink.write(events);
+      sink.sync();
+    }
+
+    List<Path> segments = AuditSegments.list(dir);
+    assertTrue(segments.size() > 1);
+    List<Event> read = read(dir);
+    assertEquals(events.size(), read.size());
+    for (int i = 0; i < events.size(); i++) {
+      assertEquals(events.get(i).toString(), read.get(i).toString());
+      assertEquals(events.get(i).getTimestamp(), read.get(i).getTimestamp());
+    }
+    assertNull(read.get(0).getExtraInfo());
+    assertEquals("v1", read.get(1).getExtraInfo().get("k"));
+  }
+
+  @Test
+  public void recover() throws IOException {
+    Path dir = tmp.getRoot().toPath();
+    try (SegmentAuditSink sink = new SegmentAuditSink(dir, 64 * 1024, 10)) {
+      sink.write(events(0, 10));
+    }
+    // Corrupts the last record.
+    Path segment = AuditSegments.list(dir).get(0);
+    long end = endOfRecords(segment);
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(end - 1);
+      file.write(0xFF);
+    }
+    assertEquals(9, read(dir).size());
+
+    try (SegmentAuditSink sink = new SegmentAuditSink(dir, 64 * 1024, 10)) {
+      sink.write(events(10, 5));
+    }
+    List<Event> read = read(dir);
+    assertEquals(14, read.size());
+    assertEquals("obj-8", read.get(8).getObjectName());
+    assertEquals("obj-10", read.get(9).getObjectName());
+  }
+
+  @Test
+  public void retention() throws IOException {
+    Path dir = tmp.getRoot().toPath();
+    try (SegmentAuditSink sink = new SegmentAuditSink(dir, 1024, 3)) {
+      for (int i = 0; i < 20; i++) {
+        sink.write(events(i * 10, 10));
+      }
+    }
+    List<Path> segments = AuditSegments.list(dir);
+    assertEquals(3, segments.size());
+    List<Event> read = read(dir);
+    assertEquals("obj-199", read.get(read.size() - 1).getObjectName());
+  }
+
+  private static List<Event> events(int from, int count) {
+    List<Event> events = new ArrayList<>();
+    for (int i = from; i < from + count; i++) {
+      Map<String, String> extraInfo = null;
+      if (i % 2 == 1) {
+        extraInfo = new LinkedHashMap<>();
+        extraInfo.put("k", "v" + i);
+      }
+      EventTag type = EventTag.SECRET_READCONTENT;
+      events.add(new Event(type, "user", "oneops_proxy_dev", "obj-" + i, extraInfo));
+    }
+    return events;
+  }
+
+  private static List<Event> read(Path dir) throws IOException {
+    List<Event> events = new ArrayList<>();
+    for (Path segment : AuditSegments.list(dir)) {
+      AuditSegments.read(segment, events::add);
+    }
+    return events;
+  }
+
+  private static long endOfRecords(Path segment) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+      long pos = AuditSegments.SEGMENT_HEADER_SIZE;
+      while (true) {
+        file.seek(pos);
+        int len = file.readInt();
+        if (len == 0) {
+          return pos;
+        }
+        pos += AuditSegments.RECORD_HEADER_SIZE + len;
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.auth.login;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/**
+ * Async login processing tests.
+ *
+ * @author Suresh G
+ */
+public class LoginProcessingFilterTest {
+
+  private static final String LOGIN_URL = "/auth/signin";
+
+  private final LoginExecutor loginExecutor = loginExecutor();
+
+  @After
+  public void stop() {
+    loginExecutor.stop();
+  }
+
+  @Test
+  public void timeoutDiscardsRunningLogin() throws Exception {
+    CountDownLatch authStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean responded = new AtomicBoolean();
+
+    LoginProcessingFilter filter =
+        new LoginProcessingFilter(
+            LOGIN_URL,
+            (req, res, auth) -> responded.set(true),
+            (req, res, ex) -> responded.set(true),
+            new ObjectMapper(),
+            loginExecutor);
+    filter.setAuthenticationManager(
+        auth -> {
+          authStarted.countDown();
+          awaitUninterruptibly(release);
+          return new UsernamePasswordAuthenticationToken("user", "", Collections.emptyList());
+        });
+
+    MockHttpServletRequest req = new MockHttpServletRequest("POST", LOGIN_URL);
+    req.setServletPath(LOGIN_URL);
+    req.setAsyncSupported(true);
+    req.setContent("{\"username\":\"user\",\"password\":\"secret\"}".getBytes(UTF_8));
+    MockHttpServletResponse res = new MockHttpServletResponse();
+    filter.doFilter(req, res, new MockFilterChain());
+
+    MockAsyncContext ctx = (MockAsyncContext) req.getAsyncContext();
+    CountDownLatch completed = new CountDownLatch(2);
+    ctx.addListener(new CompletionListener(completed));
+    assertTrue(authStarted.await(5, SECONDS));
+
+    // The container times out the running login.
+    for (AsyncListener listener : ctx.getListeners()) {
+      listener.onTimeout(new AsyncEvent(ctx));
+    }
+    assertEquals(503, res.getStatus());
+    assertEquals("5", res.getHeader("Retry-After"));
+
+    // The login thread completes later, discarding its result.
+    release.countDown();
+    assertTrue(completed.await(5, SECONDS));
+    assertFalse(responded.get());
+    assertEquals(503, res.getStatus());
+  }
+
+  private static LoginExecutor loginExecutor() {
+    OneOpsConfig config = new OneOpsConfig();
+    OneOpsConfig.Auth auth = new OneOpsConfig.Auth();
+    auth.setLoginThreads(1);
+    config.setAuth(auth);
+    MetricRegistry registry = new MetricRegistry();
+    LoginExecutor executor = new LoginExecutor(config, new MetricsUtilService(registry, config));
+    executor.start();
+    return executor;
+  }
+
+  /** Counts the async request completions. */
+  private static final class CompletionListener implements AsyncListener {
+    private final CountDownLatch completed;
+
+    CompletionListener(CountDownLatch completed) {
+      this.completed = completed;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      completed.countDown();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {}
+
+    @Override
+    public void onError(AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+  }
+}
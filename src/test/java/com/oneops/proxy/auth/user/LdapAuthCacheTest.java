@@ -0,0 +1,154 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.auth.user;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.codahale.metrics.MetricRegistry;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.MetricsUtilService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.ldaptive.LdapException;
+
+/**
+ * LDAP login cache tests.
+ *
+ * @author Suresh G
+ */
+public class LdapAuthCacheTest {
+
+  private final LdapAuthCache cache = new LdapAuthCache(60, 100, 1_000, 5_000, metricsUtil());
+
+  @Test
+  public void cachedLogin() throws Exception {
+    AtomicInteger binds = new AtomicInteger();
+    char[] pass = "secret".toCharArray();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("Test User", cache.authenticate("user", pass, () -> bind(binds, "Test User")));
+    }
+    assertEquals(1, binds.get());
+
+    // Wrong password goes to the LDAP and invalidates the cached login.
+    assertNull(cache.authenticate("user", "wrong".toCharArray(), () -> bind(binds, null)));
+    assertEquals(2, binds.get());
+    assertEquals(0, cache.size());
+
+    assertEquals("Test User", cache.authenticate("user", pass, () -> bind(binds, "Test User")));
+    assertEquals(3, binds.get());
+  }
+
+  @Test
+  public void coalescedLogins() throws Exception {
+    AtomicInteger binds = new AtomicInteger();
+    CountDownLatch bindStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    char[] pass = "secret".toCharArray();
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      Future<String> leader =
+          pool.submit(
+              () ->
+                  cache.authenticate(
+                      "user",
+                      pass,
+                      () -> {
+                        bindStarted.countDown();
+                        awaitUninterruptibly(release);
+                        return bind(binds, "Test User");
+                      }));
+      bindStarted.await();
+
+      List<Future<String>> followers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        followers.add(
+            pool.submit(() -> cache.authenticate("user", pass, () -> bind(binds, "Other"))));
+      }
+      // Give the followers some time to join the in-flight bind. Late ones hit the cache.
+      Thread.sleep(200);
+      release.countDown();
+
+      assertEquals("Test User", leader.get());
+      for (Future<String> f : followers) {
+        assertEquals("Test User", f.get());
+      }
+      assertEquals(1, binds.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void coalescedLoginTimeout() throws Exception {
+    LdapAuthCache cache = new LdapAuthCache(60, 100, 1_000, 100, metricsUtil());
+    AtomicInteger binds = new AtomicInteger();
+    CountDownLatch bindStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    char[] pass = "secret".toCharArray();
+
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> leader =
+          pool.submit(
+              () ->
+                  cache.authenticate(
+                      "user",
+                      pass,
+                      () -> {
+                        bindStarted.countDown();
+                        awaitUninterruptibly(release);
+                        return bind(binds, "Test User");
+                      }));
+      bindStarted.await();
+
+      try {
+        cache.authenticate("user", pass, () -> bind(binds, "Other"));
+        fail("Expected the coalesced login to time out.");
+      } catch (LdapException ex) {
+        assertTrue(ex.getCause() instanceof TimeoutException);
+      }
+      release.countDown();
+      assertEquals("Test User", leader.get());
+      assertEquals(1, binds.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static MetricsUtilService metricsUtil() {
+    return new MetricsUtilService(new MetricRegistry(), new OneOpsConfig());
+  }
+
+  private static String bind(AtomicInteger binds, String cn) {
+    binds.incrementAndGet();
+    return cn;
+  }
+}
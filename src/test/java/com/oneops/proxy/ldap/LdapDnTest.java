@@ -0,0 +1,117 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.ldaptive.DnParser;
+
+/**
+ * DN parser tests, including the RFC 4514 examples and a conformance check against the ldaptive
+ * DN parser.
+ *
+ * @author Suresh G
+ */
+public class LdapDnTest {
+
+  @Test
+  public void rfc4514Examples() {
+    LdapDn dn = LdapDn.parse("UID=jsmith,DC=example,DC=net");
+    assertEquals(3, dn.size());
+    assertEquals("jsmith", dn.getValue("uid"));
+    assertEquals(Arrays.asList("example", "net"), dn.getValues("DC"));
+
+    dn = LdapDn.parse("OU=Sales+CN=J.  Smith,DC=example,DC=net");
+    assertEquals(4, dn.size());
+    assertEquals(3, dn.rdnCount());
+    assertEquals(0, dn.rdn(1));
+    assertEquals("J.  Smith", dn.getCommonName());
+
+    dn = LdapDn.parse("CN=James \\\"Jim\\\" Smith\\, III,DC=example,DC=net");
+    assertEquals("James \"Jim\" Smith, III", dn.getCommonName());
+
+    dn = LdapDn.parse("CN=Before\\0dAfter,DC=example,DC=net");
+    assertEquals("Before\rAfter", dn.getCommonName());
+
+    dn = LdapDn.parse("1.3.6.1.4.1.1466.0=#04024869,DC=example,DC=com");
+    assertEquals("1.3.6.1.4.1.1466.0", dn.type(0));
+    assertEquals("#04024869", dn.value(0));
+
+    assertEquals("Lu\u010di\u0107", LdapDn.commonName("CN=Lu\\C4\\8Di\\C4\\87"));
+  }
+
+  @Test
+  public void legacyForms() {
+    LdapDn dn = LdapDn.parse(" CN = Doe\\, John , OU = Users ; DC=example ");
+    assertEquals("Doe, John", dn.getCommonName());
+    assertEquals("Users", dn.getValue("OU"));
+    assertEquals("example", dn.getValue("DC"));
+
+    assertEquals("Doe, John", LdapDn.commonName("CN=\"Doe, John\",DC=example"));
+    assertEquals("trail ", LdapDn.commonName("CN=trail\\ ,DC=example"));
+    assertEquals(0, LdapDn.parse("").size());
+    assertNull(LdapDn.commonName("OU=Users,DC=example"));
+  }
+
+  @Test
+  public void leftmostCommonName() {
+    LdapDn dn = LdapDn.parse("CN=John Doe - jdoe,CN=Users,DC=example,DC=com");
+    assertEquals("John Doe - jdoe", dn.getCommonName());
+    assertEquals(Arrays.asList("John Doe - jdoe", "Users"), dn.getValues("cn"));
+  }
+
+  @Test
+  public void invalidDns() {
+    String[] invalid = {"CN", "CN=a,", "CN=a\\", "CN=a\\4", "=a", "CN=#123", "CN=\"abc", "CN=a,,"};
+    for (String dn : invalid) {
+      try {
+        LdapDn.parse(dn);
+        fail("Expected invalid DN: " + dn);
+      } catch (IllegalArgumentException expected) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void conformsToLdaptive() {
+    String[] dns = {
+      "CN=John Doe - jdoe,OU=Users,DC=example,DC=com",
+      "CN=Doe\\, John,OU=Service Accounts,OU=Users,DC=example,DC=com",
+      "CN=a\\+b+OU=Sales,CN=Users,DC=example,DC=com",
+      "cn=back\\\\slash,dc=example,dc=com",
+      "CN=App - Secrets Admins,OU=Groups,DC=ad,DC=example,DC=com",
+      "CN = spaced , OU = Users,DC=example",
+      "uid=jdoe,ou=people,o=example"
+    };
+    String[] types = {"CN", "OU", "DC", "uid", "o"};
+    for (String dn : dns) {
+      LdapDn parsed = LdapDn.parse(dn);
+      for (String type : types) {
+        List<String> expected = new ArrayList<>(DnParser.getValues(dn, type));
+        assertEquals(dn + " " + type, expected, parsed.getValues(type));
+      }
+    }
+  }
+}
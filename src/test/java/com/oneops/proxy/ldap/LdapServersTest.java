@@ -0,0 +1,91 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.ldaptive.Connection;
+import org.ldaptive.LdapException;
+import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+
+/**
+ * LDAP server selection and failover tests.
+ *
+ * @author Suresh G
+ */
+public class LdapServersTest {
+
+  private final MetricRegistry registry = new MetricRegistry();
+
+  private final DropwizardMetricServices metricService = new DropwizardMetricServices(registry);
+
+  @Test
+  public void serverOrder() {
+    LdapServer down = server("down", 5);
+    down.failure();
+    LdapServer slow = server("slow", 500);
+    LdapServer fast = server("fast", 20);
+    LdapServer fastest = server("fastest", 10);
+    LdapServers servers =
+        new LdapServers(Arrays.asList(down, slow, fast, fastest), 100, metricService);
+
+    List<String> ordered =
+        servers.ordered().stream().map(LdapServer::getName).collect(Collectors.toList());
+    assertEquals(Arrays.asList("fastest", "fast", "slow", "down"), ordered);
+  }
+
+  @Test
+  public void failover() throws Exception {
+    LdapConnectionPool failingPool = mock(LdapConnectionPool.class);
+    when(failingPool.getConnection()).thenThrow(new LdapException("Connection refused"));
+    LdapConnectionPool pool = mock(LdapConnectionPool.class);
+    Connection conn = mock(Connection.class);
+    when(pool.getConnection()).thenReturn(conn);
+
+    LdapServer first = new LdapServer("ldaps://dc1:636", "dc1", failingPool, null);
+    first.success(10);
+    LdapServer second = new LdapServer("ldaps://dc2:636", "dc2", pool, null);
+    second.success(20);
+    LdapServers servers = new LdapServers(Arrays.asList(first, second), 100, metricService);
+
+    assertSame(conn, servers.searchFactory().getConnection());
+    assertFalse(first.isHealthy());
+    assertTrue(second.isHealthy());
+    assertEquals(1, registry.meter("meter.oneops.ldap.failover").getCount());
+    assertEquals(1, registry.meter("meter.oneops.ldap.server.dc1.err").getCount());
+    // The failed server is used last.
+    assertEquals("dc2", servers.ordered().get(0).getName());
+  }
+
+  private static LdapServer server(String name, long latencyMs) {
+    LdapServer server =
+        new LdapServer("ldaps://" + name + ":636", name, mock(LdapConnectionPool.class), null);
+    server.success(latencyMs);
+    return server;
+  }
+}
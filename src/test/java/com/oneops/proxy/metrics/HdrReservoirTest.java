@@ -0,0 +1,50 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+
+import com.oneops.proxy.metrics.HdrReservoir.HdrSnapshot;
+import org.junit.Test;
+
+/**
+ * HdrHistogram reservoir tests.
+ *
+ * @author Suresh G
+ */
+public class HdrReservoirTest {
+
+  @Test
+  public void lifetimeSum() {
+    // Every snapshot rotates the window.
+    HdrReservoir reservoir = new HdrReservoir(2, 1, NANOSECONDS);
+    reservoir.update(1_000);
+    reservoir.update(2_000);
+    HdrSnapshot snapshot = (HdrSnapshot) reservoir.getSnapshot();
+    assertEquals(2, snapshot.size());
+    assertEquals(3_000, snapshot.getSum());
+
+    // The old values leave the windows, but the sum keeps them.
+    reservoir.update(10);
+    reservoir.getSnapshot();
+    snapshot = (HdrSnapshot) reservoir.getSnapshot();
+    assertEquals(0, snapshot.size());
+    assertEquals(3_010, snapshot.getSum());
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Test;
+
+/**
+ * Prometheus text format writer tests.
+ *
+ * @author Suresh G
+ */
+public class PrometheusWriterTest {
+
+  @Test
+  public void writeSamples() throws IOException {
+    StringWriter out = new StringWriter();
+    new PrometheusWriter(out)
+        .type("oneops_ldap_auth_seconds", "summary")
+        .sample("oneops_ldap_auth_seconds", "quantile", "0.5", 0.0015)
+        .sample("oneops_ldap_auth_seconds", "_sum", 0.0045)
+        .sample("oneops_ldap_auth_seconds", "_count", 3)
+        .type("cache_hits_total", "counter")
+        .sample("cache_hits_total", "cache", "a\"b\\c\nd", 7)
+        .type("oneops_audit_queued", "gauge")
+        .sample("oneops_audit_queued", Double.NaN)
+        .sample("oneops_audit_queued", Double.NEGATIVE_INFINITY);
+
+    String expected =
+        "# TYPE oneops_ldap_auth_seconds summary\n"
+            + "oneops_ldap_auth_seconds{quantile=\"0.5\"} 0.0015\n"
+            + "oneops_ldap_auth_seconds_sum 0.0045\n"
+            + "oneops_ldap_auth_seconds_count 3\n"
+            + "# TYPE cache_hits_total counter\n"
+            + "cache_hits_total{cache=\"a\\\"b\\\\c\\nd\"} 7\n"
+            + "# TYPE oneops_audit_queued gauge\n"
+            + "oneops_audit_queued NaN\n"
+            + "oneops_audit_queued -Inf\n";
+    assertEquals(expected, out.toString());
+  }
+
+  @Test
+  public void sanitize() {
+    assertEquals("oneops_ldap_auth", PrometheusWriter.sanitize("oneops.ldap.auth"));
+    assertEquals(
+        "oneops_ldap_pool_search_ldap_1_waitTime",
+        PrometheusWriter.sanitize("oneops.ldap.pool.search.ldap-1.waitTime"));
+    assertEquals("_1xx", PrometheusWriter.sanitize("1xx"));
+    assertEquals("a:b_c", PrometheusWriter.sanitize("a:b/c"));
+  }
+}
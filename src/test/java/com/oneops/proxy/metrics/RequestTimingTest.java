@@ -0,0 +1,105 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static java.lang.System.nanoTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import org.junit.Test;
+
+/**
+ * Request stage timing tests.
+ *
+ * @author Suresh G
+ */
+public class RequestTimingTest {
+
+  @Test
+  public void recordStages() {
+    // No-op without a request timing.
+    RequestTiming.record(Stage.AUTHZ, nanoTime());
+
+    RequestTiming timing = RequestTiming.begin();
+    try {
+      long now = nanoTime();
+      RequestTiming.record(Stage.AUTHZ, now - 1_204_000);
+      RequestTiming.record(Stage.KEYWHIZ, now - 20_000_000);
+      RequestTiming.record(Stage.KEYWHIZ, now - 500_000);
+    } finally {
+      timing.end();
+    }
+    RequestTiming.record(Stage.AUDIT, nanoTime());
+
+    assertEquals(0, timing.count(Stage.AUTH));
+    assertEquals(1, timing.count(Stage.AUTHZ));
+    assertEquals(2, timing.count(Stage.KEYWHIZ));
+    assertEquals(0, timing.count(Stage.AUDIT));
+    assertTrue(timing.nanos(Stage.AUTHZ) >= 1_204_000);
+    assertTrue(timing.nanos(Stage.KEYWHIZ) >= 20_500_000);
+
+    String header = timing.header();
+    String pattern =
+        "authz;dur=[\\d.]+, keywhiz;dur=[\\d.]+;desc=\"2 calls\", total;dur=\\d+(\\.\\d{3})?";
+    assertTrue(header, header.matches(pattern));
+  }
+
+  @Test
+  public void recordCalls() {
+    RequestTiming timing = RequestTiming.begin();
+    try {
+      long now = nanoTime();
+      RequestTiming.call(Stage.LDAP, "bind", now - 3_000_000, RequestTiming.OK);
+      RequestTiming.call(Stage.DB, "teams", now - 2_000_000, RequestTiming.ERROR);
+    } finally {
+      timing.end();
+    }
+    RequestTiming.call(Stage.DB, "teams", nanoTime(), RequestTiming.OK);
+
+    assertEquals(1, timing.count(Stage.LDAP));
+    assertEquals(1, timing.count(Stage.DB));
+    assertEquals(2, timing.calls().size());
+    RequestTiming.Call call = timing.calls().get(1);
+    assertEquals(Stage.DB, call.stage);
+    assertEquals("teams", call.name);
+    assertEquals(RequestTiming.ERROR, call.status);
+    assertTrue(call.nanos >= 2_000_000);
+  }
+
+  @Test
+  public void freeze() {
+    RequestTiming timing = RequestTiming.begin();
+    try {
+      RequestTiming.call(Stage.LDAP, "search", nanoTime(), RequestTiming.OK);
+      RequestTiming frozen = timing.freeze();
+      long total = frozen.elapsed();
+
+      // Stages recorded after the request end (Eg: a timed out login) are dropped.
+      RequestTiming.call(Stage.LDAP, "bind", nanoTime(), RequestTiming.OK);
+      RequestTiming.record(Stage.DB, nanoTime());
+      assertEquals(1, frozen.count(Stage.LDAP));
+      assertEquals(1, frozen.calls().size());
+      assertEquals(1, timing.count(Stage.LDAP));
+      assertEquals(0, timing.count(Stage.DB));
+      assertEquals(total, frozen.elapsed());
+    } finally {
+      timing.end();
+    }
+  }
+}
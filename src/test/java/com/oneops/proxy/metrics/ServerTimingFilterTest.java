@@ -0,0 +1,112 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.metrics.RequestTiming.Stage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Server timing filter tests.
+ *
+ * @author Suresh G
+ */
+public class ServerTimingFilterTest {
+
+  private final OneOpsConfig config = new OneOpsConfig();
+
+  private final MetricRegistry registry = new MetricRegistry();
+
+  private final MetricsUtilService metricsUtil = new MetricsUtilService(registry, config);
+
+  private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+  @After
+  public void stop() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void asyncRequest() throws Exception {
+    List<String> recorded = new ArrayList<>();
+    SlowRequestLog slowRequestLog =
+        new SlowRequestLog(config, metricsUtil) {
+          @Override
+          void record(HttpServletRequest req, HttpServletResponse res, RequestTiming timing) {
+            for (RequestTiming.Call call : timing.calls()) {
+              recorded.add(res.getStatus() + " " + call.stage.getId() + " " + call.name);
+            }
+          }
+        };
+    ServerTimingFilter filter = new ServerTimingFilter(config, metricsUtil, slowRequestLog);
+    MockHttpServletRequest req = new MockHttpServletRequest("POST", "/auth/signin");
+    req.setAsyncSupported(true);
+    req.addHeader(config.getMetrics().getServerTimingHeader(), "true");
+    MockHttpServletResponse res = new MockHttpServletResponse();
+
+    // The request thread returns before the async processing (Eg: login) is done.
+    CountDownLatch returned = new CountDownLatch(1);
+    filter.doFilter(
+        req,
+        res,
+        (request, response) -> {
+          AsyncContext ctx = request.startAsync(request, response);
+          pool.execute(
+              RequestTiming.bind(
+                  () -> {
+                    awaitUninterruptibly(returned);
+                    RequestTiming.call(Stage.LDAP, "bind", nanoTime() - 2_000_000, "ok");
+                    try {
+                      ((HttpServletResponse) ctx.getResponse()).sendError(401);
+                    } catch (Exception ex) {
+                      throw new IllegalStateException(ex);
+                    }
+                    ctx.complete();
+                  }));
+        });
+    assertEquals(0, registry.timer("timer.oneops.stage.ldap").getCount());
+    assertTrue(recorded.isEmpty());
+
+    returned.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(5, SECONDS));
+    assertEquals(1, registry.timer("timer.oneops.stage.ldap").getCount());
+    assertEquals(Collections.singletonList("401 ldap bind"), recorded);
+    String header = res.getHeader(ServerTimingFilter.SERVER_TIMING);
+    assertTrue(header, header.matches("ldap;dur=[\\d.]+, total;dur=[\\d.]+"));
+  }
+}
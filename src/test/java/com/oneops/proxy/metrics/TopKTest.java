@@ -0,0 +1,73 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Heavy hitters estimator tests.
+ *
+ * @author Suresh G
+ */
+public class TopKTest {
+
+  @Test
+  public void topKeys() {
+    TopK topK = new TopK(3, 1024);
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      topK.add("key-" + random.nextInt(10_000));
+      if (i % 10 == 0) {
+        topK.add("hot-1");
+      }
+      if (i % 20 == 0) {
+        topK.add("hot-2");
+      }
+    }
+    topK.add(null);
+
+    List<Map.Entry<String, Long>> top = topK.top();
+    assertEquals(3, top.size());
+    assertEquals("hot-1", top.get(0).getKey());
+    assertEquals("hot-2", top.get(1).getKey());
+    assertTrue(top.get(0).getValue() >= 10_000);
+    assertTrue(top.get(1).getValue() >= 5_000);
+    assertEquals(115_000, topK.total());
+  }
+
+  @Test
+  public void decay() {
+    TopK topK = new TopK(2, 64);
+    for (int i = 0; i < 8; i++) {
+      topK.add("a");
+    }
+    topK.add("b");
+    assertEquals(8, topK.estimate("a"));
+
+    topK.decay();
+    assertEquals(4, topK.estimate("a"));
+    assertEquals(4, topK.total());
+    // "b" is dropped once its count is decayed to zero.
+    assertEquals(1, topK.top().size());
+    assertEquals("a", topK.top().get(0).getKey());
+  }
+}
@@ -1,6 +1,8 @@
 package com.oneops.proxy.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import com.oneops.proxy.authz.AuthDomain;
 import java.util.Arrays;
@@ -36,4 +38,30 @@ public class AppSecretTest {
           assertEquals(secret, new AppSecret(secret2.getUniqSecretName()).getSecretName());
         });
   }
+
+  @Test
+  public void internedNames() {
+    AppGroup appGroup = AppGroup.from(AuthDomain.PROD, "OneOps_My-App_Prod");
+    assertSame(appGroup, AppGroup.from(AuthDomain.PROD, "OneOps_My-App_Prod"));
+    assertEquals("/prod/oneops/my-app/prod", appGroup.getGroupName());
+    assertEquals("%2Fprod%2Foneops%2Fmy-app%2Fprod", appGroup.getKeywhizGroup());
+    assertEquals("/OneOps/My-App/Prod", appGroup.getNsPath());
+
+    AppSecret appSecret = AppSecret.from("prod_OneOps_My-App_Prod@db_password.txt");
+    assertSame(appSecret, AppSecret.from("prod_OneOps_My-App_Prod@db_password.txt"));
+    assertSame(appGroup, appSecret.getGroup());
+    assertEquals("db_password.txt", appSecret.getSecretName());
+
+    // Trailing separators are ignored, same as String#split.
+    assertEquals("prod", new AppGroup(AuthDomain.DEV, "oneops_my-app_prod__").getEnv());
+    List<String> invalidNames =
+        Arrays.asList("oneops_my-app", "oneops__prod", "oneops_my_app_prod", "___");
+    for (String name : invalidNames) {
+      try {
+        AppGroup.from(AuthDomain.PROD, name);
+        fail("Invalid app group name: " + name);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
 }
@@ -0,0 +1,74 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.oneops.proxy.auth.user.OneOpsUser;
+import com.oneops.proxy.authz.AuthDomain;
+import com.oneops.proxy.config.OneOpsConfig;
+import com.oneops.proxy.exception.RateLimitException;
+import com.oneops.proxy.security.RefreshTokenService.RefreshToken;
+import java.util.Collections;
+import org.junit.Test;
+
+/**
+ * Refresh token rate limit tests.
+ *
+ * @author Suresh G
+ */
+public class RefreshTokenServiceTest {
+
+  @Test
+  public void refreshRatePerMin() {
+    RefreshTokenService service = new RefreshTokenService(config(5));
+    RefreshToken token = service.create(user("user1"));
+
+    // The whole minute budget is available at once.
+    for (int i = 0; i < 5; i++) {
+      token = service.refresh(token.getToken());
+      assertEquals("user1", token.getUser().getUsername());
+    }
+
+    try {
+      service.refresh(token.getToken());
+      fail("Expected the refresh to be rate limited.");
+    } catch (RateLimitException ex) {
+      assertTrue(ex.getRetryAfterSec() >= 1 && ex.getRetryAfterSec() <= 60);
+    }
+
+    // The rate is per user.
+    RefreshToken other = service.create(user("user2"));
+    assertEquals("user2", service.refresh(other.getToken()).getUser().getUsername());
+  }
+
+  private static OneOpsConfig config(int ratePerMin) {
+    OneOpsConfig.Auth auth = new OneOpsConfig.Auth();
+    auth.setRefreshEnabled(true);
+    auth.setRefreshRatePerMin(ratePerMin);
+    OneOpsConfig config = new OneOpsConfig();
+    config.setAuth(auth);
+    return config;
+  }
+
+  private static OneOpsUser user(String name) {
+    return new OneOpsUser(name, "", Collections.emptyList(), name, AuthDomain.PROD);
+  }
+}
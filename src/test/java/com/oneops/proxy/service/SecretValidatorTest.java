@@ -0,0 +1,93 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright 2017 Walmart, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * <p>*****************************************************************************
+ */
+package com.oneops.proxy.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.oneops.proxy.exception.ValidationException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Secret validator tests.
+ *
+ * @author Suresh G
+ */
+public class SecretValidatorTest {
+
+  @Test
+  public void decodedLength() {
+    Random random = new Random(42);
+    for (int size = 0; size < 100; size++) {
+      byte[] data = new byte[size];
+      random.nextBytes(data);
+      String padded = Base64.getEncoder().encodeToString(data);
+      String unpadded = Base64.getEncoder().withoutPadding().encodeToString(data);
+      String wrapped = Base64.getMimeEncoder().encodeToString(data);
+
+      assertEquals(size, SecretValidator.decodedLength(padded, false));
+      assertEquals(size, SecretValidator.decodedLength(unpadded, false));
+      assertEquals(size, SecretValidator.decodedLength(wrapped, true));
+      String stripped = SecretValidator.stripWhitespace(wrapped);
+      assertEquals(size, Base64.getDecoder().decode(stripped).length);
+    }
+  }
+
+  @Test
+  public void invalidBase64() {
+    String[] invalid = {"Y", "YQ=", "YWJj=", "YQ===", "YQ==YQ==", "YW*j", "YWJj\n"};
+    for (String content : invalid) {
+      assertEquals(content, -1, SecretValidator.decodedLength(content, false));
+      assertFalse(content, SecretValidator.isBase64(content));
+    }
+    assertTrue(SecretValidator.isBase64("YWJj"));
+    assertEquals(3, SecretValidator.decodedLength("YWJj\n", true));
+  }
+
+  @Test
+  public void validateMetadata() {
+    Map<String, String> metadata = new HashMap<>();
+    metadata.put("owner", "root");
+    metadata.put("mode", "0400");
+    metadata.put("_app.version:1", "1.0");
+
+    List<String> errors = new ArrayList<>();
+    SecretValidator.validateMetadata(metadata, errors);
+    assertTrue(errors.isEmpty());
+
+    metadata.put("mode", "0800");
+    metadata.put("version", "1.0");
+    metadata.put("_app/version", "1.0");
+    SecretValidator.validateMetadata(metadata, errors);
+    assertEquals(3, errors.size());
+  }
+
+  @Test(expected = ValidationException.class)
+  public void throwIfInvalid() {
+    List<String> errors = new ArrayList<>();
+    errors.add("Secret content is not provided!");
+    SecretValidator.throwIfInvalid(errors);
+  }
+}